@@ -23,8 +23,11 @@
 
 package org.bitbucket.rel4j;
 
+import static org.bitbucket.rel4j.Check.checkArgument;
 import static org.bitbucket.rel4j.Check.checkNotNull;
 
+import java.util.Arrays;
+
 
 /**
  * Provides a skeletal implementation for a standard mutable relation.
@@ -32,6 +35,45 @@ import static org.bitbucket.rel4j.Check.checkNotNull;
  * range types. These objects are also used to provide implementaitons
  * for {@code isEntire()} and {@code isSurjective()}.
  * 
+ * Implementations must report every pair they add or remove through
+ * {@code pairAdded(Object, Object)} and {@code pairRemoved(Object, Object)}
+ * (and {@code pairsCleared()}), including pairs that are implicitly
+ * evicted to keep the relation simple or injective.
+ * In exchange, this class maintains the relation's hash code,
+ * so that {@code hashCode()} is a constant time operation.
+ * 
+ * Likewise, implementations must report every key (resp. value) that
+ * enters or leaves the relation through {@code keyAdded(Object)} and
+ * {@code keyRemoved(Object)} (resp. {@code valueAdded(Object)} and
+ * {@code valueRemoved(Object)}). When the domain (resp. range) type is
+ * indexed, this class counts the covered elements, so that
+ * {@code isEntire()} (resp. {@code isSurjective()}) is a constant
+ * time operation.
+ * 
+ * Implementations that accept a {@code RelationMetrics} sink report their
+ * operations through {@code recordOperation}, {@code recordDegree} and
+ * {@code recordEviction}. These are no-ops, guarded by a final field,
+ * unless the relation was built with a sink.
+ * 
+ * The same hooks feed the undo log of transactions: between
+ * {@code begin()} and {@code commit()} or {@code rollback()}, every pair
+ * reported as added or removed is recorded, and a rollback replays the
+ * inverse operations through the regular mutation methods, which restores
+ * the implementation's own counters as well. For this reason,
+ * {@code pairsCleared()} must be called while the pairs can still be
+ * iterated, before the storage is cleared.
+ * 
+ * A relation can be sealed in place with {@code freeze()}. Implementations
+ * call {@code checkMutable()} at the start of every mutation path,
+ * so that a frozen relation can be published without being copied.
+ * 
+ * A Bloom filter over the pairs, keys and values can be attached with
+ * {@code enableFilter()}. It is fed by {@code pairAdded(Object, Object)},
+ * and implementations whose misses are expensive consult it first,
+ * through {@code mightContain(Object, Object)} and its siblings.
+ * Removals leave stale entries behind, which only cost false positives;
+ * {@code rebuildFilter()} discards them.
+ * 
  * @author Andre Santos
  * @version 0.1
  */
@@ -49,6 +91,36 @@ public abstract class AbstractMutableRelation<A, B>
     /** The type of this relation's range. */
     protected final Domain<B> rangeType;
 
+    /** The size of the domain type if indexed, {@code -1} otherwise. */
+    private final int domainSize;
+
+    /** The size of the range type if indexed, {@code -1} otherwise. */
+    private final int rangeSize;
+
+    /** The sum of the hashes of every pair in the relation. */
+    private transient int hash;
+
+    /** The number of pairs added or removed, and of clears. */
+    private transient int modifications;
+
+    /** The number of elements of the domain type present as keys. */
+    private transient int coveredKeys;
+
+    /** The number of elements of the range type present as values. */
+    private transient int coveredValues;
+
+    /** The metrics sink, or {@code null} if this relation is not observed. */
+    private final RelationMetrics metrics;
+
+    /** Whether this relation was sealed by {@code freeze()}. */
+    private transient boolean frozen;
+
+    /** The undo log of the active transaction, or {@code null}. */
+    private transient UndoLog log;
+
+    /** The membership filter, or {@code null} if there is none. */
+    private transient BloomFilter filter;
+
 
 
     /**************************************************************************\
@@ -61,6 +133,9 @@ public abstract class AbstractMutableRelation<A, B>
     protected AbstractMutableRelation() {
         this.domainType = new Domain<A>();
         this.rangeType  = new Domain<B>();
+        this.domainSize = -1;
+        this.rangeSize  = -1;
+        this.metrics    = null;
     }
 
 
@@ -73,6 +148,28 @@ public abstract class AbstractMutableRelation<A, B>
         checkNotNull(ran);
         this.domainType = dom;
         this.rangeType  = ran;
+        this.domainSize = dom.isIndexed() ? dom.cardinality().value() : -1;
+        this.rangeSize  = ran.isIndexed() ? ran.cardinality().value() : -1;
+        this.metrics    = null;
+    }
+
+
+    /**
+     *  Parameter constructor of class AbstractMutableRelation.
+     *  
+     *  @param metrics The sink this relation reports its operations to.
+     *  @throws NullPointerException if any argument is {@code null}.
+     */
+    protected AbstractMutableRelation(final Domain<A> dom,
+            final Domain<B> ran, final RelationMetrics metrics) {
+        checkNotNull(dom);
+        checkNotNull(ran);
+        checkNotNull(metrics);
+        this.domainType = dom;
+        this.rangeType  = ran;
+        this.domainSize = dom.isIndexed() ? dom.cardinality().value() : -1;
+        this.rangeSize  = ran.isIndexed() ? ran.cardinality().value() : -1;
+        this.metrics    = metrics;
     }
 
 
@@ -93,17 +190,408 @@ public abstract class AbstractMutableRelation<A, B>
 
 
 
+    /**
+     * Returns an estimate of the memory used by this relation,
+     * excluding its keys and values.
+     * This implementation only accounts for the fields declared by
+     * this class; implementations should override it.
+     */
+    public MemoryStats memoryFootprint() {
+        return new MemoryStats.Builder()
+            .add(MemoryStats.Category.RELATION, shallowSize(0, 0))
+            .build();
+    }
+
+
+
+    /* ************************************************************************\
+     *  Freezing
+    \* ************************************************************************/
+
+    /**
+     * Seals this relation in place. Every further attempt to modify it
+     * throws {@code UnsupportedOperationException}. Freezing a frozen
+     * relation has no effect.
+     * 
+     * @see Relations#immutableTransfer(MutableRelation)
+     */
+    public final void freeze() {
+        freeze(false);
+    }
+
+    /**
+     * Seals this relation in place and, if {@code compact} is set,
+     * trims its internal tables into a read-optimized layout.
+     * Compaction happens at most once, when the relation is first frozen.
+     */
+    public final void freeze(final boolean compact) {
+        if (this.frozen) { return; }
+        this.frozen = true;
+        if (compact) { compact(); }
+    }
+
+
+    /**
+     * Returns {@code true} if this relation was sealed by {@code freeze()}.
+     */
+    public final boolean isFrozen() {
+        return this.frozen;
+    }
+
+
+
+    /* ************************************************************************\
+     *  Transactions
+    \* ************************************************************************/
+
+    @Override
+    public final void begin() {
+        if (this.log != null) {
+            throw new IllegalStateException("transaction already active");
+        }
+        this.log = new UndoLog();
+    }
+
+
+    @Override
+    public final void commit() {
+        if (this.log == null) {
+            throw new IllegalStateException("no active transaction");
+        }
+        this.log = null;
+    }
+
+
+    /**
+     * Ends the active transaction, undoing its modifications.
+     * The recorded pairs are restored in reverse order, with the log
+     * suspended, so that every implicit eviction is undone as well.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public final void rollback() {
+        final UndoLog undo = this.log;
+        if (undo == null) {
+            throw new IllegalStateException("no active transaction");
+        }
+        this.log = null;
+        for (int k = undo.size - 1; k >= 0; --k) {
+            final A a = (A) undo.keys[k];
+            final B b = (B) undo.values[k];
+            if (undo.added[k]) {
+                this.remove(a, b);
+            } else {
+                this.put(a, b);
+            }
+        }
+    }
+
+
+
+    /* ************************************************************************\
+     *  Filtering
+    \* ************************************************************************/
+
+    /**
+     * Attaches a Bloom filter to this relation, sized for its current
+     * number of pairs, or replaces the attached one.
+     */
+    public final void enableFilter() {
+        enableFilter(size());
+    }
+
+    /**
+     * Attaches a Bloom filter to this relation, sized for the expected
+     * number of pairs (or the current one, if larger), and fills it with
+     * the pairs of the relation. An attached filter is replaced.
+     * 
+     * @throws IllegalArgumentException if {@code expectedPairs} is negative.
+     */
+    public final void enableFilter(final int expectedPairs) {
+        checkArgument("negative size", expectedPairs >= 0);
+        final BloomFilter f =
+                new BloomFilter(Math.max(expectedPairs, size()));
+        for (final Pair<A, B> p: this) { f.addPair(p.first(), p.second()); }
+        this.filter = f;
+    }
+
+
+    /**
+     * Rebuilds the attached filter from the pairs of this relation,
+     * discarding the entries of removed pairs, and resizing it for the
+     * current number of pairs.
+     * 
+     * @throws IllegalStateException if no filter is attached.
+     */
+    public final void rebuildFilter() {
+        if (this.filter == null) {
+            throw new IllegalStateException("no filter attached");
+        }
+        enableFilter(size());
+    }
+
+
+    /**
+     * Detaches the filter of this relation, if any.
+     */
+    public final void disableFilter() {
+        this.filter = null;
+    }
+
+
+    /**
+     * Returns {@code true} if a filter is attached to this relation.
+     */
+    public final boolean hasFilter() {
+        return this.filter != null;
+    }
+
+
+    /**
+     * Returns the number of structural modifications of this relation:
+     * every pair added or removed, and every clear, bumps the counter.
+     * Two equal counts mean the pairs did not change in between.
+     */
+    public final int modificationCount() {
+        return this.modifications;
+    }
+
+
+
     /* ************************************************************************\
      *  Predicates
     \* ************************************************************************/
 
     @Override
     public boolean isEntire() {
+        if (this.domainSize >= 0) {
+            return this.coveredKeys == this.domainSize;
+        }
         return this.domainType.isEntire(this.keys());
     }
 
     @Override
     public boolean isSurjective() {
+        if (this.rangeSize >= 0) {
+            return this.coveredValues == this.rangeSize;
+        }
         return this.rangeType.isEntire(this.values());
     }
+
+
+
+    /* ************************************************************************\
+     *  Equals, HashCode & ToString
+    \* ************************************************************************/
+
+    /**
+     * Returns the hash code of this relation, as specified by
+     * {@code Relation.hashCode()}.
+     * The hash code is maintained as pairs are added and removed.
+     */
+    @Override
+    public final int hashCode() {
+        return this.hash;
+    }
+
+
+
+    /* ************************************************************************\
+     *  Protected Methods
+    \* ************************************************************************/
+
+    /** Returns {@code true}. */
+    @Override
+    protected final boolean isHashCodeMaintained() {
+        return true;
+    }
+
+
+    /**
+     * Must be called by implementations before any modification.
+     * 
+     * @throws UnsupportedOperationException if this relation is frozen.
+     */
+    protected final void checkMutable() {
+        if (this.frozen) {
+            throw new UnsupportedOperationException("relation is frozen");
+        }
+    }
+
+    /**
+     * Trims the internal tables of a frozen relation.
+     * This implementation does nothing; implementations whose storage
+     * keeps spare capacity should override it.
+     */
+    protected void compact() {}
+
+
+    /**
+     * Returns {@code false} if the pair {@code (a, b)} is certainly not
+     * in the relation, according to the filter, and {@code true} if it
+     * may be, or if there is no filter. The arguments must not be
+     * {@code null}.
+     */
+    protected final boolean mightContain(final Object a, final Object b) {
+        return this.filter == null || this.filter.mightContainPair(a, b);
+    }
+
+    /**
+     * Returns {@code false} if the key {@code a} is certainly not
+     * in the relation, according to the filter.
+     */
+    protected final boolean mightContainKey(final Object a) {
+        return this.filter == null || this.filter.mightContainKey(a);
+    }
+
+    /**
+     * Returns {@code false} if the value {@code b} is certainly not
+     * in the relation, according to the filter.
+     */
+    protected final boolean mightContainValue(final Object b) {
+        return this.filter == null || this.filter.mightContainValue(b);
+    }
+
+
+    /**
+     * Must be called by implementations whenever
+     * the pair {@code (a, b)} is added to the relation.
+     */
+    protected final void pairAdded(final Object a, final Object b) {
+        this.hash += pairHash(a, b);
+        ++this.modifications;
+        if (this.log != null) { this.log.record(a, b, true); }
+        if (this.filter != null) { this.filter.addPair(a, b); }
+    }
+
+    /**
+     * Must be called by implementations whenever
+     * the pair {@code (a, b)} is removed from the relation.
+     */
+    protected final void pairRemoved(final Object a, final Object b) {
+        this.hash -= pairHash(a, b);
+        ++this.modifications;
+        if (this.log != null) { this.log.record(a, b, false); }
+    }
+
+    /**
+     * Must be called by implementations whenever
+     * all pairs are removed from the relation at once,
+     * before the storage is cleared.
+     */
+    protected final void pairsCleared() {
+        if (this.log != null) {
+            for (final Pair<A, B> p: this) {
+                this.log.record(p.first(), p.second(), false);
+            }
+        }
+        if (this.filter != null) { this.filter.clear(); }
+        this.hash = 0;
+        ++this.modifications;
+        this.coveredKeys = 0;
+        this.coveredValues = 0;
+    }
+
+
+    /**
+     * Must be called by implementations whenever
+     * the key {@code a} becomes present in the relation.
+     */
+    protected final void keyAdded(final Object a) {
+        if (this.domainSize >= 0 && this.domainType.indexOf(a) >= 0) {
+            ++this.coveredKeys;
+        }
+    }
+
+    /**
+     * Must be called by implementations whenever
+     * the key {@code a} is no longer present in the relation.
+     */
+    protected final void keyRemoved(final Object a) {
+        if (this.domainSize >= 0 && this.domainType.indexOf(a) >= 0) {
+            --this.coveredKeys;
+        }
+    }
+
+    /**
+     * Must be called by implementations whenever
+     * the value {@code b} becomes present in the relation.
+     */
+    protected final void valueAdded(final Object b) {
+        if (this.rangeSize >= 0 && this.rangeType.indexOf(b) >= 0) {
+            ++this.coveredValues;
+        }
+    }
+
+    /**
+     * Must be called by implementations whenever
+     * the value {@code b} is no longer present in the relation.
+     */
+    protected final void valueRemoved(final Object b) {
+        if (this.rangeSize >= 0 && this.rangeType.indexOf(b) >= 0) {
+            --this.coveredValues;
+        }
+    }
+
+
+
+    /**
+     * Returns the estimated size of an instance of an implementation
+     * that declares the given fields, in addition to those of this class.
+     */
+    protected static long shallowSize(final int references,
+            final int primitiveBytes) {
+        return MemoryStats.object(3 + references, 20 + primitiveBytes);
+    }
+
+
+    /**
+     * Reports the given operation to the metrics sink, if any.
+     */
+    protected final void recordOperation(
+            final RelationMetrics.Operation op) {
+        if (this.metrics != null) { this.metrics.operation(this, op); }
+    }
+
+    /**
+     * Reports the degrees of the key and value of a new pair
+     * to the metrics sink, if any.
+     */
+    protected final void recordDegree(final int fanOut, final int fanIn) {
+        if (this.metrics != null) { this.metrics.degree(this, fanOut, fanIn); }
+    }
+
+    /**
+     * Reports the number of pairs evicted by an insertion
+     * to the metrics sink, if any.
+     */
+    protected final void recordEviction(final int pairs) {
+        if (this.metrics != null) { this.metrics.evicted(this, pairs); }
+    }
+
+
+
+    /**************************************************************************\
+     *  Nested Classes
+    \**************************************************************************/
+
+    /** The pairs added or removed during a transaction, in order. */
+    private static final class UndoLog {
+        private Object[] keys = new Object[16];
+        private Object[] values = new Object[16];
+        private boolean[] added = new boolean[16];
+        private int size;
+
+        /** */
+        void record(final Object a, final Object b, final boolean add) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                added = Arrays.copyOf(added, size * 2);
+            }
+            keys[size] = a;
+            values[size] = b;
+            added[size++] = add;
+        }
+    }
 }
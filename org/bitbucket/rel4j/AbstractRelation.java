@@ -65,13 +65,24 @@ public abstract class AbstractRelation<A, B> implements Relation<A, B> {
      *     // for every (a, b) in this:
      *     //   if (a, b) not in r: return false}
      * </pre>
+     * 
+     * This implementation also rejects relations with fewer keys or
+     * values than this one, and then compares the values of each key
+     * as a whole, instead of probing pair by pair.
      */
     @Override
     public final boolean in(final Relation<?, ?> r) {
         if (this == r) { return true; }
         if (r == null || this.size() > r.size()) { return false; }
-        for (final Pair<A, B> p: this) {
-            if (!r.contains(p.first(), p.second())) { return false; }
+        if (this.keys().size() > r.keys().size()
+                || this.values().size() > r.values().size()) {
+            return false;
+        }
+        for (final A a: this.keys()) {
+            final Set<?> bs = r.valuesOf(a);
+            if (bs == null || !bs.containsAll(this.valuesOf(a))) {
+                return false;
+            }
         }
         return true;
     }
@@ -114,7 +125,8 @@ public abstract class AbstractRelation<A, B> implements Relation<A, B> {
     @Override
     public boolean containsKey(final Object a) {
         if (a == null) { return false; }
-        return this.valuesOf(a) != null;
+        final Set<B> bs = this.valuesOf(a);
+        return bs != null && !bs.isEmpty();
     }
 
 
@@ -124,7 +136,25 @@ public abstract class AbstractRelation<A, B> implements Relation<A, B> {
     @Override
     public boolean containsValue(final Object b) {
         if (b == null) { return false; }
-        return this.keysOf(b) != null;
+        final Set<A> as = this.keysOf(b);
+        return as != null && !as.isEmpty();
+    }
+
+
+
+    /**************************************************************************\
+     *  Static Methods
+    \**************************************************************************/
+
+    /**
+     * Returns the hash code of the pair {@code (a, b)}, as used in the
+     * computation of a relation's hash code.
+     * Unlike {@code a.hashCode() ^ b.hashCode()}, this hash is not symmetric,
+     * and it does not map every pair {@code (x, x)} to zero.
+     * It is the same as {@code new Pair(a, b).hashCode()}.
+     */
+    protected static int pairHash(final Object a, final Object b) {
+        return Pair.hash(a.hashCode(), b.hashCode());
     }
 
 
@@ -144,13 +174,23 @@ public abstract class AbstractRelation<A, B> implements Relation<A, B> {
      *     // for every (a, b):
      *     //   (a, b) in this == (a, b) in o}
      * </pre>
+     * 
+     * This implementation first compares the fingerprints of both
+     * relations (number of pairs, keys and values, simplicity,
+     * injectivity and, when both maintain it, the hash code),
+     * rejecting most unequal relations in constant time.
+     * Only then does it compare the values of each key as a whole.
      */
     @Override
     public final boolean equals(final Object o) {
         if (this == o) { return true; }
         if (!(o instanceof Relation)) { return false; }
         final Relation<?, ?> r = (Relation<?, ?>) o;
-        return this.in(r) && r.in(this);
+        if (!this.sameFingerprint(r)) { return false; }
+        for (final A a: this.keys()) {
+            if (!this.valuesOf(a).equals(r.valuesOf(a))) { return false; }
+        }
+        return true;
     }
 
 
@@ -164,28 +204,27 @@ public abstract class AbstractRelation<A, B> implements Relation<A, B> {
      *  <pre>{@code
      *     int hash = 0;
      *     // for every (a, b):
-     *     //   hash = 31 * hash + (a.hashCode() ^ b.hashCode());
-     *     if (hash == 0 && !this.isEmpty()) { hash = 1; }
+     *     //   hash += pairHash(a, b);
      *     return hash;}
      * </pre>
+     *
+     *  This implementation iterates over every pair.
+     *  Implementations that are able to maintain the sum as pairs are
+     *  added and removed should override it.
      */
     @Override
-    public final int hashCode() {
+    public int hashCode() {
         int hash = 0;
-        int aHash = 0;
         for (final A a: this.keys()) {
-            aHash = a.hashCode();
             for (final B b: this.valuesOf(a)) {
-                hash = 31 * hash + (aHash ^ b.hashCode());
+                hash += pairHash(a, b);
             }
         }
-        if (hash == 0 && !this.isEmpty()) {
-            hash = 1;
-        }
         return hash;
     }
 
 
+
     /**
      *  Returns a string representation of the object.
      */
@@ -209,4 +248,48 @@ public abstract class AbstractRelation<A, B> implements Relation<A, B> {
         sb.append('}');
         return sb.toString();
     }
+
+
+
+    /**************************************************************************\
+     *  Protected Methods
+    \**************************************************************************/
+
+    /**
+     * Determines whether {@code hashCode()} is a constant time operation
+     * for this relation, meaning it may be used to reject unequal
+     * relations. Returns {@code false} by default.
+     */
+    protected boolean isHashCodeMaintained() {
+        return false;
+    }
+
+
+
+    /**************************************************************************\
+     *  Private Methods
+    \**************************************************************************/
+
+    /**
+     * Compares the fingerprints of this relation and the given relation.
+     * Returns {@code false} only if they are certainly not equal.
+     * Note that, with equal sizes, the number of keys and values
+     * determine the non-simple and non-injective arrow counts.
+     */
+    private boolean sameFingerprint(final Relation<?, ?> r) {
+        if (this.size() != r.size()) { return false; }
+        if (this.isSimple() != r.isSimple()
+                || this.isInjective() != r.isInjective()) {
+            return false;
+        }
+        if (this.keys().size() != r.keys().size()
+                || this.values().size() != r.values().size()) {
+            return false;
+        }
+        if (this.isHashCodeMaintained() && r instanceof AbstractRelation
+                && ((AbstractRelation<?, ?>) r).isHashCodeMaintained()) {
+            return this.hashCode() == r.hashCode();
+        }
+        return true;
+    }
 }
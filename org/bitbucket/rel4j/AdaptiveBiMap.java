@@ -0,0 +1,611 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+
+
+/**
+ * Provides an implementation of a standard mutable binary relation
+ * that switches between the other implementations as its properties
+ * change.
+ * It starts as a {@code OneToOneBiMap}. The first insertion that would
+ * break simplicity (resp. injectivity) promotes it to the cheapest
+ * representation that holds without that property: a {@code SimpleBiMap},
+ * a {@code SimpleBiMap} seen through its converse (for injective
+ * relations), or a {@code BiMap}. Unlike the underlying implementations,
+ * insertions never evict pairs.
+ * 
+ * Optionally, removals that make the relation simple or injective again
+ * demote it back to a cheaper representation. Each switch copies every
+ * pair, so demotion suits relations that rarely go back and forth.
+ * 
+ * This implementation handles non-determinism, and it does not accept
+ * {@code null} keys or values.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public final class AdaptiveBiMap<A, B> extends AbstractMutableRelation<A, B> {
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The representations of an adaptive relation, cheapest first. */
+    public enum Representation {
+        /** A {@code OneToOneBiMap}. */
+        ONE_TO_ONE(true, true),
+        /** A {@code SimpleBiMap}. */
+        SIMPLE(true, false),
+        /** The converse of a {@code SimpleBiMap}. */
+        INJECTIVE(false, true),
+        /** A {@code BiMap}. */
+        GENERAL(false, false);
+
+        /** The invariants of the representation. */
+        private final boolean simple;
+        private final boolean injective;
+
+        /** */
+        Representation(final boolean simple, final boolean injective) {
+            this.simple = simple;
+            this.injective = injective;
+        }
+
+        /** Returns the cheapest representation with the given invariants. */
+        static Representation of(final boolean simple,
+                final boolean injective) {
+            if (simple) { return injective ? ONE_TO_ONE : SIMPLE; }
+            return injective ? INJECTIVE : GENERAL;
+        }
+    }
+
+
+    /** Whether removals may switch to a cheaper representation. */
+    private final boolean demote;
+
+    /** The current representation. */
+    private Representation representation;
+
+    /** The current storage. */
+    private MutableRelation<A, B> relation;
+
+    /** The views of the domain and range, which survive migrations. */
+    private final Set<A> keySet = new StorageView<A>() {
+        @Override
+        Set<A> current() { return relation.keys(); }
+    };
+    private final Set<B> valueSet = new StorageView<B>() {
+        @Override
+        Set<B> current() { return relation.values(); }
+    };
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Empty constructor of class AdaptiveBiMap.
+     *  The relation is never demoted.
+     */
+    public AdaptiveBiMap() {
+        this(false);
+    }
+
+
+    /**
+     *  Parameter constructor of class AdaptiveBiMap.
+     *  
+     *  @param demote Whether removals may switch the relation to a
+     *  cheaper representation.
+     */
+    public AdaptiveBiMap(final boolean demote) {
+        this.demote = demote;
+        this.representation = Representation.ONE_TO_ONE;
+        this.relation = create(representation, 1);
+    }
+
+
+    /**
+     *  Parameter constructor of class AdaptiveBiMap.
+     *  The relation is never demoted.
+     */
+    public AdaptiveBiMap(final Domain<A> dom, final Domain<B> ran) {
+        this(dom, ran, false);
+    }
+
+
+    /**
+     *  Parameter constructor of class AdaptiveBiMap.
+     *  
+     *  @param demote Whether removals may switch the relation to a
+     *  cheaper representation.
+     */
+    public AdaptiveBiMap(final Domain<A> dom, final Domain<B> ran,
+            final boolean demote) {
+        super(dom, ran);
+        this.demote = demote;
+        this.representation = Representation.ONE_TO_ONE;
+        this.relation = create(representation, 1);
+    }
+
+
+
+    /* ************************************************************************\
+     *  Getters
+    \* ************************************************************************/
+
+    /**
+     * Returns the current representation of this relation.
+     */
+    public Representation representation() {
+        return representation;
+    }
+
+
+    @Override
+    public int size() {
+        return relation.size();
+    }
+
+
+    @Override
+    public Set<A> keys() {
+        return keySet;
+    }
+
+
+    @Override
+    public Set<A> keysOf(final Object b) {
+        return new StorageView<A>() {
+            @Override
+            Set<A> current() { return relation.keysOf(b); }
+        };
+    }
+
+
+    @Override
+    public A keyOf(final Object b) {
+        return relation.keyOf(b);
+    }
+
+
+    @Override
+    public Set<A> keysFor(final Iterable<?> bs) {
+        return UnionSet.ofKeys(this, bs);
+    }
+
+
+
+    @Override
+    public Set<B> values() {
+        return valueSet;
+    }
+
+
+    @Override
+    public Set<B> valuesOf(final Object a) {
+        return new StorageView<B>() {
+            @Override
+            Set<B> current() { return relation.valuesOf(a); }
+        };
+    }
+
+
+    @Override
+    public B valueOf(final Object a) {
+        return relation.valueOf(a);
+    }
+
+
+    @Override
+    public Set<B> valuesFor(final Iterable<?> as) {
+        return UnionSet.ofValues(this, as);
+    }
+
+
+    /**
+     * Returns an iterator over the pairs of this relation.
+     * Removals through the iterator never demote the relation.
+     */
+    @Override
+    public Iterator<Pair<A, B>> iterator() {
+        return new AdaptiveBiMapIterator(relation.iterator());
+    }
+
+
+    /**
+     * Returns an estimate of the memory used by this relation,
+     * including its current storage.
+     */
+    @Override
+    public MemoryStats memoryFootprint() {
+        return new MemoryStats.Builder()
+            .add(MemoryStats.Category.RELATION, shallowSize(2, 1))
+            .add(MemoryStats.of(relation))
+            .build();
+    }
+
+
+
+    /* ************************************************************************\
+     *  Predicates
+    \* ************************************************************************/
+
+    @Override
+    public boolean isEmpty() {
+        return relation.isEmpty();
+    }
+
+
+    @Override
+    public boolean isSimple() {
+        return relation.isSimple();
+    }
+
+    @Override
+    public boolean isInjective() {
+        return relation.isInjective();
+    }
+
+
+    @Override
+    public boolean isEntire() {
+        return relation.isEntire();
+    }
+
+    @Override
+    public boolean isSurjective() {
+        return relation.isSurjective();
+    }
+
+
+    @Override
+    public boolean contains(final Object a, final Object b) {
+        if (a == null || b == null || !mightContain(a, b)) { return false; }
+        return relation.contains(a, b);
+    }
+
+
+    @Override
+    public boolean containsKey(final Object a) {
+        if (a == null || !mightContainKey(a)) { return false; }
+        return relation.containsKey(a);
+    }
+
+
+    @Override
+    public boolean containsValue(final Object b) {
+        if (b == null || !mightContainValue(b)) { return false; }
+        return relation.containsValue(b);
+    }
+
+
+
+    /* ***********************************************************************\
+     *  Insertion Methods
+    \* ***********************************************************************/
+
+    @Override
+    public boolean put(final A a, final B b) {
+        if (a == null || b == null) { return false; }
+        return doPut(a, b);
+    }
+
+
+    @Override
+    public boolean putAllKeys(final Iterable<? extends A> as, final B b) {
+        if (as == null || b == null) { return false; }
+        boolean modified = false;
+        for (final A a: as) {
+            if (a != null) {
+                modified |= doPut(a, b);
+            }
+        }
+        return modified;
+    }
+
+
+    @Override
+    public boolean putAllValues(final A a, final Iterable<? extends B> bs) {
+        if (a == null || bs == null) { return false; }
+        boolean modified = false;
+        for (final B b: bs) {
+            if (b != null) {
+                modified |= doPut(a, b);
+            }
+        }
+        return modified;
+    }
+
+
+    @Override
+    public boolean putAll(final Iterable<? extends A> as,
+            final Iterable<? extends B> bs) {
+        if (as == null || bs == null) { return false; }
+        boolean modified = false;
+        for (final A a: as) {
+            if (a == null) { continue; }
+            for (final B b: bs) {
+                if (b != null) {
+                    modified |= doPut(a, b);
+                }
+            }
+        }
+        return modified;
+    }
+
+
+
+    /* ***********************************************************************\
+     *  Removal Methods
+    \* ***********************************************************************/
+
+    @Override
+    public boolean remove(final Object a, final Object b) {
+        checkMutable();
+        if (!relation.remove(a, b)) { return false; }
+        pairRemoved(a, b);
+        demoteIfPossible();
+        return true;
+    }
+
+
+    @Override
+    public Set<B> removeKey(final Object a) {
+        final Set<B> bs = doRemoveKey(a);
+        demoteIfPossible();
+        return bs;
+    }
+
+
+    @Override
+    public Set<B> removeKeys(Iterable<?> as) {
+        as = Sets.elements(as);
+        final Set<B> set = Sets.<B>empty();
+        for (final Object a: as) {
+            set.addAll(doRemoveKey(a));
+        }
+        demoteIfPossible();
+        return set;
+    }
+
+
+    @Override
+    public Set<A> removeValue(final Object b) {
+        final Set<A> as = doRemoveValue(b);
+        demoteIfPossible();
+        return as;
+    }
+
+
+    @Override
+    public Set<A> removeValues(Iterable<?> bs) {
+        bs = Sets.elements(bs);
+        final Set<A> set = Sets.<A>empty();
+        for (final Object b: bs) {
+            set.addAll(doRemoveValue(b));
+        }
+        demoteIfPossible();
+        return set;
+    }
+
+
+    @Override
+    public void clear() {
+        checkMutable();
+        pairsCleared();
+        if (demote) {
+            representation = Representation.ONE_TO_ONE;
+            relation = create(representation, 1);
+        } else {
+            relation.clear();
+        }
+    }
+
+
+
+    /**************************************************************************\
+     *  Protected Methods
+    \**************************************************************************/
+
+    /** Compacts the current storage, unless it is a converse view. */
+    @Override
+    protected void compact() {
+        if (relation instanceof AbstractMutableRelation) {
+            ((AbstractMutableRelation<A, B>) relation).compact();
+        }
+    }
+
+
+
+    /**************************************************************************\
+     *  Private Methods
+    \**************************************************************************/
+
+    /** */
+    private boolean doPut(final A a, final B b) {
+        checkMutable();
+        if (representation == Representation.GENERAL) {
+            if (!relation.put(a, b)) { return false; }
+            pairAdded(a, b);
+            return true;
+        }
+        if (relation.contains(a, b)) { return false; }
+        final boolean simple = representation.simple
+                && !relation.containsKey(a);
+        final boolean injective = representation.injective
+                && !relation.containsValue(b);
+        if (simple != representation.simple
+                || injective != representation.injective) {
+            migrate(Representation.of(simple, injective));
+        }
+        relation.put(a, b);
+        pairAdded(a, b);
+        return true;
+    }
+
+
+    /** */
+    private Set<B> doRemoveKey(final Object a) {
+        checkMutable();
+        final Set<B> bs = relation.removeKey(a);
+        for (final B b: bs) {
+            pairRemoved(a, b);
+        }
+        return bs;
+    }
+
+
+    /** */
+    private Set<A> doRemoveValue(final Object b) {
+        checkMutable();
+        final Set<A> as = relation.removeValue(b);
+        for (final A a: as) {
+            pairRemoved(a, b);
+        }
+        return as;
+    }
+
+
+    /** Switches to a cheaper representation, if enabled and possible. */
+    private void demoteIfPossible() {
+        if (!demote || representation == Representation.ONE_TO_ONE) {
+            return;
+        }
+        final Representation target = Representation.of(
+                relation.isSimple(), relation.isInjective());
+        if (target != representation) { migrate(target); }
+    }
+
+
+    /** Copies every pair into a new storage of the given representation. */
+    private void migrate(final Representation target) {
+        final MutableRelation<A, B> storage =
+                create(target, Math.max(1, relation.size()));
+        for (final A a: relation.keys()) {
+            storage.putAllValues(a, relation.valuesOf(a));
+        }
+        representation = target;
+        relation = storage;
+    }
+
+
+    /** */
+    private MutableRelation<A, B> create(final Representation r,
+            final int capacity) {
+        switch (r) {
+            case ONE_TO_ONE:
+                return new OneToOneBiMap<A, B>(capacity, domainType, rangeType);
+            case SIMPLE:
+                return new SimpleBiMap<A, B>(capacity, domainType, rangeType);
+            case INJECTIVE:
+                return new MutableConverseView<A, B>(
+                        new SimpleBiMap<B, A>(capacity, rangeType, domainType));
+            default:
+                return new BiMap<A, B>(capacity, domainType, rangeType);
+        }
+    }
+
+
+
+    /**************************************************************************\
+     *  Nested Classes
+    \**************************************************************************/
+
+    /**
+     * An unmodifiable view of a set of the current storage, looked up
+     * on every call, so that it stays valid when the storage is replaced.
+     */
+    private abstract class StorageView<E> extends AbstractSet<E> {
+        /** Returns the viewed set of the current storage. */
+        abstract Set<E> current();
+
+        /** */
+        @Override
+        public int size() {
+            return current().size();
+        }
+
+        /** */
+        @Override
+        public boolean isEmpty() {
+            return current().isEmpty();
+        }
+
+        /** */
+        @Override
+        public boolean contains(final Object o) {
+            return current().contains(o);
+        }
+
+        /** */
+        @Override
+        public Iterator<E> iterator() {
+            return Collections.unmodifiableSet(current()).iterator();
+        }
+    }
+
+
+    /** */
+    private final class AdaptiveBiMapIterator
+            implements Iterator<Pair<A, B>> {
+        private final Iterator<Pair<A, B>> iterator;
+        private Pair<A, B> current;
+
+        /** */
+        AdaptiveBiMapIterator(final Iterator<Pair<A, B>> iterator) {
+            this.iterator = iterator;
+        }
+
+
+        /** */
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        /** */
+        @Override
+        public Pair<A, B> next() {
+            current = iterator.next();
+            return current;
+        }
+
+        /** */
+        @Override
+        public void remove() {
+            checkMutable();
+            iterator.remove();
+            pairRemoved(current.first(), current.second());
+        }
+    }
+}
@@ -29,6 +29,10 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
+import org.bitbucket.rel4j.MemoryStats.Category;
+import org.bitbucket.rel4j.RelationMetrics.Operation;
+import org.bitbucket.rel4j.Sets.Bucket;
+
 
 /**
  * Provides an implementation of a standard mutable binary relation,
@@ -47,8 +51,12 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
     \**************************************************************************/
 
     /** The Map storages. */
-    private final Map<A, Set<B>> keyValue;
-    private final Map<B, Set<A>> valueKey;
+    private final Map<A, Bucket<B>> keyValue;
+    private final Map<B, Bucket<A>> valueKey;
+
+    /** The unmodifiable views of the domain and range. */
+    private final Set<A> keySet;
+    private final Set<B> valueSet;
 
     /** The number of key-value entries. */
     private transient int size;
@@ -69,8 +77,10 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
      *  Empty constructor of class BiMap.
      */
     public BiMap() {
-        keyValue = new HashMap<A, Set<B>>();
-        valueKey = new HashMap<B, Set<A>>();
+        keyValue = new HashMap<A, Bucket<B>>();
+        valueKey = new HashMap<B, Bucket<A>>();
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
     }
 
 
@@ -79,8 +89,10 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
      */
     public BiMap(final int initialCapacity) {
         assert initialCapacity > 0;
-        keyValue = new HashMap<A, Set<B>>(initialCapacity);
-        valueKey = new HashMap<B, Set<A>>(initialCapacity);
+        keyValue = new HashMap<A, Bucket<B>>(initialCapacity);
+        valueKey = new HashMap<B, Bucket<A>>(initialCapacity);
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
     }
 
 
@@ -89,8 +101,10 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
      */
     public BiMap(final Domain<A> dom, final Domain<B> ran) {
         super(dom, ran);
-        keyValue = new HashMap<A, Set<B>>();
-        valueKey = new HashMap<B, Set<A>>();
+        keyValue = new HashMap<A, Bucket<B>>();
+        valueKey = new HashMap<B, Bucket<A>>();
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
     }
 
 
@@ -100,8 +114,25 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
     public BiMap(final int initialCapacity,
             final Domain<A> dom, final Domain<B> ran) {
         super(dom, ran);
-        keyValue = new HashMap<A, Set<B>>(initialCapacity);
-        valueKey = new HashMap<B, Set<A>>(initialCapacity);
+        keyValue = new HashMap<A, Bucket<B>>(initialCapacity);
+        valueKey = new HashMap<B, Bucket<A>>(initialCapacity);
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
+    }
+
+
+    /**
+     *  Parameter constructor of class BiMap.
+     *  
+     *  @param metrics The sink this relation reports its operations to.
+     */
+    public BiMap(final Domain<A> dom, final Domain<B> ran,
+            final RelationMetrics metrics) {
+        super(dom, ran, metrics);
+        keyValue = new HashMap<A, Bucket<B>>();
+        valueKey = new HashMap<B, Bucket<A>>();
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
     }
 
 
@@ -118,18 +149,21 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public Set<A> keys() {
-        return Collections.unmodifiableSet(keyValue.keySet());
+        return keySet;
     }
 
 
     @Override
     public Set<A> keysOf(final Object b) {
-        return Collections.unmodifiableSet(Sets.id(valueKey.get(b)));
+        recordOperation(Operation.KEYS_OF);
+        final Set<A> as = valueKey.get(b);
+        return as == null ? Collections.<A>emptySet() : as;
     }
 
 
     @Override
     public A keyOf(final Object b) {
+        recordOperation(Operation.KEYS_OF);
         final Set<A> as = valueKey.get(b);
         if (as == null || as.size() > 1) { return null; }
         return as.iterator().next();
@@ -137,33 +171,29 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
 
 
     @Override
-    public Set<A> keysFor(Iterable<?> bs) {
-        if (bs == null) { bs = Collections.emptySet(); }
-        final Set<A> set = Sets.<A>empty();
-        for (final Object b: bs) {
-            final Set<A> keys = valueKey.get(b);
-            if (keys == null) { continue; }
-            set.addAll(keys);
-        }
-        return Collections.unmodifiableSet(set);
+    public Set<A> keysFor(final Iterable<?> bs) {
+        return UnionSet.ofKeys(this, bs);
     }
 
 
 
     @Override
     public Set<B> values() {
-        return Collections.unmodifiableSet(valueKey.keySet());
+        return valueSet;
     }
 
 
     @Override
     public Set<B> valuesOf(final Object a) {
-        return Collections.unmodifiableSet(Sets.id(keyValue.get(a)));
+        recordOperation(Operation.VALUES_OF);
+        final Set<B> bs = keyValue.get(a);
+        return bs == null ? Collections.<B>emptySet() : bs;
     }
 
 
     @Override
     public B valueOf(final Object a) {
+        recordOperation(Operation.VALUES_OF);
         final Set<B> bs = keyValue.get(a);
         if (bs == null || bs.size() > 1) { return null; }
         return bs.iterator().next();
@@ -171,15 +201,8 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
 
 
     @Override
-    public Set<B> valuesFor(Iterable<?> as) {
-        if (as == null) { as = Collections.emptySet(); }
-        final Set<B> set = Sets.<B>empty();
-        for (final Object a: as) {
-            Set<B> values = keyValue.get(a);
-            if (values == null) { continue; }
-            set.addAll(values);
-        }
-        return Collections.unmodifiableSet(set);
+    public Set<B> valuesFor(final Iterable<?> as) {
+        return UnionSet.ofValues(this, as);
     }
 
 
@@ -189,6 +212,32 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
     }
 
 
+    /**
+     * Returns an estimate of the memory used by this relation,
+     * excluding its keys and values.
+     */
+    @Override
+    public MemoryStats memoryFootprint() {
+        final int cap = MemoryStats.MAP_CAPACITY;
+        long sets = 0L;
+        for (final Bucket<B> bs: keyValue.values()) {
+            sets += MemoryStats.hashSet(bs.size(), Sets.BUCKET_CAPACITY);
+        }
+        for (final Bucket<A> as: valueKey.values()) {
+            sets += MemoryStats.hashSet(as.size(), Sets.BUCKET_CAPACITY);
+        }
+        return new MemoryStats.Builder()
+            .add(Category.RELATION, shallowSize(4, 12)
+                    + 4 * MemoryStats.view())
+            .add(Category.MAPS, MemoryStats.hashMap(keyValue.size(), cap)
+                    + MemoryStats.hashMap(valueKey.size(), cap))
+            .add(Category.ENTRIES, (keyValue.size() + valueKey.size())
+                    * MemoryStats.hashEntry())
+            .add(Category.SETS, sets)
+            .build();
+    }
+
+
 
     /* ************************************************************************\
      *  Predicates
@@ -213,7 +262,8 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public boolean contains(final Object a, final Object b) {
-        if (a == null || b == null) { return false; }
+        recordOperation(Operation.CONTAINS);
+        if (a == null || b == null || !mightContain(a, b)) { return false; }
         final Set<B> bs = keyValue.get(a);
         return bs != null && bs.contains(b);
     }
@@ -221,14 +271,16 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public boolean containsKey(final Object a) {
-        if (a == null) { return false; }
+        recordOperation(Operation.CONTAINS);
+        if (a == null || !mightContainKey(a)) { return false; }
         return keyValue.get(a) != null;
     }
 
 
     @Override
     public boolean containsValue(final Object b) {
-        if (b == null) { return false; }
+        recordOperation(Operation.CONTAINS);
+        if (b == null || !mightContainValue(b)) { return false; }
         return valueKey.get(b) != null;
     }
 
@@ -295,16 +347,23 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public boolean remove(final Object a, final Object b) {
+        checkMutable();
+        recordOperation(Operation.REMOVE);
         if (a == null || b == null) { return false; }
-        Set<B> bs = keyValue.get(a);
-        if (bs != null && bs.remove(b)) {
+        final Bucket<B> bs = keyValue.get(a);
+        if (bs != null && bs.delete(b)) {
             --size;
-            if (bs.isEmpty()) { keyValue.remove(a); }
-            else { --nonSimple; }
-            final Set<A> as = valueKey.get(b);
-            as.remove(a);
-            if (as.isEmpty()) { valueKey.remove(b); }
-            else { --nonInjective; }
+            pairRemoved(a, b);
+            if (bs.isEmpty()) {
+                keyValue.remove(a);
+                keyRemoved(a);
+            } else { --nonSimple; }
+            final Bucket<A> as = valueKey.get(b);
+            as.delete(a);
+            if (as.isEmpty()) {
+                valueKey.remove(b);
+                valueRemoved(b);
+            } else { --nonInjective; }
             return true;
         }
         return false;
@@ -313,14 +372,13 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public Set<B> removeKey(final Object a) {
-        final Set<B> set = doRemoveKey(a);
-        return set == null ? Sets.<B>empty() : set;
+        return Sets.copy(doRemoveKey(a));
     }
 
 
     @Override
     public Set<B> removeKeys(Iterable<?> as) {
-        if (as == null) { as = Collections.emptySet(); }
+        as = Sets.elements(as);
         final Set<B> set = Sets.<B>empty();
         for (final Object a: as) {
             final Set<B> bs = doRemoveKey(a);
@@ -332,14 +390,13 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public Set<A> removeValue(final Object b) {
-        final Set<A> set = doRemoveValue(b);
-        return set == null ? Sets.<A>empty() : set;
+        return Sets.copy(doRemoveValue(b));
     }
 
 
     @Override
     public Set<A> removeValues(Iterable<?> bs) {
-        if (bs == null) { bs = Collections.emptySet(); }
+        bs = Sets.elements(bs);
         final Set<A> set = Sets.<A>empty();
         for (final Object b: bs) {
             final Set<A> as = doRemoveValue(b);
@@ -351,30 +408,74 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public void clear() {
+        checkMutable();
+        recordOperation(Operation.CLEAR);
         size            = 0;
         nonSimple       = 0;
         nonInjective    = 0;
+        pairsCleared();
         keyValue.clear();
         valueKey.clear();
     }
 
 
 
+    /*************************************************************************\
+     *  Package Methods
+    \*************************************************************************/
+
+    /**
+     * Loads the key {@code a}, which must not be present yet, with the
+     * {@code n} distinct values {@code values[ids[0..n)]}.
+     * Used by {@code RelationCodec}, it skips the lookups of
+     * {@code put(Object, Object)} and updates the counters directly.
+     */
+    void loadRow(final A a, final B[] values, final int[] ids, final int n) {
+        final Bucket<B> bs = Sets.<B>bucket();
+        keyValue.put(a, bs);
+        keyAdded(a);
+        for (int k = 0; k < n; ++k) {
+            final B b = values[ids[k]];
+            bs.insert(b);
+            pairAdded(a, b);
+            Bucket<A> as = valueKey.get(b);
+            if (as == null) {
+                valueKey.put(b, as = Sets.<A>bucket());
+                valueAdded(b);
+            } else { ++nonInjective; }
+            as.insert(a);
+        }
+        size += n;
+        nonSimple += n - 1;
+    }
+
+
+
     /*************************************************************************\
      *  Private Methods
     \*************************************************************************/
 
     /** */
     private boolean doPut(final A a, final B b) {
-        Set<B> bs = keyValue.get(a);
-        if (bs == null) { keyValue.put(a, bs = Sets.<B>empty()); }
-        if (bs.add(b)) {
+        checkMutable();
+        recordOperation(Operation.PUT);
+        Bucket<B> bs = keyValue.get(a);
+        if (bs == null) {
+            keyValue.put(a, bs = Sets.<B>bucket());
+            keyAdded(a);
+        }
+        if (bs.insert(b)) {
             ++size;
+            pairAdded(a, b);
             if (bs.size() > 1) { ++nonSimple; }
-            Set<A> as = valueKey.get(b);
-            if (as == null) { valueKey.put(b, as = Sets.<A>empty()); }
-            as.add(a);
+            Bucket<A> as = valueKey.get(b);
+            if (as == null) {
+                valueKey.put(b, as = Sets.<A>bucket());
+                valueAdded(b);
+            }
+            as.insert(a);
             if (as.size() > 1) { ++nonInjective; }
+            recordDegree(bs.size(), as.size());
             return true;
         }
         return false;
@@ -383,16 +484,22 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     /** */
     private Set<B> doRemoveKey(final Object a) {
+        checkMutable();
+        recordOperation(Operation.REMOVE);
         if (a == null) { return null; }
-        final Set<B> bs = keyValue.remove(a);
+        final Bucket<B> bs = keyValue.remove(a);
         if (bs != null) {
+            keyRemoved(a);
             size -= bs.size();
             nonSimple -= bs.size() - 1;
             for (final B b: bs) {
-                final Set<A> as = valueKey.get(b);
-                as.remove(a);
-                if (as.isEmpty()) { valueKey.remove(b); }
-                else { --nonInjective; }
+                pairRemoved(a, b);
+                final Bucket<A> as = valueKey.get(b);
+                as.delete(a);
+                if (as.isEmpty()) {
+                    valueKey.remove(b);
+                    valueRemoved(b);
+                } else { --nonInjective; }
             }
         }
         return bs;
@@ -401,16 +508,22 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     /** */
     private Set<A> doRemoveValue(final Object b) {
+        checkMutable();
+        recordOperation(Operation.REMOVE);
         if (b == null) { return null; }
-        final Set<A> as = valueKey.remove(b);
+        final Bucket<A> as = valueKey.remove(b);
         if (as != null) {
+            valueRemoved(b);
             size -= as.size();
             nonInjective -= as.size() - 1;
             for (final A a: as) {
-                final Set<B> bs = keyValue.get(a);
-                bs.remove(b);
-                if (bs.isEmpty()) { keyValue.remove(a); }
-                else { --nonSimple; }
+                pairRemoved(a, b);
+                final Bucket<B> bs = keyValue.get(a);
+                bs.delete(b);
+                if (bs.isEmpty()) {
+                    keyValue.remove(a);
+                    keyRemoved(a);
+                } else { --nonSimple; }
             }
         }
         return as;
@@ -449,7 +562,7 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
         public Pair<A, B> next() {
             if (currentKey == null || !values.hasNext()) {
                 currentKey = keyset.next();
-                values = keyValue.get(currentKey).iterator();
+                values = keyValue.get(currentKey).rawIterator();
             }
             currentValue = values.next();
             return new Pair<A, B>(currentKey, currentValue);
@@ -462,17 +575,23 @@ public final class BiMap<A, B> extends AbstractMutableRelation<A, B> {
                 throw new IllegalStateException(
                         "The next method has not yet been called.");
             }
+            checkMutable();
+            recordOperation(Operation.REMOVE);
             values.remove();
             --size;
+            pairRemoved(currentKey, currentValue);
             if (keyValue.get(currentKey).isEmpty()) {
                 keyset.remove();
+                keyRemoved(currentKey);
             } else {
                 --nonSimple;
             }
-            final Set<A> as = valueKey.get(currentValue);
-            as.remove(currentKey);
-            if (as.isEmpty()) { valueKey.remove(currentValue); }
-            else { --nonInjective; }
+            final Bucket<A> as = valueKey.get(currentValue);
+            as.delete(currentKey);
+            if (as.isEmpty()) {
+                valueKey.remove(currentValue);
+                valueRemoved(currentValue);
+            } else { --nonInjective; }
         }
     }
 }
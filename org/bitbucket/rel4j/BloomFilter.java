@@ -0,0 +1,169 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import java.util.Arrays;
+
+
+/**
+ * A Bloom filter over the pairs, keys and values of a relation.
+ * Each entry sets {@code HASHES} bits of a single bit array, chosen by
+ * double hashing; pairs, keys and values are salted differently, so they
+ * share the array without being confused with one another.
+ * A negative answer is exact, a positive one may be false.
+ * 
+ * Entries cannot be removed. The filter is sized for a number of pairs
+ * when it is built, and does not grow: its false positive rate rises as
+ * the relation outgrows that number, or as removed pairs leave stale bits
+ * behind, until it is rebuilt.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+final class BloomFilter {
+
+    /**************************************************************************\
+     *  Fields
+    \**************************************************************************/
+
+    /** The number of bits per entry, for about 1% false positives. */
+    static final int BITS_PER_ENTRY = 10;
+
+    /** The number of bits set by each entry. */
+    static final int HASHES = 7;
+
+    /** The salts of each kind of entry. */
+    private static final long PAIR  = 0x9E3779B97F4A7C15L;
+    private static final long KEY   = 0xC2B2AE3D27D4EB4FL;
+    private static final long VALUE = 0x165667B19E3779F9L;
+
+
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The bit array, of a power of two length. */
+    private final long[] bits;
+
+    /** The mask of a bit index. */
+    private final int mask;
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Parameter constructor of class BloomFilter.
+     *  Sizes the filter for {@code pairs} pairs, and as many keys
+     *  and values.
+     */
+    BloomFilter(final int pairs) {
+        final long wanted = 3L * Math.max(pairs, 16) * BITS_PER_ENTRY;
+        final int length = (int) Math.min(1L << 30,
+                Long.highestOneBit(wanted - 1) << 1);
+        this.bits = new long[Math.max(1, length >>> 6)];
+        this.mask = length - 1;
+    }
+
+
+
+    /**************************************************************************\
+     *  Package-private Methods
+    \**************************************************************************/
+
+    /** */
+    void addPair(final Object a, final Object b) {
+        add(mix(PAIR ^ (a.hashCode() * 0x9E3779B9L + b.hashCode())));
+        add(mix(KEY ^ a.hashCode()));
+        add(mix(VALUE ^ b.hashCode()));
+    }
+
+
+    /** */
+    boolean mightContainPair(final Object a, final Object b) {
+        return test(mix(PAIR ^ (a.hashCode() * 0x9E3779B9L + b.hashCode())));
+    }
+
+
+    /** */
+    boolean mightContainKey(final Object a) {
+        return test(mix(KEY ^ a.hashCode()));
+    }
+
+
+    /** */
+    boolean mightContainValue(final Object b) {
+        return test(mix(VALUE ^ b.hashCode()));
+    }
+
+
+    /** Forgets every entry. */
+    void clear() {
+        Arrays.fill(bits, 0L);
+    }
+
+
+    /** Returns the size of the bit array, in bytes. */
+    long bytes() {
+        return 8L * bits.length;
+    }
+
+
+
+    /**************************************************************************\
+     *  Private Methods
+    \**************************************************************************/
+
+    /** Sets the bits of a hash. */
+    private void add(final long h) {
+        int x = (int) h;
+        final int step = (int) (h >>> 32) | 1;
+        for (int i = 0; i < HASHES; ++i, x += step) {
+            bits[(x & mask) >>> 6] |= 1L << x;
+        }
+    }
+
+
+    /** Tests the bits of a hash. */
+    private boolean test(final long h) {
+        int x = (int) h;
+        final int step = (int) (h >>> 32) | 1;
+        for (int i = 0; i < HASHES; ++i, x += step) {
+            if ((bits[(x & mask) >>> 6] & (1L << x)) == 0L) { return false; }
+        }
+        return true;
+    }
+
+
+    /** The finalizer of MurmurHash3's 64-bit hash. */
+    private static long mix(final long x) {
+        long h = (x ^ (x >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB93FE51A3C35L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,546 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import static org.bitbucket.rel4j.Check.checkNotNull;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Predicate;
+
+
+/**
+ * An immutable binary relation stored in columns.
+ * Keys and values are encoded as dense {@code int} identifiers by two
+ * dictionaries, and the pairs are kept in two parallel {@code int[]}
+ * columns, sorted by key identifier; an offset array marks where the
+ * values of each key begin (a compressed sparse row layout). Within a
+ * key, the value identifiers are sorted as well.
+ * 
+ * Full iterations, filters and counts walk the columns sequentially,
+ * with no entry objects and no pointers to follow. Predicates over keys
+ * or values are evaluated once per dictionary entry, and the pairs are
+ * then matched with plain array loops.
+ * {@code valuesOf(Object)} is a range of the value column, and membership
+ * tests search that range. {@code keysOf(Object)}, however, scans the
+ * whole value column; this implementation suits relations that are
+ * mostly read forwards, or as a whole.
+ * The sets returned by {@code keysOf(Object)} and {@code valuesOf(Object)}
+ * are sorted identifier ranges, so {@code Sets.intersection},
+ * {@code Sets.union} and {@code Sets.difference} combine them by merging.
+ * 
+ * This implementation does not accept {@code null} keys or values.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public final class ColumnarRelation<A, B> extends AbstractRelation<A, B> {
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The type of this relation's domain. */
+    private final Domain<A> domainType;
+
+    /** The type of this relation's range. */
+    private final Domain<B> rangeType;
+
+    /** The dictionaries, from identifier to element and back. */
+    private final Object[] keyDict;
+    private final Object[] valueDict;
+    private final Map<Object, Integer> keyIds;
+    private final Map<Object, Integer> valueIds;
+
+    /** The pair columns, sorted by key identifier. */
+    private final int[] keyColumn;
+    private final int[] valueColumn;
+
+    /** The first pair of each key; {@code offsets[keyDict.length] == n}. */
+    private final int[] offsets;
+
+    /** The sum of the hashes of every pair in the relation. */
+    private final int hash;
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Parameter constructor of class ColumnarRelation.
+     *  The columns must already be sorted.
+     */
+    private ColumnarRelation(final Domain<A> dom, final Domain<B> ran,
+            final Object[] keyDict, final Object[] valueDict,
+            final int[] keyColumn, final int[] valueColumn) {
+        this.domainType  = dom;
+        this.rangeType   = ran;
+        this.keyDict     = keyDict;
+        this.valueDict   = valueDict;
+        this.keyIds      = index(keyDict);
+        this.valueIds    = index(valueDict);
+        this.keyColumn   = keyColumn;
+        this.valueColumn = valueColumn;
+        this.offsets     = new int[keyDict.length + 1];
+        int h = 0;
+        for (int i = 0; i < keyColumn.length; ++i) {
+            ++offsets[keyColumn[i] + 1];
+            h += pairHash(keyDict[keyColumn[i]], valueDict[valueColumn[i]]);
+        }
+        for (int k = 0; k < keyDict.length; ++k) {
+            offsets[k + 1] += offsets[k];
+        }
+        this.hash = h;
+    }
+
+
+    /**
+     * Returns a columnar relation with the pairs of the given relation,
+     * and the same domain and range types.
+     * Columnar relations are returned as they are.
+     * 
+     * @throws NullPointerException if the argument is {@code null}.
+     */
+    public static <A, B> ColumnarRelation<A, B> of(final Relation<A, B> r) {
+        checkNotNull(r);
+        if (r instanceof ColumnarRelation) {
+            return (ColumnarRelation<A, B>) r;
+        }
+        final Object[] keyDict = r.keys().toArray();
+        final Map<Object, Integer> valueIds = new HashMap<Object, Integer>();
+        final int n = r.size();
+        final int[] keyColumn = new int[n];
+        final int[] valueColumn = new int[n];
+        int i = 0;
+        for (int k = 0; k < keyDict.length; ++k) {
+            final int from = i;
+            for (final B b: r.valuesOf(keyDict[k])) {
+                Integer v = valueIds.get(b);
+                if (v == null) {
+                    v = valueIds.size();
+                    valueIds.put(b, v);
+                }
+                keyColumn[i] = k;
+                valueColumn[i++] = v;
+            }
+            Arrays.sort(valueColumn, from, i);
+        }
+        final Object[] valueDict = new Object[valueIds.size()];
+        for (final Map.Entry<Object, Integer> e: valueIds.entrySet()) {
+            valueDict[e.getValue()] = e.getKey();
+        }
+        return new ColumnarRelation<A, B>(r.getDomainType(),
+                r.getRangeType(), keyDict, valueDict, keyColumn, valueColumn);
+    }
+
+
+
+    /* ************************************************************************\
+     *  Getters
+    \* ************************************************************************/
+
+    @Override
+    public int size() {
+        return keyColumn.length;
+    }
+
+
+    @Override
+    public Set<A> keys() {
+        return new DictionarySet<A>(keyDict, keyIds);
+    }
+
+
+    /**
+     * Returns the keys related to the given value.
+     * This scans the value column, and returns a new set.
+     */
+    @Override
+    public Set<A> keysOf(final Object b) {
+        final Integer v = valueIds.get(b);
+        if (v == null) { return Collections.<A>emptySet(); }
+        final int[] ids = scan(v);
+        return new IdSet<A>(ids, 0, ids.length, keyDict, keyIds);
+    }
+
+
+    @Override
+    public A keyOf(final Object b) {
+        final Integer v = valueIds.get(b);
+        if (v == null) { return null; }
+        final int[] ids = scan(v);
+        return ids.length == 1 ? this.<A>key(ids[0]) : null;
+    }
+
+
+    @Override
+    public Set<A> keysFor(final Iterable<?> bs) {
+        return UnionSet.ofKeys(this, bs);
+    }
+
+
+
+    @Override
+    public Set<B> values() {
+        return new DictionarySet<B>(valueDict, valueIds);
+    }
+
+
+    /**
+     * Returns the values related to the given key.
+     * The set is a view of a range of the value column.
+     */
+    @Override
+    public Set<B> valuesOf(final Object a) {
+        final Integer k = keyIds.get(a);
+        if (k == null) { return Collections.<B>emptySet(); }
+        return new IdSet<B>(valueColumn, offsets[k], offsets[k + 1],
+                valueDict, valueIds);
+    }
+
+
+    @Override
+    public B valueOf(final Object a) {
+        final Integer k = keyIds.get(a);
+        if (k == null || offsets[k + 1] - offsets[k] > 1) { return null; }
+        return this.<B>value(valueColumn[offsets[k]]);
+    }
+
+
+    @Override
+    public Set<B> valuesFor(final Iterable<?> as) {
+        return UnionSet.ofValues(this, as);
+    }
+
+
+    @Override
+    public Domain<A> getDomainType() {
+        return domainType;
+    }
+
+    @Override
+    public Domain<B> getRangeType() {
+        return rangeType;
+    }
+
+
+    /**
+     * Returns an iterator over the pairs of this relation, in column order.
+     * The iterator does not support removal.
+     */
+    @Override
+    public Iterator<Pair<A, B>> iterator() {
+        return new ColumnIterator();
+    }
+
+
+
+    /* ************************************************************************\
+     *  Predicates
+    \* ************************************************************************/
+
+    @Override
+    public boolean isEmpty() {
+        return keyColumn.length == 0;
+    }
+
+    @Override
+    public boolean isSimple() {
+        return keyDict.length == keyColumn.length;
+    }
+
+    @Override
+    public boolean isInjective() {
+        return valueDict.length == valueColumn.length;
+    }
+
+    @Override
+    public boolean isEntire() {
+        return domainType.isEntire(keys());
+    }
+
+    @Override
+    public boolean isSurjective() {
+        return rangeType.isEntire(values());
+    }
+
+
+    @Override
+    public boolean contains(final Object a, final Object b) {
+        final Integer k = keyIds.get(a);
+        if (k == null) { return false; }
+        final Integer v = valueIds.get(b);
+        return v != null
+                && Arrays.binarySearch(valueColumn, offsets[k],
+                        offsets[k + 1], v) >= 0;
+    }
+
+
+    @Override
+    public boolean containsKey(final Object a) {
+        return keyIds.containsKey(a);
+    }
+
+
+    @Override
+    public boolean containsValue(final Object b) {
+        return valueIds.containsKey(b);
+    }
+
+
+
+    /* ************************************************************************\
+     *  Scans
+    \* ************************************************************************/
+
+    /**
+     * Counts the pairs whose key satisfies {@code p}
+     * and whose value satisfies {@code q}.
+     * Each predicate is tested once per distinct element.
+     * 
+     * @throws NullPointerException if any argument is {@code null}.
+     */
+    public long count(final Predicate<? super A> p,
+            final Predicate<? super B> q) {
+        checkNotNull(p);
+        checkNotNull(q);
+        final boolean[] keep = this.<A>mask(keyDict, p);
+        final boolean[] pass = this.<B>mask(valueDict, q);
+        long n = 0L;
+        for (int k = 0; k < keyDict.length; ++k) {
+            if (!keep[k]) { continue; }
+            for (int i = offsets[k], end = offsets[k + 1]; i < end; ++i) {
+                if (pass[valueColumn[i]]) { ++n; }
+            }
+        }
+        return n;
+    }
+
+
+    /**
+     * Returns a new columnar relation with the pairs whose key satisfies
+     * {@code p} and whose value satisfies {@code q}.
+     * Each predicate is tested once per distinct element.
+     * 
+     * @throws NullPointerException if any argument is {@code null}.
+     */
+    public ColumnarRelation<A, B> filter(final Predicate<? super A> p,
+            final Predicate<? super B> q) {
+        checkNotNull(p);
+        checkNotNull(q);
+        final boolean[] keep = this.<A>mask(keyDict, p);
+        final boolean[] pass = this.<B>mask(valueDict, q);
+        final int[] keyMap = new int[keyDict.length];
+        final int[] valueMap = new int[valueDict.length];
+        Arrays.fill(valueMap, -1);
+        final int[] ks = new int[keyColumn.length];
+        final int[] vs = new int[valueColumn.length];
+        int n = 0, keys = 0, values = 0;
+        for (int k = 0; k < keyDict.length; ++k) {
+            if (!keep[k]) { continue; }
+            final int from = n;
+            for (int i = offsets[k], end = offsets[k + 1]; i < end; ++i) {
+                final int v = valueColumn[i];
+                if (!pass[v]) { continue; }
+                if (valueMap[v] < 0) { valueMap[v] = values++; }
+                ks[n] = keys;
+                vs[n++] = valueMap[v];
+            }
+            if (n > from) {
+                keyMap[keys++] = k;
+                Arrays.sort(vs, from, n);
+            }
+        }
+        final Object[] kd = new Object[keys];
+        for (int k = 0; k < keys; ++k) { kd[k] = keyDict[keyMap[k]]; }
+        final Object[] vd = new Object[values];
+        for (int v = 0; v < valueDict.length; ++v) {
+            if (valueMap[v] >= 0) { vd[valueMap[v]] = valueDict[v]; }
+        }
+        return new ColumnarRelation<A, B>(domainType, rangeType, kd, vd,
+                Arrays.copyOf(ks, n), Arrays.copyOf(vs, n));
+    }
+
+
+
+    /* ************************************************************************\
+     *  Equals, HashCode & ToString
+    \* ************************************************************************/
+
+    /**
+     * Returns the hash code of this relation, as specified by
+     * {@code Relation.hashCode()}.
+     * The hash code is computed when the relation is built.
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+
+
+    /**************************************************************************\
+     *  Protected Methods
+    \**************************************************************************/
+
+    /** Returns {@code true}. */
+    @Override
+    protected boolean isHashCodeMaintained() {
+        return true;
+    }
+
+
+
+    /**************************************************************************\
+     *  Private Methods
+    \**************************************************************************/
+
+    /** Maps each element of a dictionary to its identifier. */
+    private static Map<Object, Integer> index(final Object[] dict) {
+        final Map<Object, Integer> ids =
+                new HashMap<Object, Integer>(dict.length * 4 / 3 + 1);
+        for (int i = 0; i < dict.length; ++i) { ids.put(dict[i], i); }
+        return ids;
+    }
+
+
+    /**
+     * Returns the key identifiers related to value {@code v}, in order.
+     * The first pass only counts, so that both passes are simple loops
+     * over the value column.
+     */
+    private int[] scan(final int v) {
+        final int[] vs = valueColumn;
+        int n = 0;
+        for (int i = 0; i < vs.length; ++i) {
+            if (vs[i] == v) { ++n; }
+        }
+        final int[] ids = new int[n];
+        for (int i = 0, j = 0; j < n; ++i) {
+            if (vs[i] == v) { ids[j++] = keyColumn[i]; }
+        }
+        return ids;
+    }
+
+
+    /** Tests a predicate once for every element of a dictionary. */
+    @SuppressWarnings("unchecked")
+    private <E> boolean[] mask(final Object[] dict,
+            final Predicate<? super E> p) {
+        final boolean[] mask = new boolean[dict.length];
+        for (int i = 0; i < dict.length; ++i) {
+            mask[i] = p.test((E) dict[i]);
+        }
+        return mask;
+    }
+
+
+    /** */
+    @SuppressWarnings("unchecked")
+    private <E> E key(final int k) {
+        return (E) keyDict[k];
+    }
+
+
+    /** */
+    @SuppressWarnings("unchecked")
+    private <E> E value(final int v) {
+        return (E) valueDict[v];
+    }
+
+
+
+    /**************************************************************************\
+     *  Nested Classes
+    \**************************************************************************/
+
+    /** An unmodifiable view of a whole dictionary. */
+    private static final class DictionarySet<E> extends AbstractSet<E> {
+        private final Object[] dict;
+        private final Map<Object, Integer> ids;
+
+        /** */
+        DictionarySet(final Object[] dict, final Map<Object, Integer> ids) {
+            this.dict = dict;
+            this.ids  = ids;
+        }
+
+        /** */
+        @Override
+        public int size() {
+            return dict.length;
+        }
+
+        /** */
+        @Override
+        public boolean contains(final Object o) {
+            return ids.containsKey(o);
+        }
+
+        /** */
+        @Override
+        @SuppressWarnings("unchecked")
+        public Iterator<E> iterator() {
+            return Collections.unmodifiableList(
+                    (List<E>) Arrays.asList(dict)).iterator();
+        }
+    }
+
+
+    /** */
+    private final class ColumnIterator implements Iterator<Pair<A, B>> {
+        private int i = 0;
+
+        /** */
+        @Override
+        public boolean hasNext() {
+            return i < keyColumn.length;
+        }
+
+        /** */
+        @Override
+        public Pair<A, B> next() {
+            if (i >= keyColumn.length) { throw new NoSuchElementException(); }
+            final A a = key(keyColumn[i]);
+            final B b = value(valueColumn[i++]);
+            return new Pair<A, B>(a, b);
+        }
+
+        /** */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
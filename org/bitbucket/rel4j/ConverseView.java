@@ -147,6 +147,25 @@ class ConverseView<B, A> extends AbstractView<B, A, A, B> {
      *  Predicates
     \*************************************************************************/
 
+    /** */
+    @Override
+    public final boolean contains(final Object b, final Object a) {
+        return original.contains(a, b);
+    }
+
+    /** */
+    @Override
+    public final boolean containsKey(final Object b) {
+        return original.containsValue(b);
+    }
+
+    /** */
+    @Override
+    public final boolean containsValue(final Object a) {
+        return original.containsKey(a);
+    }
+
+
     /** */
     @Override
     public final boolean isSimple() {
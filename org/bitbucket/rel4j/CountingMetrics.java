@@ -0,0 +1,203 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * A thread-safe {@code RelationMetrics} sink that counts operations
+ * and evictions, keeps histograms of the degrees of new pairs, and
+ * accumulates the durations of operators.
+ * 
+ * The histograms have a bucket per power of two: bucket {@code k}
+ * counts the degrees {@code d} with {@code 2^(k-1) <= d < 2^k}.
+ * A sink counts the operations of every relation it is given to;
+ * to find hot relations, give each relation of interest its own sink.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public final class CountingMetrics implements RelationMetrics {
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The number of histogram buckets. */
+    public static final int BUCKETS = 32;
+
+    /** The operation counters, by ordinal. */
+    private final LongAdder[] operations;
+
+    /** The degree histograms. */
+    private final AtomicLongArray fanOut = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray fanIn = new AtomicLongArray(BUCKETS);
+
+    /** The number of evicted pairs. */
+    private final LongAdder evictions = new LongAdder();
+
+    /** The number of runs and total duration of each operator. */
+    private final LongAdder[] runs;
+    private final LongAdder[] nanos;
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Empty constructor of class CountingMetrics.
+     */
+    public CountingMetrics() {
+        operations = adders(Operation.values().length);
+        runs = adders(Operator.values().length);
+        nanos = adders(Operator.values().length);
+    }
+
+
+
+    /**************************************************************************\
+     *  Sink Methods
+    \**************************************************************************/
+
+    @Override
+    public void operation(final Relation<?, ?> r, final Operation op) {
+        operations[op.ordinal()].increment();
+    }
+
+
+    @Override
+    public void degree(final Relation<?, ?> r,
+            final int fanOut, final int fanIn) {
+        this.fanOut.incrementAndGet(bucket(fanOut));
+        this.fanIn.incrementAndGet(bucket(fanIn));
+    }
+
+
+    @Override
+    public void evicted(final Relation<?, ?> r, final int pairs) {
+        evictions.add(pairs);
+    }
+
+
+    @Override
+    public void timed(final Operator op, final long nanos,
+            final int resultSize) {
+        runs[op.ordinal()].increment();
+        this.nanos[op.ordinal()].add(nanos);
+    }
+
+
+
+    /**************************************************************************\
+     *  Getters
+    \**************************************************************************/
+
+    /**
+     * Returns the number of times the given operation was performed.
+     */
+    public long count(final Operation op) {
+        return operations[op.ordinal()].sum();
+    }
+
+    /**
+     * Returns a snapshot of the histogram of the number of values
+     * of the key of each new pair.
+     */
+    public long[] fanOutHistogram() {
+        return snapshot(fanOut);
+    }
+
+    /**
+     * Returns a snapshot of the histogram of the number of keys
+     * of the value of each new pair.
+     */
+    public long[] fanInHistogram() {
+        return snapshot(fanIn);
+    }
+
+    /**
+     * Returns the number of pairs evicted by insertions.
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of times the given operator completed.
+     */
+    public long runs(final Operator op) {
+        return runs[op.ordinal()].sum();
+    }
+
+    /**
+     * Returns the total duration of the given operator, in nanoseconds.
+     */
+    public long nanos(final Operator op) {
+        return nanos[op.ordinal()].sum();
+    }
+
+
+
+    /**************************************************************************\
+     *  Static Methods
+    \**************************************************************************/
+
+    /**
+     * Returns the histogram bucket of the given degree.
+     */
+    public static int bucket(final int degree) {
+        return Math.min(BUCKETS - 1,
+                Integer.SIZE - Integer.numberOfLeadingZeros(degree));
+    }
+
+
+
+    /**************************************************************************\
+     *  Private Methods
+    \**************************************************************************/
+
+    /** */
+    private static LongAdder[] adders(final int n) {
+        final LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; ++i) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+
+    /** */
+    private static long[] snapshot(final AtomicLongArray histogram) {
+        final long[] counts = new long[histogram.length()];
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+}
@@ -23,13 +23,25 @@
 
 package org.bitbucket.rel4j;
 
+import static org.bitbucket.rel4j.Check.checkArgument;
+import static org.bitbucket.rel4j.Check.checkNoNulls;
 import static org.bitbucket.rel4j.Check.checkNotNull;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Represents a domain, an abstract set of elements of a given type.
  * 
+ * A domain whose enumerator is an {@code IndexedEnumerator} is a finite,
+ * indexed domain. Relations over indexed domains are able to answer
+ * {@code isEntire()} and {@code isSurjective()} in constant time.
+ * Indexed domains can be built with the {@code of} and {@code range}
+ * factories.
+ * 
  * @author Andre Santos
  * @version 0.1
  */
@@ -43,6 +55,9 @@ public final class Domain<T> {
     /** The enumerator that checks whether a set represents this domain. */
     private final DomainEnumerator<T> enumerator;
 
+    /** The same enumerator, if it is indexed, or {@code null}. */
+    private final IndexedEnumerator<T> indexed;
+
 
 
     /*************************************************************************\
@@ -54,6 +69,7 @@ public final class Domain<T> {
      */
     public Domain() {
         enumerator = new NullEnumerator<T>();
+        indexed = null;
     }
 
 
@@ -65,6 +81,44 @@ public final class Domain<T> {
     public Domain(final DomainEnumerator<T> enumerator) {
         checkNotNull(enumerator);
         this.enumerator = enumerator;
+        this.indexed = enumerator instanceof IndexedEnumerator
+            ? (IndexedEnumerator<T>) enumerator : null;
+    }
+
+
+    /**
+     * Returns a finite domain with the given elements.
+     * Elements are indexed by their iteration order, ignoring duplicates.
+     * 
+     * @throws NullPointerException if {@code elements} is, or contains,
+     * {@code null}.
+     */
+    public static <T> Domain<T> of(final Collection<? extends T> elements) {
+        return new Domain<T>(new SetEnumerator<T>(elements));
+    }
+
+
+    /**
+     * Returns a finite domain with all constants of the given enum type.
+     * Elements are indexed by their ordinal.
+     * 
+     * @throws NullPointerException if {@code type} is {@code null}.
+     */
+    public static <E extends Enum<E>> Domain<E> of(final Class<E> type) {
+        return new Domain<E>(new EnumEnumerator<E>(type));
+    }
+
+
+    /**
+     * Returns a finite domain with the integers from {@code from}
+     * (inclusive) to {@code to} (exclusive).
+     * The index of an element {@code i} is {@code i - from}.
+     * 
+     * @throws IllegalArgumentException if {@code from > to},
+     * or if the range has more than {@code Integer.MAX_VALUE} elements.
+     */
+    public static Domain<Integer> range(final int from, final int to) {
+        return new Domain<Integer>(new RangeEnumerator(from, to));
     }
 
 
@@ -81,11 +135,55 @@ public final class Domain<T> {
     }
 
 
+    /**
+     * Returns the cardinality of this domain.
+     * Domains that are not indexed are assumed to be countably infinite.
+     */
+    public Cardinal cardinality() {
+        if (indexed == null) { return Cardinal.ofNaturals(); }
+        return Cardinal.of(indexed.size());
+    }
+
+
+    /**
+     * Returns the index of the given element in this domain,
+     * or {@code -1} if it does not belong to the domain.
+     * Always returns {@code -1} if this domain is not indexed.
+     */
+    public int indexOf(final Object o) {
+        if (indexed == null || o == null) { return -1; }
+        return indexed.indexOf(o);
+    }
+
+
+    /**
+     * Returns the element of this domain with the given index.
+     * 
+     * @throws IndexOutOfBoundsException if the index is out of bounds,
+     * or if this domain is not indexed.
+     */
+    public T elementAt(final int index) {
+        if (indexed == null) {
+            throw new IndexOutOfBoundsException("domain is not indexed");
+        }
+        return indexed.elementAt(index);
+    }
+
+
 
     /*************************************************************************\
      *  Predicates
     \*************************************************************************/
 
+    /**
+     * Determines whether this domain is finite and indexed,
+     * that is, whether its enumerator is an {@code IndexedEnumerator}.
+     */
+    public boolean isIndexed() {
+        return indexed != null;
+    }
+
+
     /**
      * Checks whether the given set represents this domain.
      * 
@@ -194,4 +292,188 @@ public final class Domain<T> {
             return 17;
         }
     }
+
+
+    /**
+     * Base class of the built-in indexed enumerators.
+     * A set is entire if it contains as many elements of the domain
+     * as the domain itself.
+     */
+    private abstract static class AbstractIndexedEnumerator<T>
+            implements IndexedEnumerator<T> {
+        /** */
+        @Override
+        public final boolean isEntire(final Set<? extends T> set) {
+            checkNotNull(set);
+            final int size = this.size();
+            if (set.size() < size) { return false; }
+            int covered = 0;
+            for (final T t: set) {
+                if (t != null && this.indexOf(t) >= 0) { ++covered; }
+            }
+            return covered == size;
+        }
+    }
+
+
+    /**
+     * Enumerates an explicit set of elements.
+     */
+    private static final class SetEnumerator<T>
+            extends AbstractIndexedEnumerator<T> {
+        private final Object[] elements;
+        private final Map<Object, Integer> indices;
+
+        SetEnumerator(final Collection<? extends T> c) {
+            checkNoNulls(c);
+            indices = new HashMap<Object, Integer>(c.size() * 4 / 3 + 1);
+            final Object[] es = new Object[c.size()];
+            int n = 0;
+            for (final T t: c) {
+                if (!indices.containsKey(t)) {
+                    indices.put(t, Integer.valueOf(n));
+                    es[n++] = t;
+                }
+            }
+            elements = n == es.length ? es : Arrays.copyOf(es, n);
+        }
+
+        /** */
+        @Override
+        public int size() {
+            return elements.length;
+        }
+
+        /** */
+        @Override
+        public int indexOf(final Object o) {
+            final Integer i = indices.get(o);
+            return i == null ? -1 : i.intValue();
+        }
+
+        /** */
+        @Override
+        @SuppressWarnings("unchecked")
+        public T elementAt(final int index) {
+            return (T) elements[index];
+        }
+
+        /** */
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) { return true; }
+            if (!(o instanceof SetEnumerator)) { return false; }
+            final SetEnumerator<?> n = (SetEnumerator<?>) o;
+            return indices.keySet().equals(n.indices.keySet());
+        }
+
+        /** */
+        @Override
+        public int hashCode() {
+            return indices.keySet().hashCode();
+        }
+    }
+
+
+    /**
+     * Enumerates the constants of an enum type.
+     */
+    private static final class EnumEnumerator<E extends Enum<E>>
+            extends AbstractIndexedEnumerator<E> {
+        private final Class<E> type;
+        private final E[] constants;
+
+        EnumEnumerator(final Class<E> type) {
+            checkNotNull(type);
+            this.type = type;
+            this.constants = type.getEnumConstants();
+        }
+
+        /** */
+        @Override
+        public int size() {
+            return constants.length;
+        }
+
+        /** */
+        @Override
+        public int indexOf(final Object o) {
+            return type.isInstance(o) ? ((Enum<?>) o).ordinal() : -1;
+        }
+
+        /** */
+        @Override
+        public E elementAt(final int index) {
+            return constants[index];
+        }
+
+        /** */
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) { return true; }
+            if (!(o instanceof EnumEnumerator)) { return false; }
+            return type.equals(((EnumEnumerator<?>) o).type);
+        }
+
+        /** */
+        @Override
+        public int hashCode() {
+            return type.hashCode();
+        }
+    }
+
+
+    /**
+     * Enumerates a range of integers.
+     */
+    private static final class RangeEnumerator
+            extends AbstractIndexedEnumerator<Integer> {
+        private final int from;
+        private final int to;
+
+        RangeEnumerator(final int from, final int to) {
+            checkArgument("invalid range", from <= to
+                    && (long) to - from <= Integer.MAX_VALUE);
+            this.from = from;
+            this.to = to;
+        }
+
+        /** */
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        /** */
+        @Override
+        public int indexOf(final Object o) {
+            if (!(o instanceof Integer)) { return -1; }
+            final int i = ((Integer) o).intValue();
+            return i >= from && i < to ? i - from : -1;
+        }
+
+        /** */
+        @Override
+        public Integer elementAt(final int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+            return Integer.valueOf(from + index);
+        }
+
+        /** */
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) { return true; }
+            if (!(o instanceof RangeEnumerator)) { return false; }
+            final RangeEnumerator n = (RangeEnumerator) o;
+            return from == n.from && to == n.to;
+        }
+
+        /** */
+        @Override
+        public int hashCode() {
+            return 31 * from + to;
+        }
+    }
 }
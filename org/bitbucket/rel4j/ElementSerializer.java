@@ -0,0 +1,55 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Represents an object that writes and reads the elements of a
+ * relation's domain or range, for {@code RelationCodec}.
+ * Each element is written once, in the dictionary of keys or values,
+ * so the encoding of an element does not have to be compact.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public interface ElementSerializer<T> {
+    /**
+     * Writes the given (non-null) element to the output.
+     * 
+     * @throws IOException if the output does.
+     */
+    void write(DataOutput out, T element) throws IOException;
+
+    /**
+     * Reads an element, as written by {@code write(DataOutput, Object)},
+     * from the input.
+     * 
+     * @throws IOException if the input does, or if it is malformed.
+     */
+    T read(DataInput in) throws IOException;
+}
@@ -0,0 +1,617 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.bitbucket.rel4j;
+
+import static org.bitbucket.rel4j.Check.checkNotNull;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+
+/**
+ * GeneratedView
+ * 
+ * Base class of the relations whose pairs are generated on the fly from
+ * a few inputs (sets, functions or predicates), instead of being stored.
+ * Subclasses must provide {@code keys()} and {@code valuesOf(Object)};
+ * every other method has a default implementation in terms of those two,
+ * which subclasses override whenever they can do better.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+abstract class GeneratedView<A, B> extends AbstractRelation<A, B> {
+
+    /*************************************************************************\
+     *  Attributes
+    \*************************************************************************/
+
+    private final Domain<A> domainType = new Domain<A>();
+    private final Domain<B> rangeType = new Domain<B>();
+
+
+
+    /*************************************************************************\
+     *  Getters
+    \*************************************************************************/
+
+    /** Returns a view of the converse of this relation. */
+    abstract Relation<B, A> converse();
+
+    /**
+     * Returns an equal view over copies of the generating sets,
+     * which later changes to those sets do not affect.
+     */
+    abstract GeneratedView<A, B> snapshot();
+
+
+    /** */
+    @Override
+    public Domain<A> getDomainType() {
+        return domainType;
+    }
+
+    /** */
+    @Override
+    public Domain<B> getRangeType() {
+        return rangeType;
+    }
+
+
+    /** */
+    @Override
+    public int size() {
+        int size = 0;
+        for (final A a: this.keys()) {
+            size += this.valuesOf(a).size();
+        }
+        return size;
+    }
+
+
+    /** */
+    @Override
+    public Set<A> keysOf(final Object b) {
+        final Set<A> set = Sets.<A>empty();
+        if (b == null) { return set; }
+        for (final A a: this.keys()) {
+            if (this.contains(a, b)) { set.add(a); }
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    /** */
+    @Override
+    public A keyOf(final Object b) {
+        final Set<A> as = this.keysOf(b);
+        return as.size() == 1 ? as.iterator().next() : null;
+    }
+
+    /** */
+    @Override
+    public Set<A> keysFor(final Iterable<?> bs) {
+        final Set<A> set = Sets.<A>empty();
+        if (bs == null) { return set; }
+        for (final Object b: bs) {
+            set.addAll(this.keysOf(b));
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+
+    /** */
+    @Override
+    public Set<B> values() {
+        final Set<B> set = Sets.<B>empty();
+        for (final A a: this.keys()) {
+            set.addAll(this.valuesOf(a));
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    /** */
+    @Override
+    public B valueOf(final Object a) {
+        final Set<B> bs = this.valuesOf(a);
+        return bs.size() == 1 ? bs.iterator().next() : null;
+    }
+
+    /** */
+    @Override
+    public Set<B> valuesFor(final Iterable<?> as) {
+        final Set<B> set = Sets.<B>empty();
+        if (as == null) { return set; }
+        for (final Object a: as) {
+            set.addAll(this.valuesOf(a));
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+
+    /** */
+    @Override
+    public Iterator<Pair<A, B>> iterator() {
+        return new GeneratedIterator();
+    }
+
+
+
+    /*************************************************************************\
+     *  Predicates
+    \*************************************************************************/
+
+    /** */
+    @Override
+    public boolean isEmpty() {
+        return this.keys().isEmpty();
+    }
+
+
+    /** */
+    @Override
+    public boolean isSimple() {
+        for (final A a: this.keys()) {
+            if (this.valuesOf(a).size() > 1) { return false; }
+        }
+        return true;
+    }
+
+    /** */
+    @Override
+    public boolean isInjective() {
+        return this.size() == this.values().size();
+    }
+
+    /** */
+    @Override
+    public boolean isEntire() {
+        return domainType.isEntire(this.keys());
+    }
+
+    /** */
+    @Override
+    public boolean isSurjective() {
+        return rangeType.isEntire(this.values());
+    }
+
+
+
+    /*************************************************************************\
+     *  Nested Classes
+    \*************************************************************************/
+
+    /** */
+    private final class GeneratedIterator implements Iterator<Pair<A, B>> {
+        private final Iterator<A> keys = keys().iterator();
+        private A currentKey;
+        private Iterator<B> values = Collections.<B>emptySet().iterator();
+
+        @Override
+        public boolean hasNext() {
+            while (!values.hasNext()) {
+                if (!keys.hasNext()) { return false; }
+                currentKey = keys.next();
+                values = valuesOf(currentKey).iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Pair<A, B> next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            return new Pair<A, B>(currentKey, values.next());
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Immutable Iterator");
+        }
+    }
+
+
+    /**
+     * The relation holding all possible arrows between two sets.
+     */
+    static final class Top<A, B> extends GeneratedView<A, B> {
+        final Set<A> as;
+        final Set<B> bs;
+
+        /** */
+        Top(final Set<A> as, final Set<B> bs) {
+            assert as != null && bs != null;
+            this.as = Collections.unmodifiableSet(as);
+            this.bs = Collections.unmodifiableSet(bs);
+        }
+
+        @Override
+        Relation<B, A> converse() {
+            return new Top<B, A>(bs, as);
+        }
+
+        @Override
+        GeneratedView<A, B> snapshot() {
+            return new Top<A, B>(Sets.copy(as), Sets.copy(bs));
+        }
+
+        @Override
+        public int size() {
+            final long size = (long) as.size() * bs.size();
+            return size > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) size;
+        }
+
+        @Override
+        public Set<A> keys() {
+            return bs.isEmpty() ? Collections.<A>emptySet() : as;
+        }
+
+        @Override
+        public Set<A> keysOf(final Object b) {
+            return bs.contains(b) ? as : Collections.<A>emptySet();
+        }
+
+        @Override
+        public Set<A> keysFor(final Iterable<?> bs) {
+            if (bs != null) {
+                for (final Object b: bs) {
+                    if (this.bs.contains(b)) { return as; }
+                }
+            }
+            return Collections.<A>emptySet();
+        }
+
+        @Override
+        public Set<B> values() {
+            return as.isEmpty() ? Collections.<B>emptySet() : bs;
+        }
+
+        @Override
+        public Set<B> valuesOf(final Object a) {
+            return as.contains(a) ? bs : Collections.<B>emptySet();
+        }
+
+        @Override
+        public Set<B> valuesFor(final Iterable<?> as) {
+            if (as != null) {
+                for (final Object a: as) {
+                    if (this.as.contains(a)) { return bs; }
+                }
+            }
+            return Collections.<B>emptySet();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return as.isEmpty() || bs.isEmpty();
+        }
+
+        @Override
+        public boolean contains(final Object a, final Object b) {
+            return as.contains(a) && bs.contains(b);
+        }
+
+        @Override
+        public boolean containsKey(final Object a) {
+            return !bs.isEmpty() && as.contains(a);
+        }
+
+        @Override
+        public boolean containsValue(final Object b) {
+            return !as.isEmpty() && bs.contains(b);
+        }
+
+        @Override
+        public boolean isSimple() {
+            return as.isEmpty() || bs.size() <= 1;
+        }
+
+        @Override
+        public boolean isInjective() {
+            return bs.isEmpty() || as.size() <= 1;
+        }
+    }
+
+
+    /**
+     * The relation holding all arrows from the elements of a set
+     * to themselves.
+     */
+    static final class Identity<A> extends GeneratedView<A, A> {
+        final Set<A> as;
+
+        /** */
+        Identity(final Set<A> as) {
+            assert as != null;
+            this.as = Collections.unmodifiableSet(as);
+        }
+
+        @Override
+        Relation<A, A> converse() {
+            return this;
+        }
+
+        @Override
+        GeneratedView<A, A> snapshot() {
+            return new Identity<A>(Sets.copy(as));
+        }
+
+        @Override
+        public int size() {
+            return as.size();
+        }
+
+        @Override
+        public Set<A> keys() {
+            return as;
+        }
+
+        @Override
+        public Set<A> keysOf(final Object b) {
+            return valuesOf(b);
+        }
+
+        @Override
+        public A keyOf(final Object b) {
+            return valueOf(b);
+        }
+
+        @Override
+        public Set<A> keysFor(final Iterable<?> bs) {
+            return valuesFor(bs);
+        }
+
+        @Override
+        public Set<A> values() {
+            return as;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Set<A> valuesOf(final Object a) {
+            if (!as.contains(a)) { return Collections.<A>emptySet(); }
+            return Sets.cappedSingleton((A) a);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public A valueOf(final Object a) {
+            return as.contains(a) ? (A) a : null;
+        }
+
+        @Override
+        public Set<A> valuesFor(final Iterable<?> as) {
+            final Set<A> set = Sets.<A>empty();
+            if (as == null) { return set; }
+            for (final Object a: as) {
+                final A value = valueOf(a);
+                if (value != null) { set.add(value); }
+            }
+            return Collections.unmodifiableSet(set);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return as.isEmpty();
+        }
+
+        @Override
+        public boolean contains(final Object a, final Object b) {
+            return a != null && a.equals(b) && as.contains(a);
+        }
+
+        @Override
+        public boolean containsKey(final Object a) {
+            return as.contains(a);
+        }
+
+        @Override
+        public boolean containsValue(final Object b) {
+            return as.contains(b);
+        }
+
+        @Override
+        public boolean isSimple() {
+            return true;
+        }
+
+        @Override
+        public boolean isInjective() {
+            return true;
+        }
+    }
+
+
+    /**
+     * The relation holding an arrow from each element {@code a} of a set
+     * to {@code f(a)}, for some function {@code f}.
+     * The function must return a non-null value for every element
+     * of the set, and should be free of side effects.
+     */
+    static final class FunctionBacked<A, B> extends GeneratedView<A, B> {
+        final Set<A> as;
+        final Function<? super A, ? extends B> f;
+
+        /** */
+        FunctionBacked(final Set<A> as,
+                final Function<? super A, ? extends B> f) {
+            assert as != null;
+            checkNotNull(f);
+            this.as = Collections.unmodifiableSet(as);
+            this.f = f;
+        }
+
+        @Override
+        Relation<B, A> converse() {
+            return new ConverseView<B, A>(this);
+        }
+
+        @Override
+        GeneratedView<A, B> snapshot() {
+            return new FunctionBacked<A, B>(Sets.copy(as), f);
+        }
+
+        @Override
+        public int size() {
+            return as.size();
+        }
+
+        @Override
+        public Set<A> keys() {
+            return as;
+        }
+
+        @Override
+        public Set<B> valuesOf(final Object a) {
+            return Sets.<B>cappedSingleton(valueOf(a));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public B valueOf(final Object a) {
+            return as.contains(a) ? f.apply((A) a) : null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return as.isEmpty();
+        }
+
+        @Override
+        public boolean contains(final Object a, final Object b) {
+            return b != null && b.equals(valueOf(a));
+        }
+
+        @Override
+        public boolean containsKey(final Object a) {
+            return as.contains(a);
+        }
+
+        /** Scans the set for an element mapped to {@code b}. */
+        @Override
+        public boolean containsValue(final Object b) {
+            if (b == null) { return false; }
+            for (final A a: as) {
+                if (b.equals(f.apply(a))) { return true; }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isSimple() {
+            return true;
+        }
+    }
+
+
+    /**
+     * The relation holding an arrow from each element {@code a} of a set
+     * to each element {@code b} of another set, such that {@code p(a, b)},
+     * for some predicate {@code p}.
+     * The predicate should be free of side effects.
+     */
+    static final class PredicateBacked<A, B> extends GeneratedView<A, B> {
+        final Set<A> as;
+        final Set<B> bs;
+        final BiPredicate<? super A, ? super B> p;
+
+        /** */
+        PredicateBacked(final Set<A> as, final Set<B> bs,
+                final BiPredicate<? super A, ? super B> p) {
+            assert as != null && bs != null;
+            checkNotNull(p);
+            this.as = Collections.unmodifiableSet(as);
+            this.bs = Collections.unmodifiableSet(bs);
+            this.p = p;
+        }
+
+        @Override
+        Relation<B, A> converse() {
+            return new ConverseView<B, A>(this);
+        }
+
+        @Override
+        GeneratedView<A, B> snapshot() {
+            return new PredicateBacked<A, B>(Sets.copy(as), Sets.copy(bs),
+                    p);
+        }
+
+        @Override
+        public Set<A> keys() {
+            final Set<A> set = Sets.<A>empty();
+            for (final A a: as) {
+                for (final B b: bs) {
+                    if (p.test(a, b)) {
+                        set.add(a);
+                        break;
+                    }
+                }
+            }
+            return Collections.unmodifiableSet(set);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Set<B> valuesOf(final Object a) {
+            final Set<B> set = Sets.<B>empty();
+            if (!as.contains(a)) { return set; }
+            for (final B b: bs) {
+                if (p.test((A) a, b)) { set.add(b); }
+            }
+            return Collections.unmodifiableSet(set);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Set<A> keysOf(final Object b) {
+            final Set<A> set = Sets.<A>empty();
+            if (!bs.contains(b)) { return set; }
+            for (final A a: as) {
+                if (p.test(a, (B) b)) { set.add(a); }
+            }
+            return Collections.unmodifiableSet(set);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean contains(final Object a, final Object b) {
+            return as.contains(a) && bs.contains(b)
+                && p.test((A) a, (B) b);
+        }
+
+        @Override
+        public boolean containsKey(final Object a) {
+            return !valuesOf(a).isEmpty();
+        }
+
+        @Override
+        public boolean containsValue(final Object b) {
+            return !keysOf(b).isEmpty();
+        }
+    }
+}
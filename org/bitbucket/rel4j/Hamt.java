@@ -0,0 +1,495 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * A persistent hash map, implemented as a hash array mapped trie.
+ * Updates return new maps that share every untouched node with the
+ * original, copying only the {@code O(log n)} nodes on the path to
+ * the changed entry. Neither keys nor values may be {@code null}.
+ * 
+ * The map is also the (immutable) set of its keys, so that it can be
+ * returned as is by {@code PersistentRelation.keys()} and
+ * {@code PersistentRelation.valuesOf(Object)}.
+ * 
+ * Each node holds a 32-bit bitmap of its occupied slots and a compact
+ * array with a key-value pair per slot; a {@code null} key marks a slot
+ * whose value is a child node. Keys with the same hash are kept in a
+ * collision node, below the last level.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+final class Hamt<K, V> extends AbstractSet<K> {
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The number of hash bits consumed by each level of the trie. */
+    private static final int BITS = 5;
+
+    /** The mask of the hash bits of a level. */
+    private static final int MASK = (1 << BITS) - 1;
+
+    /** The maximum number of nodes on a path, collision node included. */
+    private static final int MAX_DEPTH = 8;
+
+    /** The empty map. */
+    @SuppressWarnings("rawtypes")
+    private static final Hamt EMPTY = new Hamt(null, 0);
+
+    /** The root node, or {@code null} if the map is empty. */
+    private final Node root;
+
+    /** The number of entries. */
+    private final int size;
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Parameter constructor of class Hamt.
+     */
+    private Hamt(final Node root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+
+    /**
+     * Returns the empty map.
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> Hamt<K, V> empty() {
+        return (Hamt<K, V>) EMPTY;
+    }
+
+
+
+    /**************************************************************************\
+     *  Getters
+    \**************************************************************************/
+
+    /** Returns the number of entries. */
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Returns the value of the given key, or {@code null} if it is absent.
+     */
+    @SuppressWarnings("unchecked")
+    V get(final Object key) {
+        if (root == null || key == null) { return null; }
+        return (V) root.find(0, spread(key.hashCode()), key);
+    }
+
+
+    /**
+     * Returns an iterator over the keys of this map.
+     * The iterator does not support removal.
+     */
+    @Override
+    public Iterator<K> iterator() {
+        final Cursor<K, V> cursor = new Cursor<K, V>(this);
+        return new Iterator<K>() {
+            private boolean ready;
+
+            @Override
+            public boolean hasNext() {
+                if (!ready) { ready = cursor.advance(); }
+                return ready;
+            }
+
+            @Override
+            public K next() {
+                if (!hasNext()) { throw new NoSuchElementException(); }
+                ready = false;
+                return cursor.key();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+
+
+    /**************************************************************************\
+     *  Predicates
+    \**************************************************************************/
+
+    /** */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Determines whether the given key is present in this map. */
+    @Override
+    public boolean contains(final Object key) {
+        return get(key) != null;
+    }
+
+
+
+    /**************************************************************************\
+     *  Persistent Updates
+    \**************************************************************************/
+
+    /**
+     * Returns a map with the given entry, replacing the previous value
+     * of the key, if any. Returns this map if the key already maps to
+     * the very same value.
+     */
+    Hamt<K, V> with(final K key, final V value) {
+        assert key != null && value != null;
+        final boolean[] added = new boolean[1];
+        final Node node = (root == null ? BitmapNode.EMPTY : root)
+                .assoc(0, spread(key.hashCode()), key, value, added);
+        if (node == root) { return this; }
+        return new Hamt<K, V>(node, added[0] ? size + 1 : size);
+    }
+
+
+    /**
+     * Returns a map without the given key.
+     * Returns this map if the key is absent.
+     */
+    Hamt<K, V> without(final Object key) {
+        if (root == null || key == null) { return this; }
+        final Node node = root.dissoc(0, spread(key.hashCode()), key);
+        if (node == root) { return this; }
+        if (node == null) { return empty(); }
+        return new Hamt<K, V>(node, size - 1);
+    }
+
+
+
+    /**************************************************************************\
+     *  Private Methods
+    \**************************************************************************/
+
+    /**
+     * Mixes the bits of a hash code, since each level of the trie
+     * only looks at five of them.
+     */
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+
+    /** Returns the slot bit of the given hash at the given level. */
+    private static int bit(final int hash, final int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+
+    /** Returns a copy of the array, with the given slot replaced. */
+    private static Object[] set(final Object[] array, final int i,
+            final Object o) {
+        final Object[] copy = array.clone();
+        copy[i] = o;
+        return copy;
+    }
+
+
+    /** Returns a copy of the array, with a pair inserted at {@code i}. */
+    private static Object[] insertPair(final Object[] array, final int i,
+            final Object key, final Object value) {
+        final Object[] copy = new Object[array.length + 2];
+        System.arraycopy(array, 0, copy, 0, i);
+        copy[i] = key;
+        copy[i + 1] = value;
+        System.arraycopy(array, i, copy, i + 2, array.length - i);
+        return copy;
+    }
+
+
+    /** Returns a copy of the array, without the pair at {@code i}. */
+    private static Object[] removePair(final Object[] array, final int i) {
+        final Object[] copy = new Object[array.length - 2];
+        System.arraycopy(array, 0, copy, 0, i);
+        System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+        return copy;
+    }
+
+
+    /** Creates the node holding two entries with distinct keys. */
+    private static Node pair(final int shift, final Object k1,
+            final Object v1, final int h2, final Object k2, final Object v2) {
+        final int h1 = spread(k1.hashCode());
+        if (h1 == h2) {
+            return new CollisionNode(h1, new Object[] { k1, v1, k2, v2 });
+        }
+        final boolean[] added = new boolean[1];
+        return BitmapNode.EMPTY
+                .assoc(shift, h1, k1, v1, added)
+                .assoc(shift, h2, k2, v2, added);
+    }
+
+
+
+    /**************************************************************************\
+     *  Nested Classes
+    \**************************************************************************/
+
+    /** A node of the trie, with its key-value pairs in a flat array. */
+    private abstract static class Node {
+        final Object[] array;
+
+        /** */
+        Node(final Object[] array) {
+            this.array = array;
+        }
+
+        /** Returns the value of the key, or {@code null}. */
+        abstract Object find(int shift, int hash, Object key);
+
+        /**
+         * Returns the node with the given entry, or this node if
+         * unchanged. Sets {@code added[0]} if the key is new.
+         */
+        abstract Node assoc(int shift, int hash, Object key, Object value,
+                boolean[] added);
+
+        /**
+         * Returns the node without the given key, this node if unchanged,
+         * or {@code null} if the node became empty.
+         */
+        abstract Node dissoc(int shift, int hash, Object key);
+    }
+
+
+    /** An inner node, indexed by five bits of the hash. */
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+
+        /** */
+        BitmapNode(final int bitmap, final Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        /** Returns the array index of the pair of the given slot bit. */
+        private int index(final int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        /** */
+        @Override
+        Object find(final int shift, final int hash, final Object key) {
+            final int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) { return null; }
+            final int i = index(bit);
+            final Object k = array[i];
+            if (k == null) {
+                return ((Node) array[i + 1]).find(shift + BITS, hash, key);
+            }
+            return key.equals(k) ? array[i + 1] : null;
+        }
+
+        /** */
+        @Override
+        Node assoc(final int shift, final int hash, final Object key,
+                final Object value, final boolean[] added) {
+            final int bit = bit(hash, shift);
+            final int i = index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                return new BitmapNode(bitmap | bit,
+                        insertPair(array, i, key, value));
+            }
+            final Object k = array[i];
+            final Object v = array[i + 1];
+            if (k == null) {
+                final Node child = ((Node) v)
+                        .assoc(shift + BITS, hash, key, value, added);
+                if (child == v) { return this; }
+                return new BitmapNode(bitmap, set(array, i + 1, child));
+            }
+            if (key.equals(k)) {
+                if (value == v) { return this; }
+                return new BitmapNode(bitmap, set(array, i + 1, value));
+            }
+            added[0] = true;
+            final Object[] copy = set(array, i, null);
+            copy[i + 1] = pair(shift + BITS, k, v, hash, key, value);
+            return new BitmapNode(bitmap, copy);
+        }
+
+        /** */
+        @Override
+        Node dissoc(final int shift, final int hash, final Object key) {
+            final int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) { return this; }
+            final int i = index(bit);
+            final Object k = array[i];
+            if (k == null) {
+                final Node child = ((Node) array[i + 1])
+                        .dissoc(shift + BITS, hash, key);
+                if (child == array[i + 1]) { return this; }
+                if (child != null) {
+                    return new BitmapNode(bitmap, set(array, i + 1, child));
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            }
+            if (bitmap == bit) { return null; }
+            return new BitmapNode(bitmap ^ bit, removePair(array, i));
+        }
+    }
+
+
+    /** A leaf holding several keys with the same (full) hash. */
+    private static final class CollisionNode extends Node {
+        private final int hash;
+
+        /** */
+        CollisionNode(final int hash, final Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        /** Returns the array index of the given key, or {@code -1}. */
+        private int index(final Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) { return i; }
+            }
+            return -1;
+        }
+
+        /** */
+        @Override
+        Object find(final int shift, final int hash, final Object key) {
+            final int i = index(key);
+            return i < 0 ? null : array[i + 1];
+        }
+
+        /** */
+        @Override
+        Node assoc(final int shift, final int hash, final Object key,
+                final Object value, final boolean[] added) {
+            if (hash != this.hash) {
+                return new BitmapNode(bit(this.hash, shift),
+                        new Object[] { null, this })
+                        .assoc(shift, hash, key, value, added);
+            }
+            final int i = index(key);
+            if (i < 0) {
+                added[0] = true;
+                return new CollisionNode(hash,
+                        insertPair(array, array.length, key, value));
+            }
+            if (array[i + 1] == value) { return this; }
+            return new CollisionNode(hash, set(array, i + 1, value));
+        }
+
+        /** */
+        @Override
+        Node dissoc(final int shift, final int hash, final Object key) {
+            final int i = index(key);
+            if (i < 0) { return this; }
+            if (array.length == 2) { return null; }
+            return new CollisionNode(hash, removePair(array, i));
+        }
+    }
+
+
+    /**
+     * Walks the entries of a map, depth first, with an explicit stack
+     * of node arrays.
+     */
+    static final class Cursor<K, V> {
+        private final Object[][] arrays = new Object[MAX_DEPTH][];
+        private final int[] positions = new int[MAX_DEPTH];
+        private int depth = -1;
+        private Object key;
+        private Object value;
+
+        /** */
+        Cursor(final Hamt<K, V> map) {
+            if (map.root != null) {
+                arrays[++depth] = map.root.array;
+            }
+        }
+
+        /**
+         * Moves to the next entry.
+         * Returns {@code false} if there are no more entries.
+         */
+        boolean advance() {
+            while (depth >= 0) {
+                final Object[] array = arrays[depth];
+                final int i = positions[depth];
+                if (i >= array.length) {
+                    --depth;
+                    continue;
+                }
+                positions[depth] = i + 2;
+                if (array[i] == null) {
+                    arrays[++depth] = ((Node) array[i + 1]).array;
+                    positions[depth] = 0;
+                } else {
+                    key = array[i];
+                    value = array[i + 1];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Returns the key of the current entry. */
+        @SuppressWarnings("unchecked")
+        K key() {
+            return (K) key;
+        }
+
+        /** Returns the value of the current entry. */
+        @SuppressWarnings("unchecked")
+        V value() {
+            return (V) value;
+        }
+    }
+}
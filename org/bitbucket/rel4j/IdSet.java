@@ -0,0 +1,163 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * An unmodifiable set of dictionary-encoded elements, backed by a sorted
+ * range of distinct identifiers.
+ * Two such sets over the same dictionary can be combined by the sorted
+ * array kernels of {@code Sets}, without hashing their elements.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+final class IdSet<E> extends AbstractSet<E> {
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The identifiers, sorted in {@code column[from, to)}. */
+    final int[] column;
+    final int from;
+    final int to;
+
+    /** The dictionary, from identifier to element and back. */
+    final Object[] dict;
+    final Map<Object, Integer> ids;
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Parameter constructor of class IdSet.
+     */
+    IdSet(final int[] column, final int from, final int to,
+            final Object[] dict, final Map<Object, Integer> ids) {
+        this.column = column;
+        this.from   = from;
+        this.to     = to;
+        this.dict   = dict;
+        this.ids    = ids;
+    }
+
+
+    /**
+     * Returns {@code s1} as an identifier set if both arguments are
+     * identifier sets over the same dictionary, or {@code null} otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    static <E> IdSet<E> compatible(final Set<E> s1, final Set<?> s2) {
+        if (s1 instanceof IdSet && s2 instanceof IdSet
+                && ((IdSet<?>) s1).dict == ((IdSet<?>) s2).dict) {
+            return (IdSet<E>) s1;
+        }
+        return null;
+    }
+
+
+
+    /**************************************************************************\
+     *  Public Methods
+    \**************************************************************************/
+
+    /** */
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+
+    /** Looks the identifier up, and searches the range for it. */
+    @Override
+    public boolean contains(final Object o) {
+        final Integer id = ids.get(o);
+        return id != null && Arrays.binarySearch(column, from, to, id) >= 0;
+    }
+
+
+    /** */
+    @Override
+    public Iterator<E> iterator() {
+        return new IdIterator();
+    }
+
+
+
+    /**************************************************************************\
+     *  Package-private Methods
+    \**************************************************************************/
+
+    /** Decodes a sorted array of identifiers into a new, mutable set. */
+    @SuppressWarnings("unchecked")
+    Set<E> elements(final int[] sorted) {
+        final Set<E> set = new HashSet<E>(sorted.length * 4 / 3 + 1);
+        for (final int id: sorted) { set.add((E) dict[id]); }
+        return set;
+    }
+
+
+
+    /**************************************************************************\
+     *  Nested Classes
+    \**************************************************************************/
+
+    /** */
+    private final class IdIterator implements Iterator<E> {
+        private int i = from;
+
+        /** */
+        @Override
+        public boolean hasNext() {
+            return i < to;
+        }
+
+        /** */
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (i >= to) { throw new NoSuchElementException(); }
+            return (E) dict[column[i++]];
+        }
+
+        /** */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -89,6 +89,18 @@ final class ImmutableView<A, B> extends AbstractView<A, B, A, B> {
     }
 
 
+    /**
+     * Returns an estimate of the memory used by this view,
+     * and by the copy it wraps.
+     */
+    MemoryStats memoryFootprint() {
+        return new MemoryStats.Builder()
+            .add(MemoryStats.Category.RELATION, MemoryStats.object(1, 6))
+            .add(MemoryStats.of(original))
+            .build();
+    }
+
+
     /** */
     @Override
     public Domain<A> getDomainType() {
@@ -212,6 +224,25 @@ final class ImmutableView<A, B> extends AbstractView<A, B, A, B> {
 
 
 
+    /**************************************************************************\
+     *  Equals, HashCode & ToString
+    \**************************************************************************/
+
+    /** */
+    @Override
+    public int hashCode() {
+        return original.hashCode();
+    }
+
+    /** */
+    @Override
+    protected boolean isHashCodeMaintained() {
+        return original instanceof AbstractRelation
+            && ((AbstractRelation<?, ?>) original).isHashCodeMaintained();
+    }
+
+
+
     /**************************************************************************\
      *  Nested Classes
     \**************************************************************************/
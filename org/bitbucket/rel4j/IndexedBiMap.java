@@ -0,0 +1,734 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.bitbucket.rel4j;
+
+import static org.bitbucket.rel4j.Check.checkArgument;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.bitbucket.rel4j.MemoryStats.Category;
+
+
+/**
+ * Provides an implementation of a standard mutable binary relation,
+ * based on dense index-mapped arrays.
+ * Both the domain and the range types of this relation must be indexed
+ * (see {@code Domain.isIndexed()}), and every key (resp. value) must
+ * belong to the domain (resp. range) type.
+ * 
+ * Each element of the domain has a slot in an array, holding the indices
+ * of its values, and vice-versa. Lookups translate elements into indices
+ * once, and never call {@code hashCode()} or {@code equals(Object)}
+ * on the stored elements. The per-element overhead is an array slot and
+ * a degree counter, instead of a hash table entry and a hash set.
+ * 
+ * Rows are kept sorted. Membership tests binary search the shorter of
+ * the two rows of a pair, in logarithmic time in its degree. Insertions
+ * and removals of single pairs also shift the tail of both rows, which
+ * is linear in their degrees, but a single array copy.
+ * 
+ * This implementation handles non-determinism, and it does not accept
+ * {@code null} keys or values.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public final class IndexedBiMap<A, B> extends AbstractMutableRelation<A, B> {
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The initial capacity of a row. */
+    private static final int ROW_CAPACITY = 2;
+
+    /** The value indices of each key index, and their number. */
+    private final int[][] keyValue;
+    private final int[] keyDegree;
+
+    /** The key indices of each value index, and their number. */
+    private final int[][] valueKey;
+    private final int[] valueDegree;
+
+    /** The set views of the domain and range. */
+    private final Set<A> keySet;
+    private final Set<B> valueSet;
+
+    /** The number of key-value entries. */
+    private transient int size;
+
+    /** The number of keys present in the relation. */
+    private transient int keyCount;
+
+    /** The number of values present in the relation. */
+    private transient int valueCount;
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Parameter constructor of class IndexedBiMap.
+     *  
+     *  @throws IllegalArgumentException if either domain is not indexed.
+     */
+    public IndexedBiMap(final Domain<A> dom, final Domain<B> ran) {
+        super(dom, ran);
+        checkArgument("domain type is not indexed", dom.isIndexed());
+        checkArgument("range type is not indexed", ran.isIndexed());
+        final int n = dom.cardinality().value();
+        final int m = ran.cardinality().value();
+        keyValue    = new int[n][];
+        keyDegree   = new int[n];
+        valueKey    = new int[m][];
+        valueDegree = new int[m];
+        keySet      = new IndexSet<A>(dom, keyDegree, true);
+        valueSet    = new IndexSet<B>(ran, valueDegree, false);
+    }
+
+
+
+    /* ************************************************************************\
+     *  Getters
+    \* ************************************************************************/
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    @Override
+    public Set<A> keys() {
+        return keySet;
+    }
+
+
+    @Override
+    public Set<A> keysOf(final Object b) {
+        final int j = rangeType.indexOf(b);
+        if (j < 0 || valueDegree[j] == 0) { return Collections.emptySet(); }
+        return new RowSet<A>(domainType, valueKey, valueDegree, j);
+    }
+
+
+    @Override
+    public A keyOf(final Object b) {
+        final int j = rangeType.indexOf(b);
+        if (j < 0 || valueDegree[j] != 1) { return null; }
+        return domainType.elementAt(valueKey[j][0]);
+    }
+
+
+    @Override
+    public Set<A> keysFor(final Iterable<?> bs) {
+        return UnionSet.ofKeys(this, bs);
+    }
+
+
+
+    @Override
+    public Set<B> values() {
+        return valueSet;
+    }
+
+
+    @Override
+    public Set<B> valuesOf(final Object a) {
+        final int i = domainType.indexOf(a);
+        if (i < 0 || keyDegree[i] == 0) { return Collections.emptySet(); }
+        return new RowSet<B>(rangeType, keyValue, keyDegree, i);
+    }
+
+
+    @Override
+    public B valueOf(final Object a) {
+        final int i = domainType.indexOf(a);
+        if (i < 0 || keyDegree[i] != 1) { return null; }
+        return rangeType.elementAt(keyValue[i][0]);
+    }
+
+
+    @Override
+    public Set<B> valuesFor(final Iterable<?> as) {
+        return UnionSet.ofValues(this, as);
+    }
+
+
+    @Override
+    public Iterator<Pair<A, B>> iterator() {
+        return new IndexedBiMapIterator();
+    }
+
+
+    /**
+     * Returns an estimate of the memory used by this relation,
+     * excluding the elements of its domain and range types.
+     */
+    @Override
+    public MemoryStats memoryFootprint() {
+        long rows = 0L;
+        for (final int[] row: keyValue) {
+            if (row != null) { rows += MemoryStats.array(row.length, 4); }
+        }
+        for (final int[] row: valueKey) {
+            if (row != null) { rows += MemoryStats.array(row.length, 4); }
+        }
+        final int n = keyDegree.length;
+        final int m = valueDegree.length;
+        return new MemoryStats.Builder()
+            .add(Category.RELATION, shallowSize(6, 12)
+                    + 2 * MemoryStats.object(3, 1))
+            .add(Category.ARRAYS, MemoryStats.array(n, MemoryStats.REFERENCE)
+                    + MemoryStats.array(n, 4)
+                    + MemoryStats.array(m, MemoryStats.REFERENCE)
+                    + MemoryStats.array(m, 4) + rows)
+            .build();
+    }
+
+
+
+    /* ************************************************************************\
+     *  Predicates
+    \* ************************************************************************/
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    @Override
+    public boolean isSimple() {
+        return size == keyCount;
+    }
+
+    @Override
+    public boolean isInjective() {
+        return size == valueCount;
+    }
+
+
+    @Override
+    public boolean contains(final Object a, final Object b) {
+        final int i = domainType.indexOf(a);
+        if (i < 0) { return false; }
+        final int j = rangeType.indexOf(b);
+        return j >= 0 && contains(i, j);
+    }
+
+
+    @Override
+    public boolean containsKey(final Object a) {
+        final int i = domainType.indexOf(a);
+        return i >= 0 && keyDegree[i] > 0;
+    }
+
+
+    @Override
+    public boolean containsValue(final Object b) {
+        final int j = rangeType.indexOf(b);
+        return j >= 0 && valueDegree[j] > 0;
+    }
+
+
+
+    /* ***********************************************************************\
+     *  Insertion Methods
+    \* ***********************************************************************/
+
+    /**
+     * Inserts the given key-value pair into the relation.
+     * 
+     * @return {@code true} if the relation was modified.
+     * @throws IllegalArgumentException if the key (resp. value) does not
+     * belong to the domain (resp. range) type.
+     */
+    @Override
+    public boolean put(final A a, final B b) {
+        if (a == null || b == null) { return false; }
+        return doPut(a, b);
+    }
+
+
+    @Override
+    public boolean putAllKeys(final Iterable<? extends A> as, final B b) {
+        if (as == null || b == null) { return false; }
+        boolean modified = false;
+        for (final A a: as) {
+            if (a != null) {
+                modified |= doPut(a, b);
+            }
+        }
+        return modified;
+    }
+
+
+    @Override
+    public boolean putAllValues(final A a, final Iterable<? extends B> bs) {
+        if (a == null || bs == null) { return false; }
+        boolean modified = false;
+        for (final B b: bs) {
+            if (b != null) {
+                modified |= doPut(a, b);
+            }
+        }
+        return modified;
+    }
+
+
+    @Override
+    public boolean putAll(final Iterable<? extends A> as,
+            final Iterable<? extends B> bs) {
+        if (as == null || bs == null) { return false; }
+        boolean modified = false;
+        for (final A a: as) {
+            if (a == null) { continue; }
+            for (final B b: bs) {
+                if (b != null) {
+                    modified |= doPut(a, b);
+                }
+            }
+        }
+        return modified;
+    }
+
+
+
+    /* ***********************************************************************\
+     *  Removal Methods
+    \* ***********************************************************************/
+
+    @Override
+    public boolean remove(final Object a, final Object b) {
+        checkMutable();
+        final int i = domainType.indexOf(a);
+        if (i < 0) { return false; }
+        final int j = rangeType.indexOf(b);
+        if (j < 0 || !delete(keyValue, keyDegree, i, j)) { return false; }
+        delete(valueKey, valueDegree, j, i);
+        --size;
+        pairRemoved(a, b);
+        if (keyDegree[i] == 0) {
+            --keyCount;
+            keyRemoved(a);
+        }
+        if (valueDegree[j] == 0) {
+            --valueCount;
+            valueRemoved(b);
+        }
+        return true;
+    }
+
+
+    @Override
+    public Set<B> removeKey(final Object a) {
+        final Set<B> set = Sets.<B>empty();
+        doRemoveKey(a, set);
+        return set;
+    }
+
+
+    @Override
+    public Set<B> removeKeys(Iterable<?> as) {
+        as = Sets.elements(as);
+        final Set<B> set = Sets.<B>empty();
+        for (final Object a: as) {
+            doRemoveKey(a, set);
+        }
+        return set;
+    }
+
+
+    @Override
+    public Set<A> removeValue(final Object b) {
+        final Set<A> set = Sets.<A>empty();
+        doRemoveValue(b, set);
+        return set;
+    }
+
+
+    @Override
+    public Set<A> removeValues(Iterable<?> bs) {
+        bs = Sets.elements(bs);
+        final Set<A> set = Sets.<A>empty();
+        for (final Object b: bs) {
+            doRemoveValue(b, set);
+        }
+        return set;
+    }
+
+
+    @Override
+    public void clear() {
+        checkMutable();
+        size        = 0;
+        keyCount    = 0;
+        valueCount  = 0;
+        pairsCleared();
+        Arrays.fill(keyValue, null);
+        Arrays.fill(keyDegree, 0);
+        Arrays.fill(valueKey, null);
+        Arrays.fill(valueDegree, 0);
+    }
+
+
+
+    /**************************************************************************\
+     *  Protected Methods
+    \**************************************************************************/
+
+    /** Trims every row to its degree. */
+    @Override
+    protected void compact() {
+        trim(keyValue, keyDegree);
+        trim(valueKey, valueDegree);
+    }
+
+
+
+    /**************************************************************************\
+     *  Private Methods
+    \**************************************************************************/
+
+    /** */
+    private boolean contains(final int i, final int j) {
+        if (keyDegree[i] <= valueDegree[j]) {
+            return indexOf(keyValue[i], keyDegree[i], j) >= 0;
+        }
+        return indexOf(valueKey[j], valueDegree[j], i) >= 0;
+    }
+
+
+    /** */
+    private boolean doPut(final A a, final B b) {
+        checkMutable();
+        final int i = domainType.indexOf(a);
+        checkArgument("key is not in the domain", i >= 0);
+        final int j = rangeType.indexOf(b);
+        checkArgument("value is not in the range", j >= 0);
+        if (contains(i, j)) { return false; }
+        if (keyDegree[i] == 0) {
+            ++keyCount;
+            keyAdded(a);
+        }
+        if (valueDegree[j] == 0) {
+            ++valueCount;
+            valueAdded(b);
+        }
+        insert(keyValue, keyDegree, i, j);
+        insert(valueKey, valueDegree, j, i);
+        ++size;
+        pairAdded(a, b);
+        return true;
+    }
+
+
+    /** */
+    private void doRemoveKey(final Object a, final Set<B> removed) {
+        checkMutable();
+        final int i = domainType.indexOf(a);
+        if (i < 0 || keyDegree[i] == 0) { return; }
+        final int[] row = keyValue[i];
+        final int degree = keyDegree[i];
+        for (int k = 0; k < degree; ++k) {
+            final int j = row[k];
+            final B b = rangeType.elementAt(j);
+            delete(valueKey, valueDegree, j, i);
+            pairRemoved(a, b);
+            if (valueDegree[j] == 0) {
+                --valueCount;
+                valueRemoved(b);
+            }
+            removed.add(b);
+        }
+        size -= degree;
+        keyValue[i] = null;
+        keyDegree[i] = 0;
+        --keyCount;
+        keyRemoved(a);
+    }
+
+
+    /** */
+    private void doRemoveValue(final Object b, final Set<A> removed) {
+        checkMutable();
+        final int j = rangeType.indexOf(b);
+        if (j < 0 || valueDegree[j] == 0) { return; }
+        final int[] row = valueKey[j];
+        final int degree = valueDegree[j];
+        for (int k = 0; k < degree; ++k) {
+            final int i = row[k];
+            final A a = domainType.elementAt(i);
+            delete(keyValue, keyDegree, i, j);
+            pairRemoved(a, b);
+            if (keyDegree[i] == 0) {
+                --keyCount;
+                keyRemoved(a);
+            }
+            removed.add(a);
+        }
+        size -= degree;
+        valueKey[j] = null;
+        valueDegree[j] = 0;
+        --valueCount;
+        valueRemoved(b);
+    }
+
+
+    /**
+     * Returns the position of {@code x} in the given sorted row, or
+     * {@code -(insertion point) - 1} if it is not there.
+     */
+    private static int indexOf(final int[] row, final int degree,
+            final int x) {
+        if (row == null) { return -1; }
+        return Arrays.binarySearch(row, 0, degree, x);
+    }
+
+
+    /** Inserts {@code x}, which must be absent, in the given row. */
+    private static void insert(final int[][] rows, final int[] degree,
+            final int i, final int x) {
+        int[] row = rows[i];
+        if (row == null) {
+            rows[i] = row = new int[ROW_CAPACITY];
+        } else if (degree[i] == row.length) {
+            rows[i] = row = Arrays.copyOf(row, row.length * 2);
+        }
+        final int k = -indexOf(row, degree[i], x) - 1;
+        System.arraycopy(row, k, row, k + 1, degree[i] - k);
+        row[k] = x;
+        ++degree[i];
+    }
+
+
+    /** Shrinks every row to the number of elements it holds. */
+    private static void trim(final int[][] rows, final int[] degree) {
+        for (int i = 0; i < rows.length; ++i) {
+            if (rows[i] != null && rows[i].length > degree[i]) {
+                rows[i] = Arrays.copyOf(rows[i], degree[i]);
+            }
+        }
+    }
+
+
+    /**
+     * Removes {@code x} from the given row, shifting the following
+     * elements of the row back. Releases empty rows.
+     */
+    private static boolean delete(final int[][] rows, final int[] degree,
+            final int i, final int x) {
+        final int[] row = rows[i];
+        final int k = indexOf(row, degree[i], x);
+        if (k < 0) { return false; }
+        System.arraycopy(row, k + 1, row, k, --degree[i] - k);
+        if (degree[i] == 0) { rows[i] = null; }
+        return true;
+    }
+
+
+
+    /**************************************************************************\
+     *  Nested Classes
+    \**************************************************************************/
+
+    /** A view of the elements of a domain whose degree is positive. */
+    private final class IndexSet<E> extends AbstractSet<E> {
+        private final Domain<E> domain;
+        private final int[] degree;
+        private final boolean keys;
+
+        /** */
+        IndexSet(final Domain<E> domain, final int[] degree,
+                final boolean keys) {
+            this.domain = domain;
+            this.degree = degree;
+            this.keys = keys;
+        }
+
+        /** */
+        @Override
+        public int size() {
+            return keys ? keyCount : valueCount;
+        }
+
+        /** */
+        @Override
+        public boolean contains(final Object o) {
+            final int i = domain.indexOf(o);
+            return i >= 0 && degree[i] > 0;
+        }
+
+        /** */
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int next = advance(0);
+
+                private int advance(int i) {
+                    while (i < degree.length && degree[i] == 0) { ++i; }
+                    return i;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next < degree.length;
+                }
+
+                @Override
+                public E next() {
+                    if (next >= degree.length) {
+                        throw new NoSuchElementException();
+                    }
+                    final E e = domain.elementAt(next);
+                    next = advance(next + 1);
+                    return e;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+
+    /** A view of a single row, mapping indices back to elements. */
+    private static final class RowSet<E> extends AbstractSet<E> {
+        private final Domain<E> domain;
+        private final int[][] rows;
+        private final int[] degree;
+        private final int index;
+
+        /** */
+        RowSet(final Domain<E> domain, final int[][] rows,
+                final int[] degree, final int index) {
+            this.domain = domain;
+            this.rows = rows;
+            this.degree = degree;
+            this.index = index;
+        }
+
+        /** */
+        @Override
+        public int size() {
+            return degree[index];
+        }
+
+        /** */
+        @Override
+        public boolean contains(final Object o) {
+            final int x = domain.indexOf(o);
+            return x >= 0 && indexOf(rows[index], degree[index], x) >= 0;
+        }
+
+        /** */
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private int k;
+
+                @Override
+                public boolean hasNext() {
+                    return k < degree[index];
+                }
+
+                @Override
+                public E next() {
+                    if (k >= degree[index]) {
+                        throw new NoSuchElementException();
+                    }
+                    return domain.elementAt(rows[index][k++]);
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+
+    /** */
+    private final class IndexedBiMapIterator
+            implements Iterator<Pair<A, B>> {
+        private int key;
+        private int position;
+        private int currentKey = -1;
+        private int currentValue;
+
+        /** */
+        private void advance() {
+            while (key < keyDegree.length && position >= keyDegree[key]) {
+                ++key;
+                position = 0;
+            }
+        }
+
+        /** */
+        @Override
+        public boolean hasNext() {
+            advance();
+            return key < keyDegree.length;
+        }
+
+        /** */
+        @Override
+        public Pair<A, B> next() {
+            advance();
+            if (key >= keyDegree.length) {
+                throw new NoSuchElementException();
+            }
+            currentKey = key;
+            currentValue = keyValue[key][position++];
+            return new Pair<A, B>(domainType.elementAt(currentKey),
+                    rangeType.elementAt(currentValue));
+        }
+
+        /** */
+        @Override
+        public void remove() {
+            if (currentKey < 0) {
+                throw new IllegalStateException(
+                        "The next method has not yet been called.");
+            }
+            IndexedBiMap.this.remove(domainType.elementAt(currentKey),
+                    rangeType.elementAt(currentValue));
+            --position;
+            currentKey = -1;
+        }
+    }
+}
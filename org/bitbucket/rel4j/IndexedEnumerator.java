@@ -0,0 +1,60 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.bitbucket.rel4j;
+
+
+/**
+ * Represents a {@code DomainEnumerator} of a finite domain, whose elements
+ * can be explicitly enumerated. Each element of the domain is assigned
+ * a dense index, from {@code 0} (inclusive) to {@code size()} (exclusive).
+ * 
+ * Relations use these indices to keep track of how many elements of
+ * the domain they cover, and to store their arrows in arrays
+ * instead of hash tables.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public interface IndexedEnumerator<T> extends DomainEnumerator<T> {
+    /**
+     * Returns the number of elements of the domain.
+     */
+    int size();
+
+    /**
+     * Returns the index of the given element, or {@code -1}
+     * if it does not belong to the domain.
+     */
+    int indexOf(Object o);
+
+    /**
+     * Returns the element of the domain with the given index.
+     * 
+     * @throws IndexOutOfBoundsException if the index is negative,
+     * or not lower than {@code size()}.
+     */
+    T elementAt(int index);
+}
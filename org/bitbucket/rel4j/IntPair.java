@@ -0,0 +1,177 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+
+/**
+ * This class represents an immutable pair of {@code int} values.
+ * It is the primitive counterpart of {@code Pair<Integer, Integer>},
+ * with the same hash code, and it can be packed into a single
+ * {@code long} (see {@code pack(int, int)}), which is the representation
+ * used by {@code LongPairSet} and {@code IntPairRelation}.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public final class IntPair {
+
+    /*************************************************************************\
+     *  Attributes
+    \*************************************************************************/
+
+    private final int first;
+    private final int second;
+
+
+
+    /*************************************************************************\
+     *  Constructors
+    \*************************************************************************/
+
+    /**
+     *  Parameter constructor of objects of class IntPair.
+     *  
+     *  @param a The first component of the pair.
+     *  @param b The second component of the pair.
+     */
+    public IntPair(final int a, final int b) {
+        first = a;
+        second = b;
+    }
+
+
+    /**
+     *  Returns the pair packed in the given {@code long}.
+     */
+    public static IntPair unpack(final long pair) {
+        return new IntPair(first(pair), second(pair));
+    }
+
+
+
+    /*************************************************************************\
+     *  Getters
+    \*************************************************************************/
+
+    /**
+     * Returns the first component of the pair.
+     */
+    public int first() {
+        return first;
+    }
+
+    /**
+     * Returns the second component of the pair.
+     */
+    public int second() {
+        return second;
+    }
+
+    /**
+     * Returns this pair packed into a {@code long}.
+     */
+    public long pack() {
+        return pack(first, second);
+    }
+
+
+
+    /*************************************************************************\
+     *  Static Methods
+    \*************************************************************************/
+
+    /**
+     * Packs the pair {@code (a, b)} into a {@code long}, with {@code a}
+     * in the high 32 bits and {@code b} in the low 32 bits.
+     */
+    public static long pack(final int a, final int b) {
+        return ((long) a << 32) | (b & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the first component of a packed pair.
+     */
+    public static int first(final long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    /**
+     * Returns the second component of a packed pair.
+     */
+    public static int second(final long pair) {
+        return (int) pair;
+    }
+
+    /**
+     * Returns the hash code of a packed pair, which is the same
+     * as the hash code of the corresponding {@code IntPair}
+     * and {@code Pair<Integer, Integer>}.
+     */
+    public static int hash(final long pair) {
+        return Pair.hash(first(pair), second(pair));
+    }
+
+
+
+    /*************************************************************************\
+     *  Equals, HashCode & ToString
+    \*************************************************************************/
+
+    /**
+     *  Equivalence relation.
+     *  Two {@code IntPair} objects are equal if their components are equal.
+     */
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) { return true; }
+        if (!(o instanceof IntPair)) { return false; }
+        final IntPair n = (IntPair) o;
+        return first == n.first && second == n.second;
+    }
+
+
+    /**
+     *  Returns the same hash code as {@code Pair<Integer, Integer>}.
+     */
+    @Override
+    public int hashCode() {
+        return Pair.hash(first, second);
+    }
+
+
+    /**
+     *  Returns a string representation of the object.
+     */
+    @Override
+    public String toString() {
+        return new StringBuilder(24)
+            .append('(')
+            .append(first)
+            .append(',')
+            .append(second)
+            .append(')')
+            .toString();
+    }
+}
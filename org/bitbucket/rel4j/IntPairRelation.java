@@ -0,0 +1,655 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+
+import org.bitbucket.rel4j.MemoryStats.Category;
+
+
+/**
+ * Provides an implementation of a standard mutable binary relation
+ * between {@code int} identifiers, based on a set of packed pairs.
+ * Each pair is stored as a single {@code long} in an open-addressing
+ * table (see {@code LongPairSet}), with no entry objects; each key
+ * (resp. value) also keeps a compact {@code int} array of its values
+ * (resp. keys).
+ * 
+ * Membership tests and insertions of single pairs are constant time
+ * operations, and have primitive overloads that do not box. Removals
+ * are linear in the degree of the key and value of the pair, and
+ * iterating over the values of a key (or the keys of a value) is
+ * linear in their number.
+ * 
+ * This implementation handles non-determinism, and it does not accept
+ * {@code null} keys or values.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public final class IntPairRelation
+        extends AbstractMutableRelation<Integer, Integer> {
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The pair storage. */
+    private final LongPairSet pairs;
+
+    /** The values of each key, and the keys of each value. */
+    private final Map<Integer, Adjacency> keyRows;
+    private final Map<Integer, Adjacency> valueRows;
+
+    /** The unmodifiable views of the domain and range. */
+    private final Set<Integer> keySet;
+    private final Set<Integer> valueSet;
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Empty constructor of class IntPairRelation.
+     */
+    public IntPairRelation() {
+        pairs       = new LongPairSet();
+        keyRows     = new HashMap<Integer, Adjacency>();
+        valueRows   = new HashMap<Integer, Adjacency>();
+        keySet      = Collections.unmodifiableSet(keyRows.keySet());
+        valueSet    = Collections.unmodifiableSet(valueRows.keySet());
+    }
+
+
+    /**
+     *  Parameter constructor of class IntPairRelation.
+     */
+    public IntPairRelation(final int initialCapacity) {
+        assert initialCapacity > 0;
+        pairs       = new LongPairSet(initialCapacity);
+        keyRows     = new HashMap<Integer, Adjacency>();
+        valueRows   = new HashMap<Integer, Adjacency>();
+        keySet      = Collections.unmodifiableSet(keyRows.keySet());
+        valueSet    = Collections.unmodifiableSet(valueRows.keySet());
+    }
+
+
+    /**
+     *  Parameter constructor of class IntPairRelation.
+     */
+    public IntPairRelation(final Domain<Integer> dom,
+            final Domain<Integer> ran) {
+        super(dom, ran);
+        pairs       = new LongPairSet();
+        keyRows     = new HashMap<Integer, Adjacency>();
+        valueRows   = new HashMap<Integer, Adjacency>();
+        keySet      = Collections.unmodifiableSet(keyRows.keySet());
+        valueSet    = Collections.unmodifiableSet(valueRows.keySet());
+    }
+
+
+    /**
+     *  Parameter constructor of class IntPairRelation.
+     */
+    public IntPairRelation(final int initialCapacity,
+            final Domain<Integer> dom, final Domain<Integer> ran) {
+        super(dom, ran);
+        pairs       = new LongPairSet(initialCapacity);
+        keyRows     = new HashMap<Integer, Adjacency>();
+        valueRows   = new HashMap<Integer, Adjacency>();
+        keySet      = Collections.unmodifiableSet(keyRows.keySet());
+        valueSet    = Collections.unmodifiableSet(valueRows.keySet());
+    }
+
+
+
+    /* ************************************************************************\
+     *  Getters
+    \* ************************************************************************/
+
+    @Override
+    public int size() {
+        return pairs.size();
+    }
+
+
+    @Override
+    public Set<Integer> keys() {
+        return keySet;
+    }
+
+
+    @Override
+    public Set<Integer> keysOf(final Object b) {
+        if (!valueRows.containsKey(b)) { return Collections.emptySet(); }
+        return new Row((Integer) b, false);
+    }
+
+
+    @Override
+    public Integer keyOf(final Object b) {
+        final Adjacency row = valueRows.get(b);
+        if (row == null || row.n != 1) { return null; }
+        return Integer.valueOf(row.items[0]);
+    }
+
+
+    @Override
+    public Set<Integer> keysFor(final Iterable<?> bs) {
+        return UnionSet.ofKeys(this, bs);
+    }
+
+
+
+    @Override
+    public Set<Integer> values() {
+        return valueSet;
+    }
+
+
+    @Override
+    public Set<Integer> valuesOf(final Object a) {
+        if (!keyRows.containsKey(a)) { return Collections.emptySet(); }
+        return new Row((Integer) a, true);
+    }
+
+
+    @Override
+    public Integer valueOf(final Object a) {
+        final Adjacency row = keyRows.get(a);
+        if (row == null || row.n != 1) { return null; }
+        return Integer.valueOf(row.items[0]);
+    }
+
+
+    @Override
+    public Set<Integer> valuesFor(final Iterable<?> as) {
+        return UnionSet.ofValues(this, as);
+    }
+
+
+    @Override
+    public Iterator<Pair<Integer, Integer>> iterator() {
+        return new IntPairRelationIterator();
+    }
+
+
+    /**
+     * Returns an estimate of the memory used by this relation.
+     */
+    @Override
+    public MemoryStats memoryFootprint() {
+        final int cap = MemoryStats.MAP_CAPACITY;
+        final int elements = keyRows.size() + valueRows.size();
+        long rows = 0;
+        for (final Adjacency row: keyRows.values()) {
+            rows += MemoryStats.array(row.items.length, 4);
+        }
+        for (final Adjacency row: valueRows.values()) {
+            rows += MemoryStats.array(row.items.length, 4);
+        }
+        return new MemoryStats.Builder()
+            .add(Category.RELATION, shallowSize(5, 0)
+                    + MemoryStats.object(1, 13) + 4 * MemoryStats.view())
+            .add(Category.MAPS, MemoryStats.hashMap(keyRows.size(), cap)
+                    + MemoryStats.hashMap(valueRows.size(), cap))
+            .add(Category.ENTRIES, elements * (MemoryStats.hashEntry()
+                    + MemoryStats.object(1, 4)))
+            .add(Category.ARRAYS, MemoryStats.array(pairs.capacity(), 8)
+                    + rows)
+            .build();
+    }
+
+
+
+    /* ************************************************************************\
+     *  Predicates
+    \* ************************************************************************/
+
+    @Override
+    public boolean isEmpty() {
+        return pairs.isEmpty();
+    }
+
+
+    @Override
+    public boolean isSimple() {
+        return pairs.size() == keyRows.size();
+    }
+
+    @Override
+    public boolean isInjective() {
+        return pairs.size() == valueRows.size();
+    }
+
+
+    @Override
+    public boolean contains(final Object a, final Object b) {
+        if (!(a instanceof Integer && b instanceof Integer)) { return false; }
+        return pairs.contains((Integer) a, (Integer) b);
+    }
+
+    /**
+     * Determines whether the pair {@code (a, b)} is present in the
+     * relation, without boxing.
+     */
+    public boolean contains(final int a, final int b) {
+        return pairs.contains(a, b);
+    }
+
+
+    @Override
+    public boolean containsKey(final Object a) {
+        return keyRows.containsKey(a);
+    }
+
+
+    @Override
+    public boolean containsValue(final Object b) {
+        return valueRows.containsKey(b);
+    }
+
+
+
+    /* ***********************************************************************\
+     *  Insertion Methods
+    \* ***********************************************************************/
+
+    @Override
+    public boolean put(final Integer a, final Integer b) {
+        if (a == null || b == null) { return false; }
+        return doPut(a, b);
+    }
+
+    /**
+     * Inserts the pair {@code (a, b)} into the relation.
+     * The pair is only boxed if it is new.
+     * 
+     * @return {@code true} if the relation was modified.
+     */
+    public boolean put(final int a, final int b) {
+        return doPut(a, b);
+    }
+
+
+    @Override
+    public boolean putAllKeys(final Iterable<? extends Integer> as,
+            final Integer b) {
+        if (as == null || b == null) { return false; }
+        boolean modified = false;
+        for (final Integer a: as) {
+            if (a != null) {
+                modified |= doPut(a, b);
+            }
+        }
+        return modified;
+    }
+
+
+    @Override
+    public boolean putAllValues(final Integer a,
+            final Iterable<? extends Integer> bs) {
+        if (a == null || bs == null) { return false; }
+        boolean modified = false;
+        for (final Integer b: bs) {
+            if (b != null) {
+                modified |= doPut(a, b);
+            }
+        }
+        return modified;
+    }
+
+
+    @Override
+    public boolean putAll(final Iterable<? extends Integer> as,
+            final Iterable<? extends Integer> bs) {
+        if (as == null || bs == null) { return false; }
+        boolean modified = false;
+        for (final Integer a: as) {
+            if (a == null) { continue; }
+            for (final Integer b: bs) {
+                if (b != null) {
+                    modified |= doPut(a, b);
+                }
+            }
+        }
+        return modified;
+    }
+
+
+
+    /* ***********************************************************************\
+     *  Removal Methods
+    \* ***********************************************************************/
+
+    @Override
+    public boolean remove(final Object a, final Object b) {
+        if (!(a instanceof Integer && b instanceof Integer)) { return false; }
+        return doRemove((Integer) a, (Integer) b);
+    }
+
+    /**
+     * Removes the pair {@code (a, b)} from the relation.
+     * 
+     * @return {@code true} if the relation was modified.
+     */
+    public boolean remove(final int a, final int b) {
+        return doRemove(a, b);
+    }
+
+
+    @Override
+    public Set<Integer> removeKey(final Object a) {
+        final Set<Integer> set = Sets.<Integer>empty();
+        doRemoveKey(a, set);
+        return set;
+    }
+
+
+    @Override
+    public Set<Integer> removeKeys(Iterable<?> as) {
+        as = Sets.elements(as);
+        final Set<Integer> set = Sets.<Integer>empty();
+        for (final Object a: as) {
+            doRemoveKey(a, set);
+        }
+        return set;
+    }
+
+
+    @Override
+    public Set<Integer> removeValue(final Object b) {
+        final Set<Integer> set = Sets.<Integer>empty();
+        doRemoveValue(b, set);
+        return set;
+    }
+
+
+    @Override
+    public Set<Integer> removeValues(Iterable<?> bs) {
+        bs = Sets.elements(bs);
+        final Set<Integer> set = Sets.<Integer>empty();
+        for (final Object b: bs) {
+            doRemoveValue(b, set);
+        }
+        return set;
+    }
+
+
+    @Override
+    public void clear() {
+        checkMutable();
+        pairsCleared();
+        pairs.clear();
+        keyRows.clear();
+        valueRows.clear();
+    }
+
+
+
+    /**************************************************************************\
+     *  Protected Methods
+    \**************************************************************************/
+
+    /** Shrinks the pair table and the rows to their current sizes. */
+    @Override
+    protected void compact() {
+        pairs.trim();
+        for (final Adjacency row: keyRows.values()) { row.trim(); }
+        for (final Adjacency row: valueRows.values()) { row.trim(); }
+    }
+
+
+
+    /**************************************************************************\
+     *  Private Methods
+    \**************************************************************************/
+
+    /** */
+    private boolean doPut(final int a, final int b) {
+        checkMutable();
+        if (!pairs.add(a, b)) { return false; }
+        final Integer ka = Integer.valueOf(a);
+        final Integer kb = Integer.valueOf(b);
+        if (link(keyRows, ka, b)) { keyAdded(ka); }
+        if (link(valueRows, kb, a)) { valueAdded(kb); }
+        pairAdded(ka, kb);
+        return true;
+    }
+
+
+    /** */
+    private boolean doRemove(final int a, final int b) {
+        checkMutable();
+        if (!pairs.remove(a, b)) { return false; }
+        removed(a, b);
+        return true;
+    }
+
+
+    /** Updates the degrees and hooks after the removal of a pair. */
+    private void removed(final int a, final int b) {
+        final Integer ka = Integer.valueOf(a);
+        final Integer kb = Integer.valueOf(b);
+        pairRemoved(ka, kb);
+        if (unlink(keyRows, ka, b)) { keyRemoved(ka); }
+        if (unlink(valueRows, kb, a)) { valueRemoved(kb); }
+    }
+
+
+    /** */
+    private void doRemoveKey(final Object a, final Set<Integer> removed) {
+        if (!keyRows.containsKey(a)) { return; }
+        final int i = (Integer) a;
+        for (final Integer b: Sets.copy(valuesOf(a))) {
+            doRemove(i, b);
+            removed.add(b);
+        }
+    }
+
+
+    /** */
+    private void doRemoveValue(final Object b, final Set<Integer> removed) {
+        if (!valueRows.containsKey(b)) { return; }
+        final int j = (Integer) b;
+        for (final Integer a: Sets.copy(keysOf(b))) {
+            doRemove(a, j);
+            removed.add(a);
+        }
+    }
+
+
+    /**
+     * Adds {@code x} to the row of {@code e}.
+     * Returns {@code true} if the element is new.
+     */
+    private static boolean link(final Map<Integer, Adjacency> rows,
+            final Integer e, final int x) {
+        Adjacency row = rows.get(e);
+        final boolean added = row == null;
+        if (added) {
+            row = new Adjacency();
+            rows.put(e, row);
+        }
+        row.add(x);
+        return added;
+    }
+
+
+    /**
+     * Removes {@code x} from the row of {@code e}.
+     * Returns {@code true} if the element is gone.
+     */
+    private static boolean unlink(final Map<Integer, Adjacency> rows,
+            final Integer e, final int x) {
+        final Adjacency row = rows.get(e);
+        row.remove(x);
+        if (row.n == 0) {
+            rows.remove(e);
+            return true;
+        }
+        return false;
+    }
+
+
+
+    /**************************************************************************\
+     *  Nested Classes
+    \**************************************************************************/
+
+    /** The related elements of an element, in no particular order. */
+    private static final class Adjacency {
+        private int[] items = new int[2];
+        private int n;
+
+        /** */
+        void add(final int x) {
+            if (n == items.length) { items = Arrays.copyOf(items, n * 2); }
+            items[n++] = x;
+        }
+
+        /** Removes {@code x}, moving the last element into its place. */
+        void remove(final int x) {
+            for (int i = 0; i < n; ++i) {
+                if (items[i] == x) {
+                    items[i] = items[--n];
+                    return;
+                }
+            }
+        }
+
+        /** */
+        void trim() {
+            if (n < items.length) { items = Arrays.copyOf(items, n); }
+        }
+    }
+
+
+    /**
+     * A view of the values of a key (or the keys of a value).
+     * Membership probes the pair table, and iteration walks the row.
+     */
+    private final class Row extends AbstractSet<Integer> {
+        private final int element;
+        private final boolean forward;
+
+        /** */
+        Row(final int element, final boolean forward) {
+            this.element = element;
+            this.forward = forward;
+        }
+
+        /** */
+        @Override
+        public int size() {
+            final Adjacency row = (forward ? keyRows : valueRows)
+                    .get(Integer.valueOf(element));
+            return row == null ? 0 : row.n;
+        }
+
+        /** */
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof Integer)) { return false; }
+            final int x = (Integer) o;
+            return forward ? pairs.contains(element, x)
+                    : pairs.contains(x, element);
+        }
+
+        /** */
+        @Override
+        public Iterator<Integer> iterator() {
+            final Adjacency row = (forward ? keyRows : valueRows)
+                    .get(Integer.valueOf(element));
+            return new Iterator<Integer>() {
+                private int i = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return row != null && i < row.n;
+                }
+
+                @Override
+                public Integer next() {
+                    if (!hasNext()) { throw new NoSuchElementException(); }
+                    return Integer.valueOf(row.items[i++]);
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+
+    /** */
+    private final class IntPairRelationIterator
+            implements Iterator<Pair<Integer, Integer>> {
+        private final PrimitiveIterator.OfLong iterator = pairs.iterator();
+        private long current;
+        private boolean removable;
+
+        /** */
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        /** */
+        @Override
+        public Pair<Integer, Integer> next() {
+            current = iterator.nextLong();
+            removable = true;
+            return new Pair<Integer, Integer>(
+                    Integer.valueOf(IntPair.first(current)),
+                    Integer.valueOf(IntPair.second(current)));
+        }
+
+        /** */
+        @Override
+        public void remove() {
+            if (!removable) {
+                throw new IllegalStateException(
+                        "The next method has not yet been called.");
+            }
+            checkMutable();
+            iterator.remove();
+            removed(IntPair.first(current), IntPair.second(current));
+            removable = false;
+        }
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import static org.bitbucket.rel4j.Check.checkArgument;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+
+/**
+ * A set of pairs of {@code int} values, packed into {@code long} values
+ * (see {@code IntPair.pack(int, int)}), and stored in an open-addressing
+ * hash table with linear probing.
+ * Each pair takes a single array slot; there are no entry objects and no
+ * boxing. Removals shift the following entries back instead of leaving
+ * tombstones, so lookups never degrade after many removals.
+ * 
+ * Since every {@code long} is a valid packed pair, the zero pair
+ * {@code (0, 0)} marks the free slots, and its presence is kept aside.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public final class LongPairSet implements Iterable<Long> {
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The default initial capacity. */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** The maximum load factor of the table. */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** The hash table; zero marks a free slot. */
+    private long[] table;
+
+    /** The mask for the table indices (table length minus one). */
+    private int mask;
+
+    /** The number of pairs that triggers a resize. */
+    private int maxFill;
+
+    /** Whether the zero pair is present. */
+    private boolean containsZero;
+
+    /** The number of pairs. */
+    private int size;
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Empty constructor of class LongPairSet.
+     */
+    public LongPairSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    /**
+     *  Parameter constructor of class LongPairSet.
+     *  
+     *  @param expected The expected number of pairs.
+     */
+    public LongPairSet(final int expected) {
+        checkArgument("negative capacity", expected >= 0);
+        allocate(tableSize(expected));
+    }
+
+
+
+    /* ************************************************************************\
+     *  Getters
+    \* ************************************************************************/
+
+    /**
+     * Returns the number of pairs in this set.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the length of the underlying table.
+     */
+    public int capacity() {
+        return table.length;
+    }
+
+    /**
+     * Returns an iterator over the packed pairs in this set.
+     * The iterator supports removal.
+     */
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new LongPairSetIterator();
+    }
+
+
+
+    /* ************************************************************************\
+     *  Predicates
+    \* ************************************************************************/
+
+    /**
+     * Determines whether this set is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Determines whether this set contains the pair {@code (a, b)}.
+     */
+    public boolean contains(final int a, final int b) {
+        return contains(IntPair.pack(a, b));
+    }
+
+    /**
+     * Determines whether this set contains the given packed pair.
+     */
+    public boolean contains(final long pair) {
+        if (pair == 0L) { return containsZero; }
+        long curr;
+        int pos = slot(pair);
+        while ((curr = table[pos]) != 0L) {
+            if (curr == pair) { return true; }
+            pos = (pos + 1) & mask;
+        }
+        return false;
+    }
+
+
+
+    /* ***********************************************************************\
+     *  Insertion Methods
+    \* ***********************************************************************/
+
+    /**
+     * Adds the pair {@code (a, b)} to this set.
+     * Returns {@code true} if the set changed.
+     */
+    public boolean add(final int a, final int b) {
+        return add(IntPair.pack(a, b));
+    }
+
+    /**
+     * Adds the given packed pair to this set.
+     * Returns {@code true} if the set changed.
+     */
+    public boolean add(final long pair) {
+        if (pair == 0L) {
+            if (containsZero) { return false; }
+            containsZero = true;
+        } else {
+            long curr;
+            int pos = slot(pair);
+            while ((curr = table[pos]) != 0L) {
+                if (curr == pair) { return false; }
+                pos = (pos + 1) & mask;
+            }
+            table[pos] = pair;
+        }
+        if (++size > maxFill) { rehash(table.length << 1); }
+        return true;
+    }
+
+
+
+    /* ***********************************************************************\
+     *  Removal Methods
+    \* ***********************************************************************/
+
+    /**
+     * Removes the pair {@code (a, b)} from this set.
+     * Returns {@code true} if the set changed.
+     */
+    public boolean remove(final int a, final int b) {
+        return remove(IntPair.pack(a, b));
+    }
+
+    /**
+     * Removes the given packed pair from this set.
+     * Returns {@code true} if the set changed.
+     */
+    public boolean remove(final long pair) {
+        if (pair == 0L) {
+            if (!containsZero) { return false; }
+            containsZero = false;
+            --size;
+            return true;
+        }
+        long curr;
+        int pos = slot(pair);
+        while ((curr = table[pos]) != 0L) {
+            if (curr == pair) {
+                shiftKeys(pos, null);
+                --size;
+                return true;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes every pair from this set. The table keeps its capacity.
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        containsZero = false;
+        size = 0;
+    }
+
+
+    /**
+     * Shrinks the table to the smallest length that holds
+     * the current pairs under the load factor.
+     */
+    public void trim() {
+        final int length = tableSize(size);
+        if (length < table.length) { rehash(length); }
+    }
+
+
+
+    /**************************************************************************\
+     *  Private Methods
+    \**************************************************************************/
+
+    /** Returns the home slot of a non-zero packed pair. */
+    private int slot(final long pair) {
+        return IntPair.hash(pair) & mask;
+    }
+
+
+    /** Returns the table length for the given number of pairs. */
+    private static int tableSize(final int expected) {
+        final long needed =
+                Math.max(2L, (long) Math.ceil(expected / LOAD_FACTOR));
+        checkArgument("capacity too large", needed <= (1 << 30));
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+
+    /** */
+    private void allocate(final int length) {
+        table   = new long[length];
+        mask    = length - 1;
+        maxFill = (int) (length * LOAD_FACTOR);
+    }
+
+
+    /** */
+    private void rehash(final int length) {
+        final long[] old = table;
+        allocate(length);
+        for (final long pair: old) {
+            if (pair == 0L) { continue; }
+            int pos = slot(pair);
+            while (table[pos] != 0L) { pos = (pos + 1) & mask; }
+            table[pos] = pair;
+        }
+    }
+
+
+    /**
+     * Closes the gap left at position {@code pos}, shifting back the
+     * entries of the same probe sequence.
+     * Entries that wrap around the end of the table, from a slot before
+     * the gap to a slot after it, are reported to the given iterator,
+     * which would otherwise miss them.
+     */
+    private void shiftKeys(int pos, final LongPairSetIterator it) {
+        int last;
+        long curr;
+        for (;;) {
+            pos = ((last = pos) + 1) & mask;
+            for (;;) {
+                if ((curr = table[pos]) == 0L) {
+                    table[last] = 0L;
+                    return;
+                }
+                final int home = slot(curr);
+                if (last <= pos ? last >= home || home > pos
+                        : last >= home && home > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            if (it != null && pos < last) { it.wrapped(curr); }
+            table[last] = curr;
+        }
+    }
+
+
+
+    /**************************************************************************\
+     *  Nested Classes
+    \**************************************************************************/
+
+    /**
+     * Iterates the table backwards, so that the entries shifted back by
+     * a removal have already been visited, except for those that wrap
+     * around the end of the table, which are visited last.
+     */
+    private final class LongPairSetIterator
+            implements PrimitiveIterator.OfLong {
+        private int pos = table.length;
+        private int last = -1;
+        private int remaining = size;
+        private boolean zero = containsZero;
+        private long[] wrapped;
+        private int wrappedCount;
+        private int wrappedPos;
+
+        /** */
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        /** */
+        @Override
+        public long nextLong() {
+            if (remaining <= 0) { throw new NoSuchElementException(); }
+            --remaining;
+            if (zero) {
+                zero = false;
+                last = table.length;
+                return 0L;
+            }
+            while (--pos >= 0) {
+                if (table[pos] != 0L) {
+                    last = pos;
+                    return table[pos];
+                }
+            }
+            last = -2;
+            return wrapped[wrappedPos++];
+        }
+
+        /** */
+        @Override
+        public void remove() {
+            if (last == -1) { throw new IllegalStateException(); }
+            if (last == table.length) {
+                containsZero = false;
+                --size;
+            } else if (last >= 0) {
+                shiftKeys(last, this);
+                --size;
+            } else {
+                LongPairSet.this.remove(wrapped[wrappedPos - 1]);
+            }
+            last = -1;
+        }
+
+        /** */
+        void wrapped(final long pair) {
+            if (wrapped == null) {
+                wrapped = new long[2];
+            } else if (wrappedCount == wrapped.length) {
+                wrapped = Arrays.copyOf(wrapped, wrappedCount << 1);
+            }
+            wrapped[wrappedCount++] = pair;
+        }
+    }
+}
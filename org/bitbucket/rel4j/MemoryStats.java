@@ -0,0 +1,334 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * An estimate of the memory used by a relation (or by several),
+ * broken down by category.
+ * Estimates follow the object layout of a 64-bit HotSpot JVM, as
+ * reported by tools such as JOL: 8-byte alignment, and compressed
+ * references and headers when the maximum heap is below 32 GB.
+ * Hash tables are assumed to be as small as their current size allows,
+ * so tables that grew and then shrank are underestimated.
+ * 
+ * The keys and values themselves are shared with the caller, and are
+ * not accounted for.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public final class MemoryStats {
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The categories of used memory. */
+    public enum Category {
+        /** The relation objects, and their views. */
+        RELATION,
+        /** Hash map objects, and their tables. */
+        MAPS,
+        /** Hash map entries, and per-element counters. */
+        ENTRIES,
+        /** Per-element sets, with their tables and entries. */
+        SETS,
+        /** Arrays indexed by element or by hash. */
+        ARRAYS
+    }
+
+    /** The empty estimate. */
+    public static final MemoryStats EMPTY = new MemoryStats(
+            new long[Category.values().length], 0);
+
+    /** Whether references are compressed. */
+    private static final boolean COMPRESSED = !"64".equals(
+            System.getProperty("sun.arch.data.model", "64"))
+            || Runtime.getRuntime().maxMemory() < (32L << 30);
+
+    /** The size of a reference. */
+    static final int REFERENCE = COMPRESSED ? 4 : 8;
+
+    /** The size of an object header. */
+    static final int HEADER = COMPRESSED ? 12 : 16;
+
+    /** The default capacity of a {@code HashMap}. */
+    static final int MAP_CAPACITY = 16;
+
+    /** The bytes used in each category. */
+    private final long[] bytes;
+
+    /** The number of measured relations. */
+    private final int relations;
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Parameter constructor of class MemoryStats.
+     */
+    private MemoryStats(final long[] bytes, final int relations) {
+        this.bytes = bytes;
+        this.relations = relations;
+    }
+
+
+    /**
+     * Returns the sum of the estimates of the given relations.
+     * Mutable relations that do not extend {@code AbstractMutableRelation},
+     * and views other than immutable copies and converse views,
+     * are not measured.
+     */
+    public static MemoryStats sum(
+            final Iterable<? extends Relation<?, ?>> rs) {
+        MemoryStats total = EMPTY;
+        for (final Relation<?, ?> r: rs) {
+            total = total.plus(of(r));
+        }
+        return total;
+    }
+
+
+    /**
+     * Returns the estimate of the given relation, or {@code EMPTY} if
+     * it is not measured (see {@code sum(Iterable)}).
+     */
+    public static MemoryStats of(final Relation<?, ?> r) {
+        if (r instanceof AbstractMutableRelation) {
+            return ((AbstractMutableRelation<?, ?>) r).memoryFootprint();
+        } else if (r instanceof ImmutableView) {
+            return ((ImmutableView<?, ?>) r).memoryFootprint();
+        } else if (r instanceof ConverseView) {
+            return of(((ConverseView<?, ?>) r).relation());
+        }
+        return EMPTY;
+    }
+
+
+    /**
+     * Returns a report of the estimates of the given named relations,
+     * one per line, from the largest to the smallest, followed by
+     * their sum.
+     */
+    public static String report(
+            final Map<String, ? extends Relation<?, ?>> rs) {
+        final List<Map.Entry<String, MemoryStats>> entries =
+                new ArrayList<Map.Entry<String, MemoryStats>>();
+        MemoryStats total = EMPTY;
+        for (final Map.Entry<String, ? extends Relation<?, ?>> e:
+                rs.entrySet()) {
+            final MemoryStats stats = of(e.getValue());
+            total = total.plus(stats);
+            entries.add(new AbstractMap.SimpleImmutableEntry
+                    <String, MemoryStats>(e.getKey(), stats));
+        }
+        Collections.sort(entries,
+                new Comparator<Map.Entry<String, MemoryStats>>() {
+            @Override
+            public int compare(final Map.Entry<String, MemoryStats> e1,
+                    final Map.Entry<String, MemoryStats> e2) {
+                return Long.compare(e2.getValue().total(),
+                        e1.getValue().total());
+            }
+        });
+        final StringBuilder sb = new StringBuilder();
+        for (final Map.Entry<String, MemoryStats> e: entries) {
+            sb.append(e.getKey()).append(": ")
+                .append(e.getValue()).append('\n');
+        }
+        return sb.append("total: ").append(total).append('\n').toString();
+    }
+
+
+
+    /**************************************************************************\
+     *  Getters
+    \**************************************************************************/
+
+    /**
+     * Returns the estimated bytes used in the given category.
+     */
+    public long get(final Category category) {
+        return bytes[category.ordinal()];
+    }
+
+    /**
+     * Returns the estimated bytes used in every category.
+     */
+    public long total() {
+        long total = 0L;
+        for (final long b: bytes) {
+            total += b;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of relations measured by this estimate.
+     */
+    public int relations() {
+        return relations;
+    }
+
+    /**
+     * Returns the sum of this estimate and the given one.
+     */
+    public MemoryStats plus(final MemoryStats stats) {
+        if (stats.relations == 0) { return this; }
+        if (this.relations == 0) { return stats; }
+        final long[] sum = new long[bytes.length];
+        for (int i = 0; i < sum.length; ++i) {
+            sum[i] = this.bytes[i] + stats.bytes[i];
+        }
+        return new MemoryStats(sum, this.relations + stats.relations);
+    }
+
+
+
+    /**************************************************************************\
+     *  Equals, HashCode & ToString
+    \**************************************************************************/
+
+    /**
+     *  Returns a string representation of the object.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(total()).append(" bytes");
+        if (relations > 1) { sb.append(" in ").append(relations); }
+        sb.append(" {");
+        boolean sep = false;
+        for (final Category c: Category.values()) {
+            if (bytes[c.ordinal()] == 0L) { continue; }
+            if (sep) { sb.append(", "); }
+            sb.append(c.name().toLowerCase()).append('=')
+                .append(bytes[c.ordinal()]);
+            sep = true;
+        }
+        return sb.append('}').toString();
+    }
+
+
+
+    /**************************************************************************\
+     *  Layout Estimates
+    \**************************************************************************/
+
+    /** Returns the size of an object with the given fields. */
+    static long object(final int references, final int primitiveBytes) {
+        return align(HEADER + (long) references * REFERENCE + primitiveBytes);
+    }
+
+    /** Returns the size of an array of {@code n} elements. */
+    static long array(final long n, final int elementBytes) {
+        return align(HEADER + 4 + n * elementBytes);
+    }
+
+    /** Returns the size of a view object, such as a key set. */
+    static long view() {
+        return object(1, 0);
+    }
+
+    /**
+     * Returns the size of a {@code HashMap} and its table, without its
+     * entries, with the given number of entries, that was created with
+     * the given capacity.
+     */
+    static long hashMap(final int size, final int initialCapacity) {
+        return object(4, 16) + hashTable(size, initialCapacity);
+    }
+
+    /** Returns the size of a {@code HashMap} entry. */
+    static long hashEntry() {
+        return object(3, 4);
+    }
+
+    /**
+     * Returns the size of a {@code HashSet}, with its map, table
+     * and entries, with the given number of elements, that was
+     * created with the given capacity.
+     */
+    static long hashSet(final int size, final int initialCapacity) {
+        return view() + hashMap(size, initialCapacity) + size * hashEntry();
+    }
+
+    /** */
+    private static long hashTable(final int size, final int initialCapacity) {
+        if (size == 0) { return 0L; }
+        int capacity = Math.max(1, Integer.highestOneBit(
+                Math.max(1, initialCapacity) - 1) << 1);
+        while (size > capacity * 3L / 4) { capacity <<= 1; }
+        return array(capacity, REFERENCE);
+    }
+
+    /** Rounds the given size up to a multiple of 8 bytes. */
+    private static long align(final long size) {
+        return (size + 7L) & ~7L;
+    }
+
+
+
+    /**************************************************************************\
+     *  Nested Classes
+    \**************************************************************************/
+
+    /**
+     * Accumulates the bytes used in each category.
+     */
+    static final class Builder {
+        private final long[] bytes = new long[Category.values().length];
+
+        /** */
+        Builder add(final Category category, final long size) {
+            bytes[category.ordinal()] += size;
+            return this;
+        }
+
+        /** */
+        Builder add(final MemoryStats stats) {
+            for (int i = 0; i < bytes.length; ++i) {
+                bytes[i] += stats.bytes[i];
+            }
+            return this;
+        }
+
+        /** */
+        MemoryStats build() {
+            return new MemoryStats(bytes.clone(), 1);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import static org.bitbucket.rel4j.Check.checkArgument;
+import static org.bitbucket.rel4j.Check.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+
+/**
+ * A conjunctive query over several relations, evaluated by a
+ * worst-case-optimal generic join.
+ * The query has a fixed number of variables, numbered from {@code 0},
+ * and a list of atoms, each binding the keys and values of a relation
+ * to two variables. For instance, the triangles of {@code r1(a, b)},
+ * {@code r2(b, c)} and {@code r3(a, c)} are found by
+ * 
+ * <pre>{@code
+ *     new MultiJoin(3)
+ *         .atom(r1, 0, 1)
+ *         .atom(r2, 1, 2)
+ *         .atom(r3, 0, 2)
+ *         .run(binding -> ...);}
+ * </pre>
+ * 
+ * Variables are bound one at a time, in increasing order. The candidates
+ * for a variable are the intersection of one set per atom mentioning it:
+ * the values (resp. keys) of the bound key (resp. value) of the atom,
+ * or all the keys (resp. values) of its relation if the other variable
+ * is not bound yet. The intersection enumerates the smallest set and
+ * probes the relations for the others, so that no intermediate result
+ * larger than the output bound of the query is ever built, unlike
+ * chained compositions.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public final class MultiJoin {
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The number of variables. */
+    private final int variables;
+
+    /** The atoms of the query. */
+    private final List<Atom> atoms = new ArrayList<Atom>();
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Parameter constructor of class MultiJoin.
+     *  
+     *  @param variables The number of variables of the query.
+     *  @throws IllegalArgumentException if the number is not positive.
+     */
+    public MultiJoin(final int variables) {
+        checkArgument("no variables", variables > 0);
+        this.variables = variables;
+    }
+
+
+
+    /**************************************************************************\
+     *  Public Methods
+    \**************************************************************************/
+
+    /**
+     * Adds an atom to the query, binding the keys of the relation to the
+     * variable {@code key} and its values to the variable {@code value}.
+     * Both may be the same variable.
+     * 
+     * @return This query.
+     * @throws NullPointerException if the relation is {@code null}.
+     * @throws IllegalArgumentException if a variable is out of range.
+     */
+    public MultiJoin atom(final Relation<?, ?> r, final int key,
+            final int value) {
+        checkNotNull(r);
+        checkArgument("no such variable", key >= 0 && key < variables);
+        checkArgument("no such variable", value >= 0 && value < variables);
+        atoms.add(new Atom(r, key, value));
+        return this;
+    }
+
+
+    /**
+     * Evaluates the query, passing each binding of the variables that
+     * satisfies every atom to the consumer. The array passed to the
+     * consumer is reused between calls, and must be copied to be kept.
+     * 
+     * @return The number of bindings passed to the consumer.
+     * @throws NullPointerException if the consumer is {@code null}.
+     * @throws IllegalArgumentException if a variable is not mentioned
+     * by any atom.
+     */
+    public long run(final Consumer<? super Object[]> consumer) {
+        checkNotNull(consumer);
+        final Atom[][] byVariable = new Atom[variables][];
+        for (int v = 0; v < variables; ++v) {
+            final List<Atom> list = new ArrayList<Atom>();
+            for (final Atom atom: atoms) {
+                if (atom.key == v || atom.value == v) { list.add(atom); }
+            }
+            checkArgument("unconstrained variable", !list.isEmpty());
+            byVariable[v] = list.toArray(new Atom[list.size()]);
+        }
+        return bind(0, byVariable, new Object[variables], consumer);
+    }
+
+
+    /**
+     * Evaluates the query, returning the number of bindings
+     * that satisfy every atom.
+     */
+    public long count() {
+        return run(binding -> {});
+    }
+
+
+    /**
+     * Evaluates the query, returning a copy of each binding
+     * that satisfies every atom.
+     */
+    public List<Object[]> collect() {
+        final List<Object[]> list = new ArrayList<Object[]>();
+        run(binding -> list.add(Arrays.copyOf(binding, binding.length)));
+        return list;
+    }
+
+
+
+    /**************************************************************************\
+     *  Private Methods
+    \**************************************************************************/
+
+    /**
+     * Binds the variable {@code v}, and the following ones, to every
+     * candidate in the intersection of the sets of its atoms.
+     */
+    private long bind(final int v, final Atom[][] byVariable,
+            final Object[] binding, final Consumer<? super Object[]> out) {
+        if (v == variables) {
+            out.accept(binding);
+            return 1L;
+        }
+        final Atom[] mine = byVariable[v];
+        Set<?> smallest = null;
+        for (final Atom atom: mine) {
+            final Set<?> set = atom.candidates(v, binding);
+            if (set.isEmpty()) { return 0L; }
+            if (smallest == null || set.size() < smallest.size()) {
+                smallest = set;
+            }
+        }
+        long count = 0L;
+        for (final Object x: smallest) {
+            if (admits(mine, v, x, binding)) {
+                binding[v] = x;
+                count += bind(v + 1, byVariable, binding, out);
+            }
+        }
+        binding[v] = null;
+        return count;
+    }
+
+
+    /** Determines whether every atom accepts {@code x} for {@code v}. */
+    private static boolean admits(final Atom[] atoms, final int v,
+            final Object x, final Object[] binding) {
+        for (final Atom atom: atoms) {
+            if (!atom.admits(v, x, binding)) { return false; }
+        }
+        return true;
+    }
+
+
+
+    /**************************************************************************\
+     *  Nested Classes
+    \**************************************************************************/
+
+    /** A relation, with the variables bound to its keys and values. */
+    private static final class Atom {
+        private final Relation<?, ?> relation;
+        private final int key;
+        private final int value;
+
+        /** */
+        Atom(final Relation<?, ?> relation, final int key, final int value) {
+            this.relation = relation;
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * Returns the candidates of this atom for the variable {@code v},
+         * given the bindings of the variables before it.
+         */
+        Set<?> candidates(final int v, final Object[] binding) {
+            if (v == key) {
+                return value < v ? relation.keysOf(binding[value])
+                        : relation.keys();
+            }
+            return key < v ? relation.valuesOf(binding[key])
+                    : relation.values();
+        }
+
+        /**
+         * Determines whether this atom accepts {@code x} for the variable
+         * {@code v}, given the bindings of the variables before it.
+         */
+        boolean admits(final int v, final Object x, final Object[] binding) {
+            if (key == value) {
+                return relation.contains(x, x);
+            } else if (v == key) {
+                return value < v ? relation.contains(x, binding[value])
+                        : relation.containsKey(x);
+            }
+            return key < v ? relation.contains(binding[key], x)
+                    : relation.containsValue(x);
+        }
+    }
+}
@@ -143,6 +143,30 @@ final class MutableConverseView<B, A>
 
 
 
+    /*************************************************************************\
+     *  Transaction Methods
+    \*************************************************************************/
+
+    /** */
+    @Override
+    public void begin() {
+        relation().begin();
+    }
+
+    /** */
+    @Override
+    public void commit() {
+        relation().commit();
+    }
+
+    /** */
+    @Override
+    public void rollback() {
+        relation().rollback();
+    }
+
+
+
     /*************************************************************************\
      *  Nested Classes
     \*************************************************************************/
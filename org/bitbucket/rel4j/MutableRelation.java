@@ -120,4 +120,35 @@ public interface MutableRelation<A, B> extends Relation<A, B> {
      * Removes all arrows in the relation.
      */
     void clear();
+
+
+
+    /*************************************************************************\
+     *  Transaction Methods
+    \*************************************************************************/
+
+    /**
+     * Starts a transaction. Every arrow added or removed from now on,
+     * including arrows implicitly evicted to keep the relation simple or
+     * injective, is recorded, until {@code commit()} or {@code rollback()}.
+     * 
+     * @throws IllegalStateException if a transaction is already active.
+     */
+    void begin();
+
+    /**
+     * Ends the active transaction, keeping its modifications.
+     * 
+     * @throws IllegalStateException if no transaction is active.
+     */
+    void commit();
+
+    /**
+     * Ends the active transaction, undoing its modifications.
+     * The cost is proportional to the number of arrows the transaction
+     * added or removed, not to the size of the relation.
+     * 
+     * @throws IllegalStateException if no transaction is active.
+     */
+    void rollback();
 }
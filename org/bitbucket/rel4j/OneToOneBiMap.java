@@ -29,6 +29,9 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
+import org.bitbucket.rel4j.MemoryStats.Category;
+import org.bitbucket.rel4j.RelationMetrics.Operation;
+
 
 /**
  * Provides an implementation of a standard mutable binary relation,
@@ -50,6 +53,10 @@ public final class OneToOneBiMap<A, B> extends AbstractMutableRelation<A, B> {
     private final Map<A, B> keyValue;
     private final Map<B, A> valueKey;
 
+    /** The unmodifiable views of the domain and range. */
+    private final Set<A> keySet;
+    private final Set<B> valueSet;
+
     /** The number of key-value entries. */
     private transient int size;
 
@@ -65,6 +72,8 @@ public final class OneToOneBiMap<A, B> extends AbstractMutableRelation<A, B> {
     public OneToOneBiMap() {
         keyValue = new HashMap<A, B>();
         valueKey = new HashMap<B, A>();
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
     }
 
 
@@ -75,6 +84,8 @@ public final class OneToOneBiMap<A, B> extends AbstractMutableRelation<A, B> {
         assert initialCapacity > 0;
         keyValue = new HashMap<A, B>(initialCapacity);
         valueKey = new HashMap<B, A>(initialCapacity);
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
     }
 
 
@@ -85,6 +96,8 @@ public final class OneToOneBiMap<A, B> extends AbstractMutableRelation<A, B> {
         super(dom, ran);
         keyValue = new HashMap<A, B>();
         valueKey = new HashMap<B, A>();
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
     }
 
 
@@ -96,6 +109,23 @@ public final class OneToOneBiMap<A, B> extends AbstractMutableRelation<A, B> {
         super(dom, ran);
         keyValue = new HashMap<A, B>(initialCapacity);
         valueKey = new HashMap<B, A>(initialCapacity);
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
+    }
+
+
+    /**
+     *  Parameter constructor of class OneToOneBiMap.
+     *  
+     *  @param metrics The sink this relation reports its operations to.
+     */
+    public OneToOneBiMap(final Domain<A> dom, final Domain<B> ran,
+            final RelationMetrics metrics) {
+        super(dom, ran, metrics);
+        keyValue = new HashMap<A, B>();
+        valueKey = new HashMap<B, A>();
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
     }
 
 
@@ -112,66 +142,54 @@ public final class OneToOneBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public Set<A> keys() {
-        return Collections.unmodifiableSet(keyValue.keySet());
+        return keySet;
     }
 
 
     @Override
     public Set<A> keysOf(final Object b) {
+        recordOperation(Operation.KEYS_OF);
         return Sets.cappedSingleton(valueKey.get(b));
     }
 
 
     @Override
     public A keyOf(final Object b) {
+        recordOperation(Operation.KEYS_OF);
         return valueKey.get(b);
     }
 
 
     @Override
-    public Set<A> keysFor(Iterable<?> bs) {
-        if (bs == null) { bs = Collections.emptySet(); }
-        final Set<A> set = Sets.<A>empty();
-        for (final Object b: bs) {
-            final A key = valueKey.get(b);
-            if (key != null) {
-                set.add(key);
-            }
-        }
-        return Collections.unmodifiableSet(set);
+    public Set<A> keysFor(final Iterable<?> bs) {
+        return UnionSet.ofKeys(this, bs);
     }
 
 
 
     @Override
     public Set<B> values() {
-        return Collections.unmodifiableSet(valueKey.keySet());
+        return valueSet;
     }
 
 
     @Override
     public Set<B> valuesOf(final Object a) {
+        recordOperation(Operation.VALUES_OF);
         return Sets.cappedSingleton(keyValue.get(a));
     }
 
 
     @Override
     public B valueOf(final Object a) {
+        recordOperation(Operation.VALUES_OF);
         return keyValue.get(a);
     }
 
 
     @Override
-    public Set<B> valuesFor(Iterable<?> as) {
-        if (as == null) { as = Collections.emptySet(); }
-        final Set<B> set = Sets.<B>empty();
-        for (final Object a: as) {
-            B value = keyValue.get(a);
-            if (value != null) {
-                set.add(value);
-            }
-        }
-        return Collections.unmodifiableSet(set);
+    public Set<B> valuesFor(final Iterable<?> as) {
+        return UnionSet.ofValues(this, as);
     }
 
 
@@ -181,6 +199,23 @@ public final class OneToOneBiMap<A, B> extends AbstractMutableRelation<A, B> {
     }
 
 
+    /**
+     * Returns an estimate of the memory used by this relation,
+     * excluding its keys and values.
+     */
+    @Override
+    public MemoryStats memoryFootprint() {
+        final int cap = MemoryStats.MAP_CAPACITY;
+        return new MemoryStats.Builder()
+            .add(Category.RELATION, shallowSize(4, 4)
+                    + 4 * MemoryStats.view())
+            .add(Category.MAPS, MemoryStats.hashMap(size, cap)
+                    + MemoryStats.hashMap(size, cap))
+            .add(Category.ENTRIES, 2L * size * MemoryStats.hashEntry())
+            .build();
+    }
+
+
 
     /* ************************************************************************\
      *  Predicates
@@ -205,21 +240,24 @@ public final class OneToOneBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public boolean contains(final Object a, final Object b) {
-        if (a == null || b == null) { return false; }
+        recordOperation(Operation.CONTAINS);
+        if (a == null || b == null || !mightContain(a, b)) { return false; }
         return b.equals(keyValue.get(a));
     }
 
 
     @Override
     public boolean containsKey(final Object a) {
-        if (a == null) { return false; }
+        recordOperation(Operation.CONTAINS);
+        if (a == null || !mightContainKey(a)) { return false; }
         return keyValue.get(a) != null;
     }
 
 
     @Override
     public boolean containsValue(final Object b) {
-        if (b == null) { return false; }
+        recordOperation(Operation.CONTAINS);
+        if (b == null || !mightContainValue(b)) { return false; }
         return valueKey.get(b) != null;
     }
 
@@ -286,12 +324,17 @@ public final class OneToOneBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public boolean remove(final Object a, final Object b) {
+        checkMutable();
+        recordOperation(Operation.REMOVE);
         if (a == null || b == null) { return false; }
         final B prev = keyValue.get(a);
         if (prev != null && prev.equals(b)) {
             --size;
+            pairRemoved(a, b);
             keyValue.remove(a);
             valueKey.remove(b);
+            keyRemoved(a);
+            valueRemoved(b);
             return true;
         }
         return false;
@@ -307,7 +350,7 @@ public final class OneToOneBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public Set<B> removeKeys(Iterable<?> as) {
-        if (as == null) { as = Collections.emptySet(); }
+        as = Sets.elements(as);
         final Set<B> set = Sets.<B>empty();
         for (final Object a: as) {
             final B b = doRemoveKey(a);
@@ -326,7 +369,7 @@ public final class OneToOneBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public Set<A> removeValues(Iterable<?> bs) {
-        if (bs == null) { bs = Collections.emptySet(); }
+        bs = Sets.elements(bs);
         final Set<A> set = Sets.<A>empty();
         for (final Object b: bs) {
             final A a = doRemoveValue(b);
@@ -338,43 +381,86 @@ public final class OneToOneBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public void clear() {
+        checkMutable();
+        recordOperation(Operation.CLEAR);
         size            = 0;
+        pairsCleared();
         keyValue.clear();
         valueKey.clear();
     }
 
 
 
+    /**************************************************************************\
+     *  Package Methods
+    \**************************************************************************/
+
+    /**
+     * Loads the pair {@code (a, b)}, where neither {@code a} nor {@code b}
+     * may be present yet. Used by {@code RelationCodec}, it skips the
+     * lookups of {@code put(Object, Object)}.
+     */
+    void loadPair(final A a, final B b) {
+        keyValue.put(a, b);
+        valueKey.put(b, a);
+        ++size;
+        keyAdded(a);
+        valueAdded(b);
+        pairAdded(a, b);
+    }
+
+
+
     /**************************************************************************\
      *  Private Methods
     \**************************************************************************/
 
     /** */
     private boolean doPut(final A a, final B b) {
+        checkMutable();
+        recordOperation(Operation.PUT);
+        int evicted = 0;
         final B prevB = keyValue.put(a, b);
         if (prevB == null) {
             ++size;
+            keyAdded(a);
         } else if (prevB.equals(b)) {
             return false;
         } else {
+            pairRemoved(a, prevB);
             valueKey.remove(prevB);
+            valueRemoved(prevB);
+            ++evicted;
         }
         final A prevA = valueKey.put(b, a);
-        if (prevA != null) {
+        if (prevA == null) {
+            valueAdded(b);
+        } else {
             --size;
+            pairRemoved(prevA, b);
             keyValue.remove(prevA);
+            keyRemoved(prevA);
+            ++evicted;
         }
+        pairAdded(a, b);
+        if (evicted > 0) { recordEviction(evicted); }
+        recordDegree(1, 1);
         return true;
     }
 
 
     /** */
     private B doRemoveKey(final Object a) {
+        checkMutable();
+        recordOperation(Operation.REMOVE);
         if (a == null) { return null; }
         final B b = keyValue.remove(a);
         if (b != null) {
             --size;
+            pairRemoved(a, b);
             valueKey.remove(b);
+            keyRemoved(a);
+            valueRemoved(b);
         }
         return b;
     }
@@ -382,11 +468,16 @@ public final class OneToOneBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     /** */
     private A doRemoveValue(final Object b) {
+        checkMutable();
+        recordOperation(Operation.REMOVE);
         if (b == null) { return null; }
         final A a = valueKey.remove(b);
         if (a != null) {
             --size;
+            pairRemoved(a, b);
             keyValue.remove(a);
+            keyRemoved(a);
+            valueRemoved(b);
         }
         return a;
     }
@@ -425,9 +516,14 @@ public final class OneToOneBiMap<A, B> extends AbstractMutableRelation<A, B> {
         /** */
         @Override
         public void remove() {
+            checkMutable();
+            recordOperation(Operation.REMOVE);
             iterator.remove();
             --size;
+            pairRemoved(current.getKey(), current.getValue());
             valueKey.remove(current.getValue());
+            keyRemoved(current.getKey());
+            valueRemoved(current.getValue());
         }
     }
 }
@@ -95,6 +95,28 @@ public final class Pair<A, B> {
 
 
 
+    /*************************************************************************\
+     *  Static Methods
+    \*************************************************************************/
+
+    /**
+     * Combines the hash codes of the components of a pair.
+     * The first hash is spread by a multiplicative constant before it
+     * is added to the second, and the sum goes through the finalizer
+     * of MurmurHash3, so that every input bit affects every output bit.
+     */
+    static int hash(final int a, final int b) {
+        int h = 0x9E3779B9 * a + b;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+
+
     /*************************************************************************\
      *  Equals, HashCode & ToString
     \*************************************************************************/
@@ -126,13 +148,18 @@ public final class Pair<A, B> {
      *      Function: two equal objects have the same (unique) hash code.
      *
      *  Formula:
-     *      (first()    == null ? 0 : first().hashCode()) ^
-     *      (second()   == null ? 0 : second().hashCode())
+     *      hash(first()    == null ? 0 : first().hashCode(),
+     *           second()   == null ? 0 : second().hashCode())
+     *
+     *  Unlike {@code first().hashCode() ^ second().hashCode()}, this hash
+     *  is not symmetric, and it does not map every pair {@code (x, x)}
+     *  to zero. The hash of a relation is the sum of the hashes of its
+     *  pairs.
      */
     @Override
     public int hashCode() {
-        return (first == null ? 0 : first.hashCode()) ^
-                (second == null ? 0 : second.hashCode());
+        return hash(first == null ? 0 : first.hashCode(),
+                second == null ? 0 : second.hashCode());
     }
 
 
@@ -0,0 +1,402 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import static org.bitbucket.rel4j.Check.checkNotNull;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * An immutable, persistent binary relation.
+ * Instead of being modified, a relation is updated with
+ * {@code with(Object, Object)} and {@code without(Object, Object)},
+ * which return a new version in {@code O(log n)} time. The versions
+ * share every part of their structure that the update did not touch,
+ * so keeping many versions alive is cheap.
+ * 
+ * Both directions are indexed by hash array mapped tries: one maps each
+ * key to the trie of its values, the other each value to the trie of
+ * its keys. The sets returned by {@code keys()}, {@code keysOf(Object)},
+ * {@code values()} and {@code valuesOf(Object)} are those tries,
+ * which are immutable themselves.
+ * 
+ * This implementation does not accept {@code null} keys or values.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public final class PersistentRelation<A, B> extends AbstractRelation<A, B> {
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The type of this relation's domain. */
+    private final Domain<A> domainType;
+
+    /** The type of this relation's range. */
+    private final Domain<B> rangeType;
+
+    /** The trie storages. */
+    private final Hamt<A, Hamt<B, Boolean>> keyValue;
+    private final Hamt<B, Hamt<A, Boolean>> valueKey;
+
+    /** The number of key-value entries. */
+    private final int size;
+
+    /** The sum of the hashes of every pair in the relation. */
+    private final int hash;
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Parameter constructor of class PersistentRelation.
+     */
+    private PersistentRelation(final Domain<A> dom, final Domain<B> ran,
+            final Hamt<A, Hamt<B, Boolean>> keyValue,
+            final Hamt<B, Hamt<A, Boolean>> valueKey,
+            final int size, final int hash) {
+        this.domainType = dom;
+        this.rangeType  = ran;
+        this.keyValue   = keyValue;
+        this.valueKey   = valueKey;
+        this.size       = size;
+        this.hash       = hash;
+    }
+
+
+    /**
+     * Returns an empty relation, with unrestricted domain and range types.
+     */
+    public static <A, B> PersistentRelation<A, B> empty() {
+        return empty(new Domain<A>(), new Domain<B>());
+    }
+
+    /**
+     * Returns an empty relation, with the given domain and range types.
+     * 
+     * @throws NullPointerException if any argument is {@code null}.
+     */
+    public static <A, B> PersistentRelation<A, B> empty(
+            final Domain<A> dom, final Domain<B> ran) {
+        checkNotNull(dom);
+        checkNotNull(ran);
+        return new PersistentRelation<A, B>(dom, ran,
+                Hamt.<A, Hamt<B, Boolean>>empty(),
+                Hamt.<B, Hamt<A, Boolean>>empty(), 0, 0);
+    }
+
+    /**
+     * Returns a persistent relation with the pairs of the given relation,
+     * and the same domain and range types.
+     * Persistent relations are returned as they are.
+     * 
+     * @throws NullPointerException if the argument is {@code null}.
+     */
+    public static <A, B> PersistentRelation<A, B> of(final Relation<A, B> r) {
+        checkNotNull(r);
+        if (r instanceof PersistentRelation) {
+            return (PersistentRelation<A, B>) r;
+        }
+        PersistentRelation<A, B> p =
+                empty(r.getDomainType(), r.getRangeType());
+        for (final Pair<A, B> pair: r) {
+            p = p.with(pair.first(), pair.second());
+        }
+        return p;
+    }
+
+
+
+    /* ************************************************************************\
+     *  Getters
+    \* ************************************************************************/
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    @Override
+    public Set<A> keys() {
+        return keyValue;
+    }
+
+
+    @Override
+    public Set<A> keysOf(final Object b) {
+        final Set<A> as = valueKey.get(b);
+        return as == null ? Collections.<A>emptySet() : as;
+    }
+
+
+    @Override
+    public A keyOf(final Object b) {
+        final Set<A> as = valueKey.get(b);
+        if (as == null || as.size() > 1) { return null; }
+        return as.iterator().next();
+    }
+
+
+    @Override
+    public Set<A> keysFor(final Iterable<?> bs) {
+        return UnionSet.ofKeys(this, bs);
+    }
+
+
+
+    @Override
+    public Set<B> values() {
+        return valueKey;
+    }
+
+
+    @Override
+    public Set<B> valuesOf(final Object a) {
+        final Set<B> bs = keyValue.get(a);
+        return bs == null ? Collections.<B>emptySet() : bs;
+    }
+
+
+    @Override
+    public B valueOf(final Object a) {
+        final Set<B> bs = keyValue.get(a);
+        if (bs == null || bs.size() > 1) { return null; }
+        return bs.iterator().next();
+    }
+
+
+    @Override
+    public Set<B> valuesFor(final Iterable<?> as) {
+        return UnionSet.ofValues(this, as);
+    }
+
+
+    @Override
+    public Domain<A> getDomainType() {
+        return domainType;
+    }
+
+    @Override
+    public Domain<B> getRangeType() {
+        return rangeType;
+    }
+
+
+    /**
+     * Returns an iterator over the pairs of this relation.
+     * The iterator does not support removal.
+     */
+    @Override
+    public Iterator<Pair<A, B>> iterator() {
+        return new PersistentRelationIterator();
+    }
+
+
+
+    /* ************************************************************************\
+     *  Predicates
+    \* ************************************************************************/
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean isSimple() {
+        return keyValue.size() == size;
+    }
+
+    @Override
+    public boolean isInjective() {
+        return valueKey.size() == size;
+    }
+
+    @Override
+    public boolean isEntire() {
+        return domainType.isEntire(keyValue);
+    }
+
+    @Override
+    public boolean isSurjective() {
+        return rangeType.isEntire(valueKey);
+    }
+
+
+    @Override
+    public boolean contains(final Object a, final Object b) {
+        final Hamt<B, Boolean> bs = keyValue.get(a);
+        return bs != null && bs.contains(b);
+    }
+
+
+    @Override
+    public boolean containsKey(final Object a) {
+        return keyValue.contains(a);
+    }
+
+
+    @Override
+    public boolean containsValue(final Object b) {
+        return valueKey.contains(b);
+    }
+
+
+
+    /* ************************************************************************\
+     *  Persistent Updates
+    \* ************************************************************************/
+
+    /**
+     * Returns a relation with the pairs of this one, plus {@code (a, b)}.
+     * Returns this relation if it already contains the pair.
+     * 
+     * @throws NullPointerException if any argument is {@code null}.
+     */
+    public PersistentRelation<A, B> with(final A a, final B b) {
+        checkNotNull(a);
+        checkNotNull(b);
+        Hamt<B, Boolean> bs = keyValue.get(a);
+        if (bs == null) {
+            bs = Hamt.<B, Boolean>empty();
+        } else if (bs.contains(b)) {
+            return this;
+        }
+        Hamt<A, Boolean> as = valueKey.get(b);
+        if (as == null) { as = Hamt.<A, Boolean>empty(); }
+        return new PersistentRelation<A, B>(domainType, rangeType,
+                keyValue.with(a, bs.with(b, Boolean.TRUE)),
+                valueKey.with(b, as.with(a, Boolean.TRUE)),
+                size + 1, hash + pairHash(a, b));
+    }
+
+
+    /**
+     * Returns a relation with the pairs of this one, except {@code (a, b)}.
+     * Returns this relation if it does not contain the pair.
+     */
+    public PersistentRelation<A, B> without(final Object a, final Object b) {
+        final Hamt<B, Boolean> bs = keyValue.get(a);
+        if (bs == null || !bs.contains(b)) { return this; }
+        final Hamt<A, Boolean> as = valueKey.get(b);
+        return new PersistentRelation<A, B>(domainType, rangeType,
+                shrink(keyValue, a, bs.without(b)),
+                shrink(valueKey, b, as.without(a)),
+                size - 1, hash - pairHash(a, b));
+    }
+
+
+
+    /* ************************************************************************\
+     *  Equals, HashCode & ToString
+    \* ************************************************************************/
+
+    /**
+     * Returns the hash code of this relation, as specified by
+     * {@code Relation.hashCode()}.
+     * The hash code is maintained by every update.
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+
+
+    /**************************************************************************\
+     *  Protected Methods
+    \**************************************************************************/
+
+    /** Returns {@code true}. */
+    @Override
+    protected boolean isHashCodeMaintained() {
+        return true;
+    }
+
+
+
+    /**************************************************************************\
+     *  Private Methods
+    \**************************************************************************/
+
+    /**
+     * Replaces the row of a present element, which is known to be equal
+     * to {@code o}, or drops the element if its row became empty.
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, E> Hamt<K, Hamt<E, Boolean>> shrink(
+            final Hamt<K, Hamt<E, Boolean>> map, final Object o,
+            final Hamt<E, Boolean> row) {
+        if (row.isEmpty()) { return map.without(o); }
+        return map.with((K) o, row);
+    }
+
+
+
+    /**************************************************************************\
+     *  Nested Classes
+    \**************************************************************************/
+
+    /** */
+    private final class PersistentRelationIterator
+            implements Iterator<Pair<A, B>> {
+        private final Hamt.Cursor<A, Hamt<B, Boolean>> keys =
+                new Hamt.Cursor<A, Hamt<B, Boolean>>(keyValue);
+        private Iterator<B> values = Collections.<B>emptySet().iterator();
+
+        /** */
+        @Override
+        public boolean hasNext() {
+            while (!values.hasNext()) {
+                if (!keys.advance()) { return false; }
+                values = keys.value().iterator();
+            }
+            return true;
+        }
+
+        /** */
+        @Override
+        public Pair<A, B> next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            return new Pair<A, B>(keys.key(), values.next());
+        }
+
+        /** */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
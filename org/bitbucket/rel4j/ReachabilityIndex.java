@@ -0,0 +1,446 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * An index over a relation {@code r} between elements of the same type,
+ * which answers whether {@code c} is reachable from {@code a}, that is,
+ * whether {@code (a, c)} is in the reflexive transitive closure
+ * {@code r*}, without computing the closure.
+ * 
+ * The strongly connected components of the relation are found with
+ * Tarjan's algorithm, and collapsed into a directed acyclic graph.
+ * Every component gets a height (the length of the longest path below
+ * it) and two interval labels, from depth-first traversals of the graph
+ * in opposite orders. Since an element can only reach elements below it
+ * whose intervals are nested in its own, most negative queries are
+ * answered by comparing a few integers; queries within a traversal
+ * subtree are answered positively in the same way. The remaining queries
+ * fall back to a depth-first search of the condensed graph, which the
+ * same labels prune. Building the index takes linear time in the size
+ * of the relation.
+ * 
+ * The index is a snapshot. If the relation is an
+ * {@code AbstractMutableRelation}, which counts its modifications,
+ * every query checks whether that count changed, and rebuilds the index
+ * if so. For other relations, {@code refresh()} must be called after
+ * they change, and only detects changes to their size or hash code.
+ * Queries may run concurrently with one another, and with a rebuild.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ * @see Relations#reachability(Relation)
+ */
+
+public final class ReachabilityIndex<A> {
+
+    /**************************************************************************\
+     *  Fields
+    \**************************************************************************/
+
+    /** The number of interval labels of each component. */
+    private static final int LABELINGS = 2;
+
+
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The indexed relation. */
+    private final Relation<A, A> relation;
+
+    /** Whether changes to the relation are detected on every query. */
+    private final boolean tracked;
+
+    /** The current snapshot of the relation. */
+    private volatile Snapshot snapshot;
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Parameter constructor of class ReachabilityIndex.
+     */
+    ReachabilityIndex(final Relation<A, A> r) {
+        this.relation = r;
+        this.tracked  = r instanceof AbstractMutableRelation;
+        this.snapshot = new Snapshot(r);
+    }
+
+
+
+    /**************************************************************************\
+     *  Public Methods
+    \**************************************************************************/
+
+    /**
+     * Determines whether {@code c} is reachable from {@code a}, through
+     * zero or more pairs of the relation. Every element reaches itself.
+     */
+    public boolean reachable(final Object a, final Object c) {
+        if (a == null || c == null) { return false; }
+        if (a.equals(c)) { return true; }
+        if (tracked) { refresh(); }
+        return snapshot.reachable(a, c);
+    }
+
+
+    /**
+     * Rebuilds the index if the relation changed since it was built.
+     * The modification count of an {@code AbstractMutableRelation}
+     * detects any change; for other relations, only changes to the size
+     * or hash code are detected.
+     * 
+     * @return {@code true} if the index was rebuilt.
+     */
+    public boolean refresh() {
+        final Snapshot s = snapshot;
+        if (s.size == relation.size() && s.stamp == stamp(relation)) {
+            return false;
+        }
+        rebuild();
+        return true;
+    }
+
+
+    /**
+     * Rebuilds the index from the current pairs of the relation.
+     */
+    public void rebuild() {
+        snapshot = new Snapshot(relation);
+    }
+
+
+    /**
+     * Returns the number of strongly connected components
+     * of the indexed snapshot, counting isolated elements.
+     */
+    public int components() {
+        return snapshot.height.length;
+    }
+
+
+
+    /**************************************************************************\
+     *  Private Methods
+    \**************************************************************************/
+
+    /**
+     * Returns the modification count of the relation if it has one,
+     * and its hash code otherwise.
+     */
+    private static int stamp(final Relation<?, ?> r) {
+        if (r instanceof AbstractMutableRelation) {
+            return ((AbstractMutableRelation<?, ?>) r).modificationCount();
+        }
+        return r.hashCode();
+    }
+
+
+
+    /**************************************************************************\
+     *  Nested Classes
+    \**************************************************************************/
+
+    /** The immutable index of a relation at some point. */
+    private static final class Snapshot {
+
+        /** The size and stamp of the relation when indexed. */
+        private final int size;
+        private final int stamp;
+
+        /** The component of each element. */
+        private final Map<Object, Integer> component;
+
+        /** The condensed graph, as compressed adjacency lists. */
+        private final int[] start;
+        private final int[] successors;
+
+        /** The length of the longest path from each component. */
+        private final int[] height;
+
+        /**
+         * The interval labels: the post-order rank of each component,
+         * the first rank of its traversal subtree, and the lowest rank
+         * of every component below it.
+         */
+        private final int[][] post = new int[LABELINGS][];
+        private final int[][] first = new int[LABELINGS][];
+        private final int[][] low = new int[LABELINGS][];
+
+        /** */
+        Snapshot(final Relation<?, ?> r) {
+            this.size = r.size();
+            this.stamp = stamp(r);
+            // number the elements, and list their successors
+            final Map<Object, Integer> ids = new HashMap<Object, Integer>();
+            for (final Object a: r.keys()) { ids.put(a, ids.size()); }
+            for (final Object b: r.values()) {
+                if (!ids.containsKey(b)) { ids.put(b, ids.size()); }
+            }
+            final int n = ids.size();
+            final int[] nodeStart = new int[n + 1];
+            int[] edges = new int[Math.max(16, size)];
+            int m = 0;
+            for (final Object a: r.keys()) {
+                final int u = ids.get(a);
+                nodeStart[u] = m;
+                for (final Object b: Sets.id(r.valuesOf(a))) {
+                    if (m == edges.length) {
+                        edges = Arrays.copyOf(edges, m * 2);
+                    }
+                    edges[m++] = ids.get(b);
+                }
+            }
+            for (int u = r.keys().size(); u <= n; ++u) { nodeStart[u] = m; }
+            // collapse the cycles
+            final int[] comp = tarjan(n, nodeStart, edges);
+            int c = 0;
+            for (final int k: comp) { c = Math.max(c, k + 1); }
+            this.component = new HashMap<Object, Integer>(ids);
+            for (final Map.Entry<Object, Integer> e: component.entrySet()) {
+                e.setValue(comp[e.getValue()]);
+            }
+            // condense the graph; successors have lower numbers
+            final int[] memberStart = new int[c + 1];
+            for (final int k: comp) { ++memberStart[k + 1]; }
+            for (int k = 0; k < c; ++k) {
+                memberStart[k + 1] += memberStart[k];
+            }
+            final int[] members = new int[n];
+            final int[] fill = Arrays.copyOf(memberStart, c);
+            for (int u = 0; u < n; ++u) { members[fill[comp[u]]++] = u; }
+            final int[] mark = new int[c];
+            Arrays.fill(mark, -1);
+            this.start = new int[c + 1];
+            int[] succ = new int[Math.max(16, m)];
+            int e = 0;
+            this.height = new int[c];
+            for (int k = 0; k < c; ++k) {
+                start[k] = e;
+                for (int i = memberStart[k]; i < memberStart[k + 1]; ++i) {
+                    final int u = members[i];
+                    for (int j = nodeStart[u]; j < nodeStart[u + 1]; ++j) {
+                        final int w = comp[edges[j]];
+                        if (w == k || mark[w] == k) { continue; }
+                        mark[w] = k;
+                        succ[e++] = w;
+                        height[k] = Math.max(height[k], height[w] + 1);
+                    }
+                }
+            }
+            start[c] = e;
+            this.successors = Arrays.copyOf(succ, e);
+            for (int l = 0; l < LABELINGS; ++l) { label(l); }
+        }
+
+
+        /**
+         * Numbers the strongly connected components of a graph with
+         * Tarjan's algorithm, without recursion. Components are numbered
+         * as they complete, so that edges between components always go
+         * from a higher number to a lower one.
+         */
+        private static int[] tarjan(final int n, final int[] start,
+                final int[] edges) {
+            final int[] index = new int[n];
+            final int[] lowLink = new int[n];
+            final int[] comp = new int[n];
+            Arrays.fill(index, -1);
+            Arrays.fill(comp, -1);
+            final int[] stack = new int[n];
+            final int[] calls = new int[n];
+            final int[] next = new int[n];
+            int sp = 0, counter = 0, components = 0;
+            for (int s = 0; s < n; ++s) {
+                if (index[s] >= 0) { continue; }
+                int csp = 0;
+                index[s] = lowLink[s] = counter++;
+                stack[sp++] = s;
+                calls[csp] = s;
+                next[csp++] = start[s];
+                while (csp > 0) {
+                    final int u = calls[csp - 1];
+                    if (next[csp - 1] < start[u + 1]) {
+                        final int v = edges[next[csp - 1]++];
+                        if (index[v] < 0) {
+                            index[v] = lowLink[v] = counter++;
+                            stack[sp++] = v;
+                            calls[csp] = v;
+                            next[csp++] = start[v];
+                        } else if (comp[v] < 0) {
+                            lowLink[u] = Math.min(lowLink[u], index[v]);
+                        }
+                        continue;
+                    }
+                    --csp;
+                    if (lowLink[u] == index[u]) {
+                        int w;
+                        do {
+                            w = stack[--sp];
+                            comp[w] = components;
+                        } while (w != u);
+                        ++components;
+                    }
+                    if (csp > 0) {
+                        final int p = calls[csp - 1];
+                        lowLink[p] = Math.min(lowLink[p], lowLink[u]);
+                    }
+                }
+            }
+            return comp;
+        }
+
+
+        /**
+         * Computes the {@code l}-th interval labels, by a depth-first
+         * traversal of the condensed graph from its sources. Even
+         * labelings visit successors in one order, odd labelings in the
+         * opposite one.
+         */
+        private void label(final int l) {
+            final int c = height.length;
+            final boolean reverse = (l & 1) == 1;
+            final int[] po = post[l] = new int[c];
+            final int[] fi = first[l] = new int[c];
+            final int[] lo = low[l] = new int[c];
+            Arrays.fill(fi, -1);
+            final int[] calls = new int[c];
+            final int[] next = new int[c];
+            int rank = 0;
+            for (int i = 0; i < c; ++i) {
+                final int root = c - 1 - i;
+                if (fi[root] >= 0) { continue; }
+                int csp = 0;
+                fi[root] = lo[root] = rank;
+                calls[csp] = root;
+                next[csp++] = 0;
+                while (csp > 0) {
+                    final int u = calls[csp - 1];
+                    final int degree = start[u + 1] - start[u];
+                    if (next[csp - 1] < degree) {
+                        final int k = next[csp - 1]++;
+                        final int w = successors[reverse
+                                ? start[u + 1] - 1 - k : start[u] + k];
+                        if (fi[w] < 0) {
+                            fi[w] = lo[w] = rank;
+                            calls[csp] = w;
+                            next[csp++] = 0;
+                        } else {
+                            lo[u] = Math.min(lo[u], lo[w]);
+                        }
+                        continue;
+                    }
+                    --csp;
+                    po[u] = rank++;
+                    if (csp > 0) {
+                        final int p = calls[csp - 1];
+                        lo[p] = Math.min(lo[p], lo[u]);
+                    }
+                }
+            }
+        }
+
+
+        /** */
+        boolean reachable(final Object a, final Object c) {
+            final Integer u = component.get(a);
+            if (u == null) { return false; }
+            final Integer v = component.get(c);
+            if (v == null) { return false; }
+            return u.intValue() == v.intValue() || reaches(u, v);
+        }
+
+
+        /**
+         * Determines whether component {@code v} is reachable from
+         * component {@code u}, searching the condensed graph only
+         * when the labels cannot decide.
+         */
+        private boolean reaches(final int u, final int v) {
+            if (!admits(u, v)) { return false; }
+            if (covers(u, v)) { return true; }
+            final BitSet seen = new BitSet(height.length);
+            int[] stack = new int[16];
+            int sp = 0;
+            stack[sp++] = u;
+            seen.set(u);
+            while (sp > 0) {
+                final int w = stack[--sp];
+                for (int i = start[w]; i < start[w + 1]; ++i) {
+                    final int x = successors[i];
+                    if (x == v) { return true; }
+                    if (seen.get(x)) { continue; }
+                    seen.set(x);
+                    if (!admits(x, v)) { continue; }
+                    if (covers(x, v)) { return true; }
+                    if (sp == stack.length) {
+                        stack = Arrays.copyOf(stack, sp * 2);
+                    }
+                    stack[sp++] = x;
+                }
+            }
+            return false;
+        }
+
+
+        /**
+         * Returns {@code false} if the labels prove that {@code v}
+         * is not reachable from {@code u}.
+         */
+        private boolean admits(final int u, final int v) {
+            if (height[u] <= height[v]) { return false; }
+            for (int l = 0; l < LABELINGS; ++l) {
+                if (low[l][v] < low[l][u] || post[l][v] > post[l][u]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+
+        /**
+         * Returns {@code true} if {@code v} is in the traversal subtree
+         * of {@code u}, in some labeling, and so reachable from it.
+         */
+        private boolean covers(final int u, final int v) {
+            for (int l = 0; l < LABELINGS; ++l) {
+                if (first[l][u] <= post[l][v] && post[l][v] <= post[l][u]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
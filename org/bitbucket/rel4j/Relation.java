@@ -91,6 +91,10 @@ public interface Relation<A, B> extends Iterable<Pair<A, B>> {
      * This set is empty if none of the values is present in the relation,
      * or if the iterable is {@code null}.
      * This set is unmodifiable.
+     * 
+     * Implementations may compute this set lazily, as a live view of the
+     * relation. Either way, the relation may be modified while this set
+     * is being iterated, or passed to one of its bulk operations.
      */
     Set<A> keysFor(Iterable<?> bs);
 
@@ -123,6 +127,10 @@ public interface Relation<A, B> extends Iterable<Pair<A, B>> {
      * This set is empty if none of the keys is present in the relation,
      * or if the iterable is {@code null}.
      * This set is unmodifiable.
+     * 
+     * Implementations may compute this set lazily, as a live view of the
+     * relation. Either way, the relation may be modified while this set
+     * is being iterated, or passed to one of its bulk operations.
      */
     Set<B> valuesFor(Iterable<?> as);
 
@@ -254,14 +262,17 @@ public interface Relation<A, B> extends Iterable<Pair<A, B>> {
     /**
      * Returns an hash code for this relation, consistent with the
      * redefined {@code equals(Object)}.
+     * The hash code is the sum of the mixed hash codes of every pair,
+     * so it does not depend on the iteration order of the relation.
      * 
      * <pre>{@code
      *     int hash = 0;
      *     // for every (a, b):
-     *     //   hash = 31 * hash + (a.hashCode() ^ b.hashCode());
-     *     if (hash == 0 && !this.isEmpty()) { hash = 1; }
+     *     //   hash += mix(0x9E3779B9 * a.hashCode() + b.hashCode());
      *     return hash;}
      * </pre>
+     * 
+     * where {@code mix} is the 32-bit finalizer of MurmurHash3.
      */
     @Override
     int hashCode();
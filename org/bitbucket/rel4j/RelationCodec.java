@@ -0,0 +1,460 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import static org.bitbucket.rel4j.Check.checkNotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * A compact binary codec for relations.
+ * The encoding of a relation is made of:
+ * <ul>
+ * <li>a header, with the format version, whether the relation is simple
+ * and/or injective, and the number of keys, values and pairs;</li>
+ * <li>the dictionary of keys and the dictionary of values, each element
+ * written once by an {@code ElementSerializer};</li>
+ * <li>for each key, in dictionary order, its number of values and the
+ * sorted dictionary indices of its values, delta-encoded.</li>
+ * </ul>
+ * Every integer is written as a variable-length quantity, 7 bits per
+ * byte, so that most pairs take a single byte.
+ * 
+ * Relations are written and read as a stream, without intermediate
+ * copies. Reading builds a {@code OneToOneBiMap}, a {@code SimpleBiMap}
+ * or a {@code BiMap}, according to the header, loading it row by row
+ * instead of pair by pair.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public final class RelationCodec<A, B> {
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The format version. */
+    private static final int VERSION = 1;
+
+    /** The header flags. */
+    private static final int SIMPLE     = 1;
+    private static final int INJECTIVE  = 2;
+
+    /**
+     * The largest array allocated ahead of the input that fills it.
+     * Larger arrays grow as their elements are read, so that a header
+     * cannot request more memory than the input actually holds.
+     */
+    private static final int CHUNK = 4096;
+
+    /** Serializes integers as zig-zag variable-length quantities. */
+    public static final ElementSerializer<Integer> INTEGERS =
+            new ElementSerializer<Integer>() {
+        @Override
+        public void write(final DataOutput out, final Integer element)
+                throws IOException {
+            writeVarInt(out, (element << 1) ^ (element >> 31));
+        }
+
+        @Override
+        public Integer read(final DataInput in) throws IOException {
+            final int n = readVarInt(in);
+            return (n >>> 1) ^ -(n & 1);
+        }
+    };
+
+    /** Serializes longs as zig-zag variable-length quantities. */
+    public static final ElementSerializer<Long> LONGS =
+            new ElementSerializer<Long>() {
+        @Override
+        public void write(final DataOutput out, final Long element)
+                throws IOException {
+            long n = (element << 1) ^ (element >> 63);
+            while ((n & ~0x7FL) != 0L) {
+                out.writeByte((int) (n & 0x7F) | 0x80);
+                n >>>= 7;
+            }
+            out.writeByte((int) n);
+        }
+
+        @Override
+        public Long read(final DataInput in) throws IOException {
+            long n = 0L;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final int b = in.readUnsignedByte();
+                n |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) { return (n >>> 1) ^ -(n & 1); }
+            }
+            throw new IOException("Malformed variable-length quantity");
+        }
+    };
+
+    /** Serializes strings as their length and UTF-8 bytes. */
+    public static final ElementSerializer<String> STRINGS =
+            new ElementSerializer<String>() {
+        @Override
+        public void write(final DataOutput out, final String element)
+                throws IOException {
+            final byte[] bytes = element.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public String read(final DataInput in) throws IOException {
+            final int length = readVarInt(in);
+            if (length < 0) { throw malformed(); }
+            byte[] bytes = new byte[Math.min(length, CHUNK)];
+            int k = 0;
+            while (true) {
+                in.readFully(bytes, k, bytes.length - k);
+                k = bytes.length;
+                if (k == length) { break; }
+                bytes = Arrays.copyOf(bytes, grow(k, length));
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+
+    /** The element serializers. */
+    private final ElementSerializer<A> keySerializer;
+    private final ElementSerializer<B> valueSerializer;
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Parameter constructor of class RelationCodec.
+     *  
+     *  @throws NullPointerException if either serializer is {@code null}.
+     */
+    public RelationCodec(final ElementSerializer<A> keySerializer,
+            final ElementSerializer<B> valueSerializer) {
+        checkNotNull(keySerializer);
+        checkNotNull(valueSerializer);
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+    }
+
+
+
+    /**************************************************************************\
+     *  Writing
+    \**************************************************************************/
+
+    /**
+     * Writes the given relation to the output.
+     * The relation must not be modified while it is written.
+     * 
+     * @throws IOException if the output does.
+     */
+    public void write(final Relation<? extends A, ? extends B> r,
+            final DataOutput out) throws IOException {
+        doWrite(r, out);
+    }
+
+
+    /**
+     * Writes the given relation to the channel, through a buffer that
+     * is flushed before returning. The channel is not closed.
+     * 
+     * @throws IOException if the channel does.
+     */
+    public void write(final Relation<? extends A, ? extends B> r,
+            final WritableByteChannel channel) throws IOException {
+        final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel)));
+        doWrite(r, out);
+        out.flush();
+    }
+
+
+
+    /**************************************************************************\
+     *  Reading
+    \**************************************************************************/
+
+    /**
+     * Reads a relation, as written by this codec, from the input.
+     * 
+     * @throws IOException if the input does, or if it is malformed.
+     */
+    public MutableRelation<A, B> read(final DataInput in) throws IOException {
+        return doRead(in);
+    }
+
+
+    /**
+     * Reads a relation, as written by this codec, from the channel.
+     * Since the channel is read through a buffer, it may be consumed
+     * past the end of the relation. The channel is not closed.
+     * 
+     * @throws IOException if the channel does, or if it is malformed.
+     */
+    public MutableRelation<A, B> read(final ReadableByteChannel channel)
+            throws IOException {
+        return doRead(new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel))));
+    }
+
+
+
+    /**************************************************************************\
+     *  Static Methods
+    \**************************************************************************/
+
+    /**
+     * Writes a non-negative {@code int} as a variable-length quantity,
+     * 7 bits per byte, least significant first.
+     * Negative values take five bytes.
+     */
+    public static void writeVarInt(final DataOutput out, int n)
+            throws IOException {
+        while ((n & ~0x7F) != 0) {
+            out.writeByte((n & 0x7F) | 0x80);
+            n >>>= 7;
+        }
+        out.writeByte(n);
+    }
+
+
+    /**
+     * Reads an {@code int} written by {@code writeVarInt}.
+     * 
+     * @throws IOException if the input does, or if it is malformed.
+     */
+    public static int readVarInt(final DataInput in) throws IOException {
+        int n = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = in.readUnsignedByte();
+            n |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) { return n; }
+        }
+        throw new IOException("Malformed variable-length quantity");
+    }
+
+
+
+    /**************************************************************************\
+     *  Private Methods
+    \**************************************************************************/
+
+    /** */
+    private <C extends A, D extends B> void doWrite(final Relation<C, D> r,
+            final DataOutput out) throws IOException {
+        final Set<C> keys = r.keys();
+        final Set<D> values = r.values();
+        final int flags = (r.isSimple() ? SIMPLE : 0)
+                | (r.isInjective() ? INJECTIVE : 0);
+        out.writeByte(VERSION);
+        out.writeByte(flags);
+        writeVarInt(out, keys.size());
+        writeVarInt(out, values.size());
+        writeVarInt(out, r.size());
+        for (final C a: keys) {
+            keySerializer.write(out, a);
+        }
+        final Map<D, Integer> ids = new HashMap<D, Integer>(
+                (int) (values.size() / 0.75f) + 1);
+        for (final D b: values) {
+            ids.put(b, ids.size());
+            valueSerializer.write(out, b);
+        }
+        int[] row = new int[4];
+        for (final C a: keys) {
+            final Set<D> bs = r.valuesOf(a);
+            final int n = bs.size();
+            if (n > row.length) { row = new int[Math.max(n, row.length << 1)]; }
+            int k = 0;
+            for (final D b: bs) {
+                row[k++] = ids.get(b);
+            }
+            Arrays.sort(row, 0, n);
+            writeVarInt(out, n);
+            int previous = -1;
+            for (k = 0; k < n; ++k) {
+                writeVarInt(out, row[k] - previous - 1);
+                previous = row[k];
+            }
+        }
+    }
+
+
+    /** */
+    private MutableRelation<A, B> doRead(final DataInput in)
+            throws IOException {
+        final int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported relation format: " + version);
+        }
+        final int flags = in.readUnsignedByte();
+        final int n = readVarInt(in);
+        final int m = readVarInt(in);
+        final int size = readVarInt(in);
+        if (n < 0 || m < 0 || size < Math.max(n, m)
+                || (long) size > (long) n * m) {
+            throw malformed();
+        }
+        final boolean simple = (flags & SIMPLE) != 0;
+        final boolean injective = (flags & INJECTIVE) != 0;
+        if ((simple && size != n) || (injective && size != m)) {
+            throw malformed();
+        }
+        final A[] keys = readElements(in, keySerializer, n);
+        final B[] values = readElements(in, valueSerializer, m);
+        final int[] degree = new int[m];
+        final MutableRelation<A, B> r;
+        if (simple) {
+            r = injective ? readOneToOne(in, keys, values, degree)
+                    : readSimple(in, keys, values, degree);
+        } else {
+            r = readBiMap(in, keys, values, degree, size);
+        }
+        for (int j = 0; j < m; ++j) {
+            if (degree[j] == 0 || (injective && degree[j] > 1)) {
+                throw malformed();
+            }
+        }
+        if (r.size() != size || r.keys().size() != n
+                || r.values().size() != m) {
+            throw malformed();
+        }
+        return r;
+    }
+
+
+    /** */
+    private BiMap<A, B> readBiMap(final DataInput in, final A[] keys,
+            final B[] values, final int[] degree, final int size)
+            throws IOException {
+        final BiMap<A, B> r = new BiMap<A, B>(
+                Math.max(1, (int) (keys.length / 0.75f) + 1));
+        int[] row = new int[4];
+        int total = 0;
+        for (final A a: keys) {
+            final int n = readVarInt(in);
+            if (n <= 0 || n > values.length || (total += n) > size) {
+                throw malformed();
+            }
+            if (n > row.length) { row = new int[Math.max(n, row.length << 1)]; }
+            int previous = -1;
+            for (int k = 0; k < n; ++k) {
+                row[k] = previous = nextId(in, previous, degree);
+            }
+            r.loadRow(a, values, row, n);
+        }
+        return r;
+    }
+
+
+    /** */
+    private SimpleBiMap<A, B> readSimple(final DataInput in, final A[] keys,
+            final B[] values, final int[] degree) throws IOException {
+        final SimpleBiMap<A, B> r = new SimpleBiMap<A, B>(
+                Math.max(1, (int) (keys.length / 0.75f) + 1));
+        for (final A a: keys) {
+            if (readVarInt(in) != 1) { throw malformed(); }
+            r.loadPair(a, values[nextId(in, -1, degree)]);
+        }
+        return r;
+    }
+
+
+    /** */
+    private OneToOneBiMap<A, B> readOneToOne(final DataInput in,
+            final A[] keys, final B[] values, final int[] degree)
+            throws IOException {
+        final OneToOneBiMap<A, B> r = new OneToOneBiMap<A, B>(
+                Math.max(1, (int) (keys.length / 0.75f) + 1));
+        for (final A a: keys) {
+            if (readVarInt(in) != 1) { throw malformed(); }
+            final int j = nextId(in, -1, degree);
+            if (degree[j] > 1) { throw malformed(); }
+            r.loadPair(a, values[j]);
+        }
+        return r;
+    }
+
+
+    /** Reads the next value index of a row, and counts it. */
+    private static int nextId(final DataInput in, final int previous,
+            final int[] degree) throws IOException {
+        final long j = (long) previous + 1 + (readVarInt(in) & 0xFFFFFFFFL);
+        if (j >= degree.length) { throw malformed(); }
+        ++degree[(int) j];
+        return (int) j;
+    }
+
+
+    /**
+     * Reads a dictionary of {@code n} elements, growing its array as the
+     * elements are read.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> E[] readElements(final DataInput in,
+            final ElementSerializer<E> serializer, final int n)
+            throws IOException {
+        E[] elements = (E[]) new Object[Math.min(n, CHUNK)];
+        for (int i = 0; i < n; ++i) {
+            if (i == elements.length) {
+                elements = Arrays.copyOf(elements, grow(i, n));
+            }
+            elements[i] = serializer.read(in);
+        }
+        return elements;
+    }
+
+
+    /** Returns the next capacity of an array, up to {@code limit}. */
+    private static int grow(final int capacity, final int limit) {
+        return (int) Math.min((long) capacity << 1, limit);
+    }
+
+
+    /** */
+    private static IOException malformed() {
+        return new IOException("Malformed relation stream");
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+/**
+ * Represents a sink for the metrics of relations and of the operators
+ * in {@code Relations}.
+ * 
+ * A mutable relation reports to the sink it was built with, if any
+ * (see {@code AbstractMutableRelation}); a relation built without a sink
+ * pays a single null check per operation. The operators report to the
+ * sink set by {@code Relations.setMetrics(RelationMetrics)}, if the
+ * system property {@code rel4j.metrics} was {@code true} at startup.
+ * 
+ * Sinks may be called from any thread that uses a relation, and should
+ * return quickly. The reporting relation is passed as an identity:
+ * sinks should not query it, nor keep it reachable.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public interface RelationMetrics {
+
+    /** The counted operations of a mutable relation. */
+    enum Operation {
+        /** An insertion of a pair, whether or not it was new. */
+        PUT,
+        /** A removal of a pair, key or value. */
+        REMOVE,
+        /** A membership test of a pair, key or value. */
+        CONTAINS,
+        /** A lookup of the values of a key. */
+        VALUES_OF,
+        /** A lookup of the keys of a value. */
+        KEYS_OF,
+        /** A removal of every pair. */
+        CLEAR
+    }
+
+
+    /** The timed operators of {@code Relations}. */
+    enum Operator {
+        COMPOSE,
+        DIVIDE,
+        DIVIDE_LEFT,
+        IMPLY,
+        REACHABILITY
+    }
+
+
+    /**
+     * Called whenever the given relation performs an operation.
+     */
+    void operation(Relation<?, ?> r, Operation op);
+
+    /**
+     * Called whenever a pair is added to the given relation, with the
+     * resulting number of values of its key (the fan-out) and number of
+     * keys of its value (the fan-in).
+     */
+    void degree(Relation<?, ?> r, int fanOut, int fanIn);
+
+    /**
+     * Called whenever an insertion evicts pairs from the given relation,
+     * to keep it simple or injective.
+     */
+    void evicted(Relation<?, ?> r, int pairs);
+
+    /**
+     * Called whenever an operator of {@code Relations} completes,
+     * with its duration and the number of pairs of its result.
+     */
+    void timed(Operator op, long nanos, int resultSize);
+}
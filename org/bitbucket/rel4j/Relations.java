@@ -23,11 +23,21 @@
 
 package org.bitbucket.rel4j;
 
+import static org.bitbucket.rel4j.Check.checkArgument;
+import static org.bitbucket.rel4j.Check.checkNotNull;
+
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+import org.bitbucket.rel4j.Traversal.Direction;
 
 
 /**
@@ -49,6 +59,22 @@ public final class Relations {
      */
     public static final Relation<?, ?> BOTTOM = new Bottom();
 
+    /**
+     * Whether the operators report their durations to the metrics sink.
+     * Read once from the system property {@code rel4j.metrics}.
+     */
+    public static final boolean METRICS_ENABLED =
+            Boolean.getBoolean("rel4j.metrics");
+
+    /** The metrics sink of the operators, or {@code null}. */
+    private static volatile RelationMetrics metrics;
+
+    /**
+     * The size above which the set of values passed for a key, in a
+     * streamed composition, is dropped instead of cleared.
+     */
+    private static final int PASSED_CAPACITY = 1024;
+
 
 
     /*************************************************************************\
@@ -70,11 +96,23 @@ public final class Relations {
 
     /**
      * Creates an immutable <b>copy</b> of the given relation.
+     * Persistent relations are already immutable, and are returned
+     * as they are. Generated views ({@code topView},
+     * {@code identityView}, ...) are live over their sets, so they are
+     * replaced by views over copies of those sets.
+     * Frozen relations are wrapped without being copied.
      * A {@code null} argument behaves as if an empty relation was passed.
      */
     public static <A, B> Relation<A, B> immutable(Relation<A, B> r) {
         r = id(r);
-        if (r.isSimple() && r.isInjective()) {
+        if (r instanceof PersistentRelation) {
+            return r;
+        } else if (r instanceof GeneratedView) {
+            return ((GeneratedView<A, B>) r).snapshot();
+        } else if (r instanceof AbstractMutableRelation
+                && ((AbstractMutableRelation<A, B>) r).isFrozen()) {
+            return new ImmutableView<A, B>(r);
+        } else if (r.isSimple() && r.isInjective()) {
             return new ImmutableView<A, B>(toOneToOne(r));
         } else if (r.isSimple()) {
             return new ImmutableView<A, B>(toSimple(r));
@@ -85,6 +123,57 @@ public final class Relations {
     }
 
 
+    /**
+     * Creates an immutable relation from the given one, taking over its
+     * storage instead of copying it. The caller transfers ownership:
+     * the relation is frozen, and any further attempt to modify it
+     * throws {@code UnsupportedOperationException}.
+     * Relations that cannot be frozen are copied, as in
+     * {@code immutable(Relation)}.
+     * A {@code null} argument behaves as if an empty relation was passed.
+     */
+    public static <A, B> Relation<A, B> immutableTransfer(
+            final MutableRelation<A, B> r) {
+        return immutableTransfer(r, false);
+    }
+
+    /**
+     * Creates an immutable relation from the given one, taking over its
+     * storage, as {@code immutableTransfer(MutableRelation)}.
+     * If {@code compact} is set, the internal tables of the relation
+     * are also trimmed into a read-optimized layout.
+     */
+    public static <A, B> Relation<A, B> immutableTransfer(
+            final MutableRelation<A, B> r, final boolean compact) {
+        if (r instanceof AbstractMutableRelation) {
+            ((AbstractMutableRelation<A, B>) r).freeze(compact);
+            return new ImmutableView<A, B>(r);
+        }
+        return immutable(r);
+    }
+
+
+    /**
+     * Creates a <b>new</b> {@code IndexedBiMap} with the pairs of the
+     * given relation, and the same domain and range types.
+     * Operators build {@code BiMap} results; this copies one into the
+     * dense representation, for relations that are mostly read.
+     * A {@code null} argument behaves as if an empty relation was passed.
+     * 
+     * @throws IllegalArgumentException if the domain or range type is not
+     * indexed, or does not contain some key or value of the relation.
+     */
+    public static <A, B> IndexedBiMap<A, B> indexed(Relation<A, B> r) {
+        r = id(r);
+        final IndexedBiMap<A, B> s =
+                new IndexedBiMap<A, B>(r.getDomainType(), r.getRangeType());
+        for (final A a: r.keys()) {
+            s.putAllValues(a, r.valuesOf(a));
+        }
+        return s;
+    }
+
+
 
     /*************************************************************************\
      *  Predicates
@@ -148,6 +237,9 @@ public final class Relations {
      * A {@code null} argument behaves as if an empty relation was passed.
      */
     public static <A, B> Relation<B, A> converseView(final Relation<A, B> r) {
+        if (r instanceof GeneratedView) {
+            return ((GeneratedView<A, B>) r).converse();
+        }
         return new ConverseView<B, A>(nonNullCopy(r));
     }
 
@@ -178,10 +270,157 @@ public final class Relations {
      * the given relations.
      * A {@code null} argument behaves as if an empty relation was passed.
      * 
+     * Compositions with an {@code identityView} are computed as
+     * restrictions of the other relation, and compositions with a
+     * {@code topView} are computed without enumerating its pairs.
+     * 
      * @param optimize If {@code true}, the new relation will enforce
      * simplicity or injectivity, if possible.
      */
     public static <A, C> MutableRelation<A, C> compose(
+            final Relation<A, ?> r1, final Relation<?, C> r2,
+            final boolean optimize) {
+        if (!METRICS_ENABLED) { return doCompose(r1, r2, optimize); }
+        final long start = System.nanoTime();
+        final MutableRelation<A, C> result = doCompose(r1, r2, optimize);
+        timed(RelationMetrics.Operator.COMPOSE, start, result);
+        return result;
+    }
+
+    /**
+     * Streams the composition of the given relations to the consumer,
+     * instead of building it. Each pair is passed once, and the pairs
+     * of each key are passed together.
+     * A {@code null} relation behaves as if an empty relation was passed.
+     * 
+     * Since the relations index their pairs by key, every key of
+     * {@code r1} is joined against {@code r2} where it stands; the only
+     * memory used is the set of values already passed for the current
+     * key, so compositions far larger than the heap can be written out
+     * by the consumer as they are produced.
+     * 
+     * @return The number of pairs passed to the consumer.
+     * @throws NullPointerException if the consumer is {@code null}.
+     */
+    public static <A, C> long compose(final Relation<A, ?> r1,
+            final Relation<?, C> r2,
+            final BiConsumer<? super A, ? super C> consumer) {
+        checkNotNull(consumer);
+        if (!METRICS_ENABLED) { return doCompose(r1, r2, consumer); }
+        final long start = System.nanoTime();
+        final long pairs = doCompose(r1, r2, consumer);
+        final RelationMetrics sink = metrics;
+        if (sink != null) {
+            sink.timed(RelationMetrics.Operator.COMPOSE,
+                    System.nanoTime() - start,
+                    (int) Math.min(pairs, Integer.MAX_VALUE));
+        }
+        return pairs;
+    }
+
+    /**
+     * Creates a <b>new</b> relation representing the composition
+     * of the given relations, computed by a sort-merge join:
+     * the pairs of {@code r1} sorted by value are merged with the pairs
+     * of {@code r2} sorted by key, in a single sequential pass, instead
+     * of probing {@code r2} once per intermediate pair.
+     * Inputs that already iterate in that order are not sorted again.
+     * A {@code null} argument behaves as if an empty relation was passed.
+     */
+    public static <A, B extends Comparable<? super B>, C>
+            MutableRelation<A, C> composeSorted(final Relation<A, B> r1,
+                    final Relation<B, C> r2) {
+        return composeSorted(r1, r2, Comparator.<B>naturalOrder());
+    }
+
+    /**
+     * Creates a <b>new</b> relation representing the composition
+     * of the given relations, computed by a sort-merge join over the
+     * given order of the intermediate elements, as
+     * {@code composeSorted(Relation, Relation)}.
+     * The order must be consistent with {@code equals}.
+     * 
+     * @throws NullPointerException if the order is {@code null}.
+     */
+    public static <A, B, C> MutableRelation<A, C> composeSorted(
+            final Relation<A, B> r1, final Relation<B, C> r2,
+            final Comparator<? super B> order) {
+        checkNotNull(order);
+        if (!METRICS_ENABLED) { return doComposeSorted(r1, r2, order); }
+        final long start = System.nanoTime();
+        final MutableRelation<A, C> result = doComposeSorted(r1, r2, order);
+        timed(RelationMetrics.Operator.COMPOSE, start, result);
+        return result;
+    }
+
+    /**
+     * Builds an index that answers whether an element is related to
+     * another by the reflexive transitive closure of the given relation,
+     * in near-constant time, without computing the closure.
+     * The index is built in linear time, and rebuilt when the relation
+     * changes (see {@code ReachabilityIndex}).
+     * 
+     * @throws NullPointerException if the relation is {@code null}.
+     */
+    public static <A> ReachabilityIndex<A> reachability(
+            final Relation<A, A> r) {
+        checkNotNull(r);
+        if (!METRICS_ENABLED) { return new ReachabilityIndex<A>(r); }
+        final long start = System.nanoTime();
+        final ReachabilityIndex<A> index = new ReachabilityIndex<A>(r);
+        timed(RelationMetrics.Operator.REACHABILITY, start, r);
+        return index;
+    }
+
+    /**
+     * Returns a <b>new</b> set with the elements within {@code k} steps
+     * of the seeds, following the pairs of the relation forwards: the
+     * seeds themselves, their values, the values of those, and so on.
+     * 
+     * @throws NullPointerException if any argument is {@code null}.
+     * @throws IllegalArgumentException if {@code k} is negative.
+     */
+    public static <A> Set<A> reachableWithin(final Relation<A, A> r,
+            final Iterable<? extends A> seeds, final int k) {
+        return reachableWithin(r, seeds, k, Direction.FORWARD, false);
+    }
+
+    /**
+     * Returns a <b>new</b> set with the elements within {@code k} steps
+     * of the seeds, following the pairs of the relation in the given
+     * direction. If {@code parallel} is set, large frontiers are expanded
+     * in parallel (see {@code Traversal}).
+     * 
+     * @throws NullPointerException if any argument is {@code null}.
+     * @throws IllegalArgumentException if {@code k} is negative.
+     */
+    public static <A> Set<A> reachableWithin(final Relation<A, A> r,
+            final Iterable<? extends A> seeds, final int k,
+            final Direction direction, final boolean parallel) {
+        checkNotNull(r);
+        checkNotNull(seeds);
+        checkNotNull(direction);
+        checkArgument("negative depth", k >= 0);
+        return new Traversal<A>(r, seeds, direction, k, parallel)
+                .drain(new HashSet<A>());
+    }
+
+    /**
+     * Returns a breadth-first traversal of the relation from the seeds,
+     * following its pairs in the given direction, with no depth limit.
+     * 
+     * @throws NullPointerException if any argument is {@code null}.
+     */
+    public static <A> Traversal<A> breadthFirst(final Relation<A, A> r,
+            final Iterable<? extends A> seeds, final Direction direction) {
+        checkNotNull(r);
+        checkNotNull(seeds);
+        checkNotNull(direction);
+        return new Traversal<A>(r, seeds, direction, -1, false);
+    }
+
+    /** */
+    private static <A, C> MutableRelation<A, C> doCompose(
             Relation<A, ?> r1, Relation<?, C> r2, final boolean optimize) {
         r1 = id(r1);
         r2 = id(r2);
@@ -197,10 +436,29 @@ public final class Relations {
             } else if (r1.isInjective() && r2.isInjective()) {
                 builder = converseView(new SimpleBiMap<C, A>(ran, dom));
             } else {
-                builder = new BiMap<A, C>(dom, ran);
+                builder = newRelation(dom, ran);
             }
         } else {
-            builder = new BiMap<A, C>(dom, ran);
+            builder = newRelation(dom, ran);
+        }
+        if (r1 instanceof GeneratedView.Identity) {
+            final Set<?> as = ((GeneratedView.Identity<?>) r1).as;
+            composeIdentity(as, r2, builder);
+            return builder;
+        } else if (r2 instanceof GeneratedView.Identity) {
+            final Set<?> cs = ((GeneratedView.Identity<?>) r2).as;
+            composeIdentity(r1, cs, builder);
+            return builder;
+        } else if (r1 instanceof GeneratedView.Top) {
+            final GeneratedView.Top<A, ?> top = (GeneratedView.Top<A, ?>) r1;
+            if (!top.as.isEmpty()) {
+                builder.putAll(top.as, Sets.copy(r2.valuesFor(top.bs)));
+            }
+            return builder;
+        } else if (r2 instanceof GeneratedView.Top) {
+            final GeneratedView.Top<?, C> top = (GeneratedView.Top<?, C>) r2;
+            composeTop(r1, top.as, top.bs, builder);
+            return builder;
         }
         for (final A a: r1.keys()) {
             for (final Object b: r1.valuesOf(a)) {
@@ -214,6 +472,118 @@ public final class Relations {
         return builder;
     }
 
+    /** */
+    private static <A, B, C> MutableRelation<A, C> doComposeSorted(
+            Relation<A, B> r1, Relation<B, C> r2,
+            final Comparator<? super B> order) {
+        r1 = id(r1);
+        r2 = id(r2);
+        final MutableRelation<A, C> builder =
+                newRelation(r1.getDomainType(), r2.getRangeType());
+        final Pair<A, B>[] left = sortedPairs(r1,
+                (p, q) -> order.compare(p.second(), q.second()));
+        final Pair<B, C>[] right = sortedPairs(r2,
+                (p, q) -> order.compare(p.first(), q.first()));
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            final B b = left[i].second();
+            final int cmp = order.compare(b, right[j].first());
+            if (cmp < 0) {
+                ++i;
+            } else if (cmp > 0) {
+                ++j;
+            } else {
+                int iEnd = i + 1;
+                while (iEnd < left.length
+                        && order.compare(left[iEnd].second(), b) == 0) {
+                    ++iEnd;
+                }
+                int jEnd = j + 1;
+                while (jEnd < right.length
+                        && order.compare(right[jEnd].first(), b) == 0) {
+                    ++jEnd;
+                }
+                for (int x = i; x < iEnd; ++x) {
+                    final A a = left[x].first();
+                    for (int y = j; y < jEnd; ++y) {
+                        builder.put(a, right[y].second());
+                    }
+                }
+                i = iEnd;
+                j = jEnd;
+            }
+        }
+        return builder;
+    }
+
+
+    /**
+     * Returns the pairs of the relation, in the given order.
+     * Pairs that are already iterated in order are not sorted again;
+     * the others are sorted with {@code Arrays.parallelSort}.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <X, Y> Pair<X, Y>[] sortedPairs(final Relation<X, Y> r,
+            final Comparator<? super Pair<X, Y>> order) {
+        Pair<X, Y>[] pairs = new Pair[r.size()];
+        int n = 0;
+        boolean sorted = true;
+        for (final Pair<X, Y> p: r) {
+            if (n == pairs.length) {
+                pairs = Arrays.copyOf(pairs, Math.max(8, 2 * n));
+            }
+            if (sorted && n > 0 && order.compare(pairs[n - 1], p) > 0) {
+                sorted = false;
+            }
+            pairs[n++] = p;
+        }
+        if (n < pairs.length) { pairs = Arrays.copyOf(pairs, n); }
+        if (!sorted) { Arrays.parallelSort(pairs, order); }
+        return pairs;
+    }
+
+
+    /**
+     * Streams the composition one key at a time. Keys with a single
+     * value cannot produce duplicates, and skip the set of passed values.
+     */
+    private static <A, C> long doCompose(Relation<A, ?> r1,
+            Relation<?, C> r2, final BiConsumer<? super A, ? super C> out) {
+        r1 = id(r1);
+        r2 = id(r2);
+        long pairs = 0L;
+        Set<C> passed = new HashSet<C>();
+        for (final A a: r1.keys()) {
+            final Set<?> bs = r1.valuesOf(a);
+            if (bs.size() == 1) {
+                final Object b = bs.iterator().next();
+                if (!r2.containsKey(b)) { continue; }
+                for (final C c: r2.valuesOf(b)) {
+                    out.accept(a, c);
+                    ++pairs;
+                }
+                continue;
+            }
+            for (final Object b: bs) {
+                if (!r2.containsKey(b)) { continue; }
+                for (final C c: r2.valuesOf(b)) {
+                    if (passed.add(c)) {
+                        out.accept(a, c);
+                        ++pairs;
+                    }
+                }
+            }
+            // clearing a set walks its whole table, which never shrinks
+            if (passed.size() > PASSED_CAPACITY) {
+                passed = new HashSet<C>();
+            } else {
+                passed.clear();
+            }
+        }
+        return pairs;
+    }
+
 
     /**
      * Creates a <b>new</b> relation representing the division between
@@ -222,12 +592,22 @@ public final class Relations {
      * A {@code null} argument behaves as if an empty relation was passed.
      */
     public static <A, B> MutableRelation<B, A> divide(
+            final Relation<?, A> r1, final Relation<?, B> r2) {
+        if (!METRICS_ENABLED) { return doDivide(r1, r2); }
+        final long start = System.nanoTime();
+        final MutableRelation<B, A> result = doDivide(r1, r2);
+        timed(RelationMetrics.Operator.DIVIDE, start, result);
+        return result;
+    }
+
+    /** */
+    private static <A, B> MutableRelation<B, A> doDivide(
             Relation<?, A> r1, Relation<?, B> r2) {
         r1 = id(r1);
         r2 = id(r2);
         final Domain<B> dom = r2.getRangeType();
         final Domain<A> ran = r1.getRangeType();
-        MutableRelation<B, A> builder = new BiMap<B, A>(dom, ran);
+        MutableRelation<B, A> builder = newRelation(dom, ran);
         for (final B b: r2.values()) {
             for (final A a: r1.values()) {
                 boolean include = true;
@@ -253,12 +633,22 @@ public final class Relations {
      * A {@code null} argument behaves as if an empty relation was passed.
      */
     public static <A, B> MutableRelation<B, A> divideLeft(
+            final Relation<A, ?> r1, final Relation<B, ?> r2) {
+        if (!METRICS_ENABLED) { return doDivideLeft(r1, r2); }
+        final long start = System.nanoTime();
+        final MutableRelation<B, A> result = doDivideLeft(r1, r2);
+        timed(RelationMetrics.Operator.DIVIDE_LEFT, start, result);
+        return result;
+    }
+
+    /** */
+    private static <A, B> MutableRelation<B, A> doDivideLeft(
             Relation<A, ?> r1, Relation<B, ?> r2) {
         r1 = id(r1);
         r2 = id(r2);
         final Domain<B> dom = r2.getDomainType();
         final Domain<A> ran = r1.getDomainType();
-        MutableRelation<B, A> builder = new BiMap<B, A>(dom, ran);
+        MutableRelation<B, A> builder = newRelation(dom, ran);
         for (final A a: r1.keys()) {
             for (final B b: r2.keys()) {
                 boolean include = true;
@@ -284,12 +674,22 @@ public final class Relations {
      * A {@code null} argument behaves as if an empty relation was passed.
      */
     public static <A, B> MutableRelation<A, B> imply(
+            final Relation<A, B> r1, final Relation<?, ?> r2) {
+        if (!METRICS_ENABLED) { return doImply(r1, r2); }
+        final long start = System.nanoTime();
+        final MutableRelation<A, B> result = doImply(r1, r2);
+        timed(RelationMetrics.Operator.IMPLY, start, result);
+        return result;
+    }
+
+    /** */
+    private static <A, B> MutableRelation<A, B> doImply(
             Relation<A, B> r1, Relation<?, ?> r2) {
         r1 = id(r1);
         r2 = id(r2);
         final Domain<A> dom = r1.getDomainType();
         final Domain<B> ran = r1.getRangeType();
-        MutableRelation<A, B> builder = new BiMap<A, B>(dom, ran);
+        MutableRelation<A, B> builder = newRelation(dom, ran);
         for (final Pair<A, B> p: r1) {
             if (r2.contains(p.first(), p.second())) {
                 builder.put(p.first(), p.second());
@@ -327,6 +727,95 @@ public final class Relations {
     }
 
 
+    /**
+     * Creates a <b>new</b> relation with the pairs of the given relation
+     * whose keys belong to the given set.
+     * The pairs are gathered by probing the relation for each element of
+     * the set, or by scanning the keys of the relation, whichever
+     * enumerates fewer elements.
+     * A {@code null} relation behaves as if an empty relation was passed,
+     * and a {@code null} set as if an empty set was passed.
+     */
+    public static <A, B> MutableRelation<A, B> restrictDomain(
+            Relation<A, B> r, final Set<?> as) {
+        r = id(r);
+        final MutableRelation<A, B> builder =
+                newRelation(r.getDomainType(), r.getRangeType());
+        composeIdentity(Sets.id(as), r, builder);
+        return builder;
+    }
+
+
+    /**
+     * Creates a <b>new</b> relation with the pairs of the given relation
+     * whose values belong to the given set.
+     * The pairs are gathered by probing the relation for each element of
+     * the set, or by scanning the values of the relation, whichever
+     * enumerates fewer elements.
+     * A {@code null} relation behaves as if an empty relation was passed,
+     * and a {@code null} set as if an empty set was passed.
+     */
+    public static <A, B> MutableRelation<A, B> restrictRange(
+            Relation<A, B> r, Set<?> bs) {
+        r = id(r);
+        bs = Sets.id(bs);
+        final MutableRelation<A, B> builder =
+                newRelation(r.getDomainType(), r.getRangeType());
+        final Set<?> values = bs.size() <= r.values().size() ? bs : r.values();
+        final Set<?> other = values == bs ? r.values() : bs;
+        for (final Object b: values) {
+            if (other.contains(b)) {
+                @SuppressWarnings("unchecked")
+                final B value = (B) b;
+                builder.putAllKeys(r.keysOf(b), value);
+            }
+        }
+        return builder;
+    }
+
+
+    /**
+     * Creates a <b>new</b> relation with the pairs of the given relation
+     * whose keys do <b>not</b> belong to the given set.
+     * A {@code null} relation behaves as if an empty relation was passed,
+     * and a {@code null} set as if an empty set was passed.
+     */
+    public static <A, B> MutableRelation<A, B> subtractDomain(
+            Relation<A, B> r, Set<?> as) {
+        r = id(r);
+        as = Sets.id(as);
+        final MutableRelation<A, B> builder =
+                newRelation(r.getDomainType(), r.getRangeType());
+        for (final A a: r.keys()) {
+            if (!as.contains(a)) {
+                builder.putAllValues(a, r.valuesOf(a));
+            }
+        }
+        return builder;
+    }
+
+
+    /**
+     * Creates a <b>new</b> relation with the pairs of the given relation
+     * whose values do <b>not</b> belong to the given set.
+     * A {@code null} relation behaves as if an empty relation was passed,
+     * and a {@code null} set as if an empty set was passed.
+     */
+    public static <A, B> MutableRelation<A, B> subtractRange(
+            Relation<A, B> r, Set<?> bs) {
+        r = id(r);
+        bs = Sets.id(bs);
+        final MutableRelation<A, B> builder =
+                newRelation(r.getDomainType(), r.getRangeType());
+        for (final B b: r.values()) {
+            if (!bs.contains(b)) {
+                builder.putAllKeys(r.keysOf(b), b);
+            }
+        }
+        return builder;
+    }
+
+
     /**
      * Creates a relation holding all possible arrows between the elements
      * of the given iterable.
@@ -372,6 +861,131 @@ public final class Relations {
     }
 
 
+    /**
+     * Returns an <b>unmodifiable view</b> of the pairs of the given
+     * relation whose keys belong to the given set.
+     * Changes to the relation or to the set affect this view.
+     * The keys of the view are enumerated from the set or from the
+     * relation, whichever is smaller.
+     * A {@code null} relation behaves as if an empty relation was passed,
+     * and a {@code null} set as if an empty set was passed.
+     */
+    public static <A, B> Relation<A, B> restrictDomainView(
+            final Relation<A, B> r, final Set<?> as) {
+        return new RestrictionView<A, B>(id(r), Sets.id(as), true);
+    }
+
+    /**
+     * Returns an <b>unmodifiable view</b> of the pairs of the given
+     * relation whose values belong to the given set.
+     * Changes to the relation or to the set affect this view.
+     * A {@code null} relation behaves as if an empty relation was passed,
+     * and a {@code null} set as if an empty set was passed.
+     */
+    public static <A, B> Relation<A, B> restrictRangeView(
+            final Relation<A, B> r, final Set<?> bs) {
+        return new ConverseView<A, B>(new RestrictionView<B, A>(
+                new ConverseView<B, A>(id(r)), Sets.id(bs), true));
+    }
+
+    /**
+     * Returns an <b>unmodifiable view</b> of the pairs of the given
+     * relation whose keys do <b>not</b> belong to the given set.
+     * Changes to the relation or to the set affect this view.
+     * A {@code null} relation behaves as if an empty relation was passed,
+     * and a {@code null} set as if an empty set was passed.
+     */
+    public static <A, B> Relation<A, B> subtractDomainView(
+            final Relation<A, B> r, final Set<?> as) {
+        return new RestrictionView<A, B>(id(r), Sets.id(as), false);
+    }
+
+    /**
+     * Returns an <b>unmodifiable view</b> of the pairs of the given
+     * relation whose values do <b>not</b> belong to the given set.
+     * Changes to the relation or to the set affect this view.
+     * A {@code null} relation behaves as if an empty relation was passed,
+     * and a {@code null} set as if an empty set was passed.
+     */
+    public static <A, B> Relation<A, B> subtractRangeView(
+            final Relation<A, B> r, final Set<?> bs) {
+        return new ConverseView<A, B>(new RestrictionView<B, A>(
+                new ConverseView<B, A>(id(r)), Sets.id(bs), false));
+    }
+
+
+    /**
+     * Returns an <b>unmodifiable view</b> of the relation holding all
+     * possible arrows between the elements of the given set.
+     * Changes to the set affect this view.
+     * A {@code null} argument yields an empty relation.
+     */
+    public static <A> Relation<A, A> topView(final Set<A> as) {
+        return topView(as, as);
+    }
+
+
+    /**
+     * Returns an <b>unmodifiable view</b> of the relation holding all
+     * possible arrows between the elements of the given sets.
+     * No pairs are stored: every query is answered from the sets.
+     * Changes to the sets affect this view.
+     * {@code null} arguments yield an empty relation.
+     */
+    public static <A, B> Relation<A, B> topView(
+            final Set<A> as, final Set<B> bs) {
+        return new GeneratedView.Top<A, B>(Sets.id(as), Sets.id(bs));
+    }
+
+
+    /**
+     * Returns an <b>unmodifiable view</b> of the relation holding all
+     * arrows from the elements of the given set to themselves.
+     * No pairs are stored: every query is answered from the set.
+     * Changes to the set affect this view.
+     * A {@code null} argument yields an empty relation.
+     */
+    public static <A> Relation<A, A> identityView(final Set<A> as) {
+        return new GeneratedView.Identity<A>(Sets.id(as));
+    }
+
+
+    /**
+     * Returns an <b>unmodifiable view</b> of the relation holding an
+     * arrow from each element {@code a} of the given set to {@code f(a)}.
+     * The function must return a non-null value for every element of the
+     * set, and is applied on every query; it should be cheap and free of
+     * side effects. Queries by value ({@code keysOf}, {@code values}, ...)
+     * require a scan of the set.
+     * Changes to the set affect this view.
+     * A {@code null} set yields an empty relation.
+     * 
+     * @throws NullPointerException if {@code f} is {@code null}.
+     */
+    public static <A, B> Relation<A, B> functionView(final Set<A> as,
+            final Function<? super A, ? extends B> f) {
+        return new GeneratedView.FunctionBacked<A, B>(Sets.id(as), f);
+    }
+
+
+    /**
+     * Returns an <b>unmodifiable view</b> of the relation holding an
+     * arrow from each element {@code a} of the first set to each element
+     * {@code b} of the second set, such that {@code p(a, b)} holds.
+     * Only {@code contains} is answered in constant time; other queries
+     * require a scan of one or both sets.
+     * Changes to the sets affect this view.
+     * {@code null} sets yield an empty relation.
+     * 
+     * @throws NullPointerException if {@code p} is {@code null}.
+     */
+    public static <A, B> Relation<A, B> predicateView(final Set<A> as,
+            final Set<B> bs, final BiPredicate<? super A, ? super B> p) {
+        return new GeneratedView.PredicateBacked<A, B>(
+                Sets.id(as), Sets.id(bs), p);
+    }
+
+
     /** */
 //     public static <A, B> Set<Pair<A, B>> toSet(final Relation<A, B> r) {
 //         checkNotNull(r);
@@ -386,10 +1000,99 @@ public final class Relations {
 
 
 
+    /*************************************************************************\
+     *  Metrics
+    \*************************************************************************/
+
+    /**
+     * Sets the sink the operators report their durations to,
+     * or removes it, if {@code null}.
+     * Has no effect unless {@code METRICS_ENABLED} is {@code true}.
+     */
+    public static void setMetrics(final RelationMetrics sink) {
+        metrics = sink;
+    }
+
+
+    /**
+     * Returns the sink the operators report their durations to,
+     * or {@code null} if there is none.
+     */
+    public static RelationMetrics getMetrics() {
+        return metrics;
+    }
+
+
+
     /*************************************************************************\
      *  Private Methods
     \*************************************************************************/
 
+    /** Reports the duration of an operator to the sink, if any. */
+    private static void timed(final RelationMetrics.Operator op,
+            final long start, final Relation<?, ?> result) {
+        final RelationMetrics sink = metrics;
+        if (sink != null) {
+            sink.timed(op, System.nanoTime() - start, result.size());
+        }
+    }
+
+
+    /**
+     * Composition of an identity over {@code as} with {@code r}:
+     * the restriction of {@code r} to the keys in {@code as}.
+     */
+    private static <A, C> void composeIdentity(final Set<?> as,
+            final Relation<?, C> r, final MutableRelation<A, C> builder) {
+        final Set<?> keys = as.size() <= r.keys().size() ? as : r.keys();
+        final Set<?> other = keys == as ? r.keys() : as;
+        for (final Object a: keys) {
+            if (other.contains(a)) {
+                @SuppressWarnings("unchecked")
+                final A key = (A) a;
+                builder.putAllValues(key, r.valuesOf(a));
+            }
+        }
+    }
+
+
+    /**
+     * Composition of {@code r} with an identity over {@code cs}:
+     * the restriction of {@code r} to the values in {@code cs}.
+     */
+    private static <A, C> void composeIdentity(final Relation<A, ?> r,
+            final Set<?> cs, final MutableRelation<A, C> builder) {
+        for (final A a: r.keys()) {
+            for (final Object c: r.valuesOf(a)) {
+                if (cs.contains(c)) {
+                    @SuppressWarnings("unchecked")
+                    final C value = (C) c;
+                    builder.put(a, value);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Composition of {@code r} with the top relation between
+     * {@code bs} and {@code cs}.
+     */
+    private static <A, C> void composeTop(final Relation<A, ?> r,
+            final Set<?> bs, final Set<C> cs,
+            final MutableRelation<A, C> builder) {
+        if (cs.isEmpty()) { return; }
+        for (final A a: r.keys()) {
+            for (final Object b: r.valuesOf(a)) {
+                if (bs.contains(b)) {
+                    builder.putAllValues(a, cs);
+                    break;
+                }
+            }
+        }
+    }
+
+
     /** */
     private static <A, B> MutableRelation<A, B> toOneToOne(Relation<A, B> r) {
         final MutableRelation<A, B> s = new OneToOneBiMap<A, B>(r.size(),
@@ -425,7 +1128,7 @@ public final class Relations {
 
     /** */
     private static <A, B> MutableRelation<A, B> copy(Relation<A, B> r) {
-        MutableRelation<A, B> s = new BiMap<A, B>(r.size(),
+        final MutableRelation<A, B> s = new BiMap<A, B>(r.size(),
                 r.getDomainType(), r.getRangeType());
         for (final A a: r.keys()) {
             s.putAllValues(a, r.valuesOf(a));
@@ -434,6 +1137,16 @@ public final class Relations {
     }
 
 
+    /**
+     * Creates an empty relation, with the given domain and range types,
+     * to hold the result of an operator.
+     */
+    private static <A, B> MutableRelation<A, B> newRelation(
+            final Domain<A> dom, final Domain<B> ran) {
+        return new BiMap<A, B>(dom, ran);
+    }
+
+
     /** */
     private static <A, B> Relation<A, B> id(Relation<A, B> r) {
         if (r == null) { return new BiMap<A, B>(); }
@@ -578,7 +1291,7 @@ public final class Relations {
 
         @Override
         public int hashCode() {
-            return 19;
+            return 0;
         }
 
 
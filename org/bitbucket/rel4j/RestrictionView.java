@@ -0,0 +1,376 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * RestrictionView
+ * 
+ * An unmodifiable view of the pairs of a relation whose keys belong
+ * (restriction) or do not belong (subtraction) to a given set.
+ * Changes to the relation or to the set affect the view.
+ * Range restrictions are views of the converse of a domain restriction
+ * of the converse.
+ * 
+ * The keys of a restriction are enumerated from whichever is smaller:
+ * the restricting set, probing the relation for each of its elements,
+ * or the keys of the relation, probing the set.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+final class RestrictionView<A, B> extends AbstractRelation<A, B> {
+
+    /*************************************************************************\
+     *  Attributes
+    \*************************************************************************/
+
+    /** The original relation. */
+    private final Relation<A, B> original;
+
+    /** The restricting set. */
+    private final Set<?> as;
+
+    /** Whether the keys in {@code as} are kept, or the others. */
+    private final boolean keep;
+
+    /** The view of the keys. */
+    private final Set<A> keySet = new KeySet();
+
+
+
+    /*************************************************************************\
+     *  Constructors and Factories
+    \*************************************************************************/
+
+    /**
+     *  Parameter constructor of class RestrictionView.
+     */
+    RestrictionView(final Relation<A, B> r, final Set<?> as,
+            final boolean keep) {
+        assert r != null && as != null;
+        this.original = r;
+        this.as = as;
+        this.keep = keep;
+    }
+
+
+
+    /*************************************************************************\
+     *  Getters
+    \*************************************************************************/
+
+    /** */
+    @Override
+    public int size() {
+        int size = 0;
+        for (final A a: keySet) {
+            size += original.valuesOf(a).size();
+        }
+        return size;
+    }
+
+
+    /** */
+    @Override
+    public Domain<A> getDomainType() {
+        return original.getDomainType();
+    }
+
+    /** */
+    @Override
+    public Domain<B> getRangeType() {
+        return original.getRangeType();
+    }
+
+
+    /** */
+    @Override
+    public Set<A> keys() {
+        return keySet;
+    }
+
+    /** */
+    @Override
+    public Set<A> keysOf(final Object b) {
+        final Set<A> set = Sets.<A>empty();
+        for (final A a: original.keysOf(b)) {
+            if (admits(a)) { set.add(a); }
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    /** */
+    @Override
+    public A keyOf(final Object b) {
+        final Set<A> set = this.keysOf(b);
+        return set.size() == 1 ? set.iterator().next() : null;
+    }
+
+    /** */
+    @Override
+    public Set<A> keysFor(final Iterable<?> bs) {
+        return UnionSet.ofKeys(this, bs);
+    }
+
+
+    /** */
+    @Override
+    public Set<B> values() {
+        final Set<B> set = Sets.<B>empty();
+        for (final A a: keySet) {
+            set.addAll(original.valuesOf(a));
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    /** */
+    @Override
+    public Set<B> valuesOf(final Object a) {
+        if (!admits(a)) { return Collections.<B>emptySet(); }
+        return Collections.unmodifiableSet(original.valuesOf(a));
+    }
+
+    /** */
+    @Override
+    public B valueOf(final Object a) {
+        return admits(a) ? original.valueOf(a) : null;
+    }
+
+    /** */
+    @Override
+    public Set<B> valuesFor(final Iterable<?> as) {
+        return UnionSet.ofValues(this, as);
+    }
+
+
+    /** */
+    @Override
+    public Iterator<Pair<A, B>> iterator() {
+        return new RestrictionIterator();
+    }
+
+
+
+    /*************************************************************************\
+     *  Predicates
+    \*************************************************************************/
+
+    /** */
+    @Override
+    public boolean isEmpty() {
+        return !keySet.iterator().hasNext();
+    }
+
+    /** */
+    @Override
+    public boolean isSimple() {
+        if (original.isSimple()) { return true; }
+        for (final A a: keySet) {
+            if (original.valuesOf(a).size() > 1) { return false; }
+        }
+        return true;
+    }
+
+    /** */
+    @Override
+    public boolean isInjective() {
+        if (original.isInjective()) { return true; }
+        for (final B b: this.values()) {
+            if (this.keysOf(b).size() > 1) { return false; }
+        }
+        return true;
+    }
+
+    /** */
+    @Override
+    public boolean isEntire() {
+        return getDomainType().isEntire(keySet);
+    }
+
+    /** */
+    @Override
+    public boolean isSurjective() {
+        return getRangeType().isEntire(this.values());
+    }
+
+
+    /** */
+    @Override
+    public boolean contains(final Object a, final Object b) {
+        return admits(a) && original.contains(a, b);
+    }
+
+    /** */
+    @Override
+    public boolean containsKey(final Object a) {
+        return admits(a) && original.containsKey(a);
+    }
+
+    /** */
+    @Override
+    public boolean containsValue(final Object b) {
+        for (final A a: original.keysOf(b)) {
+            if (admits(a)) { return true; }
+        }
+        return false;
+    }
+
+
+
+    /*************************************************************************\
+     *  Private Methods
+    \*************************************************************************/
+
+    /** Determines whether the pairs of the given key are in the view. */
+    private boolean admits(final Object a) {
+        return a != null && as.contains(a) == keep;
+    }
+
+
+    /**
+     * Determines whether the keys are enumerated from the restricting
+     * set, rather than from the keys of the relation.
+     */
+    private boolean probes() {
+        return keep && as.size() < original.keys().size();
+    }
+
+
+
+    /*************************************************************************\
+     *  Nested Classes
+    \*************************************************************************/
+
+    /** */
+    private final class KeySet extends AbstractSet<A> {
+        /** */
+        @Override
+        public int size() {
+            int size = 0;
+            for (final Iterator<A> i = iterator(); i.hasNext(); i.next()) {
+                ++size;
+            }
+            return size;
+        }
+
+        /** */
+        @Override
+        public boolean contains(final Object o) {
+            return containsKey(o);
+        }
+
+        /** */
+        @Override
+        public Iterator<A> iterator() {
+            return probes() ? new KeyIterator(as.iterator(), true)
+                    : new KeyIterator(original.keys().iterator(), false);
+        }
+    }
+
+
+    /** Filters the keys of the view from a set of candidates. */
+    private final class KeyIterator implements Iterator<A> {
+        private final Iterator<?> candidates;
+        private final boolean probe;
+        private A next;
+
+        /**
+         * @param probe Whether the candidates come from the restricting
+         * set, and must be looked up in the relation.
+         */
+        KeyIterator(final Iterator<?> candidates, final boolean probe) {
+            this.candidates = candidates;
+            this.probe = probe;
+        }
+
+        /** */
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean hasNext() {
+            while (next == null && candidates.hasNext()) {
+                final Object a = candidates.next();
+                if (probe ? a != null && original.containsKey(a)
+                        : admits(a)) {
+                    next = (A) a;
+                }
+            }
+            return next != null;
+        }
+
+        /** */
+        @Override
+        public A next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            final A a = next;
+            next = null;
+            return a;
+        }
+
+        /** */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+
+    /** */
+    private final class RestrictionIterator implements Iterator<Pair<A, B>> {
+        private final Iterator<A> keys = keySet.iterator();
+        private A currentKey;
+        private Iterator<B> values = Collections.<B>emptyIterator();
+
+        /** */
+        @Override
+        public boolean hasNext() {
+            while (!values.hasNext()) {
+                if (!keys.hasNext()) { return false; }
+                currentKey = keys.next();
+                values = original.valuesOf(currentKey).iterator();
+            }
+            return true;
+        }
+
+        /** */
+        @Override
+        public Pair<A, B> next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            return new Pair<A, B>(currentKey, values.next());
+        }
+
+        /** */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
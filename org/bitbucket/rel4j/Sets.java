@@ -24,12 +24,16 @@
 package org.bitbucket.rel4j;
 
 import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * Sets
@@ -40,6 +44,21 @@ import java.util.Set;
 
 public final class Sets {
 
+    /*************************************************************************\
+     *  Fields
+    \*************************************************************************/
+
+    /** The initial capacity of a bucket. */
+    static final int BUCKET_CAPACITY = 4;
+
+    /**
+     * How many times larger one sorted array must be than the other
+     * before the kernels gallop through it instead of merging.
+     */
+    static final int GALLOP_RATIO = 8;
+
+
+
     /*************************************************************************\
      *  Constructors
     \*************************************************************************/
@@ -61,6 +80,12 @@ public final class Sets {
     public static <E> Set<E> union(
             final Set<E> s1,
             final Set<? extends E> s2) {
+        final IdSet<E> c1 = IdSet.compatible(s1, s2);
+        if (c1 != null) {
+            final IdSet<?> c2 = (IdSet<?>) s2;
+            return c1.elements(union(c1.column, c1.from, c1.to,
+                    c2.column, c2.from, c2.to));
+        }
         final Set<E> set = copy(s1);
         set.addAll(id(s2));
         return set;
@@ -71,22 +96,77 @@ public final class Sets {
     public static <E> Set<E> difference(
             final Set<E> s1,
             final Set<? extends E> s2) {
+        final IdSet<E> c1 = IdSet.compatible(s1, s2);
+        if (c1 != null) {
+            final IdSet<?> c2 = (IdSet<?>) s2;
+            return c1.elements(difference(c1.column, c1.from, c1.to,
+                    c2.column, c2.from, c2.to));
+        }
         final Set<E> set = copy(s1);
         set.removeAll(id(s2));
         return set;
     }
 
 
-    /** */
+    /**
+     * Iterates over the smaller of the two sets,
+     * and probes the larger one.
+     */
     public static <E> Set<E> intersection(
             final Set<E> s1,
             final Set<? extends E> s2) {
-        final Set<E> set = copy(s1);
-        set.retainAll(id(s2));
+        final IdSet<E> c1 = IdSet.compatible(s1, s2);
+        if (c1 != null) {
+            final IdSet<?> c2 = (IdSet<?>) s2;
+            return c1.elements(intersection(c1.column, c1.from, c1.to,
+                    c2.column, c2.from, c2.to));
+        }
+        if (s1 == null || s2 == null) { return new HashSet<E>(); }
+        if (s1.size() <= s2.size()) {
+            final Set<E> set = copy(s1);
+            set.retainAll(s2);
+            return set;
+        }
+        final Set<E> set = new HashSet<E>();
+        for (final E e: s2) {
+            if (s1.contains(e)) { set.add(e); }
+        }
         return set;
     }
 
 
+    /**
+     * Returns the intersection of two sorted arrays of distinct integers,
+     * as a new sorted array.
+     * If one array is much smaller than the other, the larger one is
+     * searched by galloping, in {@code O(m log(n / m))} time;
+     * otherwise both are merged, in {@code O(m + n)} time.
+     */
+    public static int[] intersection(final int[] s1, final int[] s2) {
+        return intersection(s1, 0, s1.length, s2, 0, s2.length);
+    }
+
+
+    /**
+     * Returns the union of two sorted arrays of distinct integers,
+     * as a new sorted array.
+     */
+    public static int[] union(final int[] s1, final int[] s2) {
+        return union(s1, 0, s1.length, s2, 0, s2.length);
+    }
+
+
+    /**
+     * Returns the elements of a sorted array of distinct integers that
+     * are not in another, as a new sorted array.
+     * If the second array is much larger than the first,
+     * it is searched by galloping.
+     */
+    public static int[] difference(final int[] s1, final int[] s2) {
+        return difference(s1, 0, s1.length, s2, 0, s2.length);
+    }
+
+
 
     /*************************************************************************\
      *  Private Methods
@@ -99,6 +179,19 @@ public final class Sets {
     }
 
 
+    /**
+     * Returns a copy of the elements of an iterable, so that the original
+     * may change while the copy is traversed. {@code null} yields an empty
+     * list.
+     */
+    static List<Object> elements(final Iterable<?> iterable) {
+        final List<Object> list = new ArrayList<Object>();
+        if (iterable == null) { return list; }
+        for (final Object o: iterable) { list.add(o); }
+        return list;
+    }
+
+
     /** */
     static <E> Set<E> empty() {
         return new HashSet<E>();
@@ -120,8 +213,93 @@ public final class Sets {
     }
 
 
+    /** Intersects the ranges {@code a[af, at)} and {@code b[bf, bt)}. */
+    static int[] intersection(final int[] a, final int af, final int at,
+            final int[] b, final int bf, final int bt) {
+        if (at - af > bt - bf) { return intersection(b, bf, bt, a, af, at); }
+        final int[] out = new int[at - af];
+        int n = 0;
+        if ((long) (at - af) * GALLOP_RATIO < bt - bf) {
+            for (int i = af, j = bf; i < at && j < bt; ++i) {
+                j = gallop(b, j, bt, a[i]);
+                if (j < bt && b[j] == a[i]) { out[n++] = b[j++]; }
+            }
+        } else {
+            int i = af, j = bf;
+            while (i < at && j < bt) {
+                if (a[i] < b[j]) { ++i; }
+                else if (a[i] > b[j]) { ++j; }
+                else { out[n++] = a[i++]; ++j; }
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+
+    /** Merges the ranges {@code a[af, at)} and {@code b[bf, bt)}. */
+    static int[] union(final int[] a, final int af, final int at,
+            final int[] b, final int bf, final int bt) {
+        final int[] out = new int[(at - af) + (bt - bf)];
+        int i = af, j = bf, n = 0;
+        while (i < at && j < bt) {
+            if (a[i] < b[j]) { out[n++] = a[i++]; }
+            else if (a[i] > b[j]) { out[n++] = b[j++]; }
+            else { out[n++] = a[i++]; ++j; }
+        }
+        while (i < at) { out[n++] = a[i++]; }
+        while (j < bt) { out[n++] = b[j++]; }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+
+    /** Subtracts the range {@code b[bf, bt)} from {@code a[af, at)}. */
+    static int[] difference(final int[] a, final int af, final int at,
+            final int[] b, final int bf, final int bt) {
+        final int[] out = new int[at - af];
+        final boolean gallop = (long) (at - af) * GALLOP_RATIO < bt - bf;
+        int n = 0;
+        for (int i = af, j = bf; i < at; ++i) {
+            if (gallop) {
+                j = gallop(b, j, bt, a[i]);
+            } else {
+                while (j < bt && b[j] < a[i]) { ++j; }
+            }
+            if (j < bt && b[j] == a[i]) { ++j; }
+            else { out[n++] = a[i]; }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+
+    /**
+     * Returns the first index in {@code b[from, to)} whose element is not
+     * less than {@code key}, or {@code to} if there is none.
+     * Probes at doubling distances from {@code from}, then searches
+     * the last interval.
+     */
+    static int gallop(final int[] b, final int from, final int to,
+            final int key) {
+        if (from >= to || b[from] >= key) { return from; }
+        int lo = from, step = 1;
+        while (step < to - lo && b[lo + step] < key) {
+            lo += step;
+            step <<= 1;
+        }
+        final int i = Arrays.binarySearch(b, lo + 1,
+                Math.min(lo + step, to), key);
+        return i >= 0 ? i : -i - 1;
+    }
+
+
+    /** */
+    static <E> Bucket<E> bucket() {
+        return new Bucket<E>();
+    }
+
+
     /** */
     static <E> Set<E> cappedSingleton(final E e) {
+        if (e == null) { return Collections.<E>emptySet(); }
         return new CappedSingleton<E>(e);
     }
 
@@ -131,6 +309,121 @@ public final class Sets {
      *  Nested Classes
     \*************************************************************************/
 
+    /**
+     * A hash set that is unmodifiable through its public interface.
+     * Relations store their per-element sets as buckets, and modify them
+     * through the package-private methods only. This way, a bucket can be
+     * handed out to callers as is, without wrapping it in a new
+     * unmodifiable view on every call.
+     */
+    static final class Bucket<E> extends HashSet<E> {
+        private static final long serialVersionUID = 6104577390124867312L;
+
+        /** */
+        Bucket() {
+            super(BUCKET_CAPACITY);
+        }
+
+        /** Adds an element to this bucket. */
+        boolean insert(final E e) {
+            return super.add(e);
+        }
+
+        /** Removes an element from this bucket. */
+        boolean delete(final Object o) {
+            return super.remove(o);
+        }
+
+        /** Returns an iterator that supports removal. */
+        Iterator<E> rawIterator() {
+            return super.iterator();
+        }
+
+        /** */
+        @Override
+        public Iterator<E> iterator() {
+            return new ReadOnlyIterator<E>(super.iterator());
+        }
+
+        /** */
+        @Override
+        public boolean add(final E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        /** */
+        @Override
+        public boolean addAll(final Collection<? extends E> c) {
+            throw new UnsupportedOperationException();
+        }
+
+        /** */
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException();
+        }
+
+        /** */
+        @Override
+        public boolean remove(final Object o) {
+            throw new UnsupportedOperationException();
+        }
+
+        /** */
+        @Override
+        public boolean removeAll(final Collection<?> c) {
+            throw new UnsupportedOperationException();
+        }
+
+        /** */
+        @Override
+        public boolean removeIf(final Predicate<? super E> filter) {
+            throw new UnsupportedOperationException();
+        }
+
+        /** */
+        @Override
+        public boolean retainAll(final Collection<?> c) {
+            throw new UnsupportedOperationException();
+        }
+
+        /** */
+        @Override
+        public Object clone() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+
+    /** */
+    private static final class ReadOnlyIterator<E> implements Iterator<E> {
+        private final Iterator<E> iterator;
+
+        /** */
+        ReadOnlyIterator(final Iterator<E> i) {
+            iterator = i;
+        }
+
+        /** */
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        /** */
+        @Override
+        public E next() {
+            return iterator.next();
+        }
+
+        /** */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+
     /** */
     private static final class CappedSingleton<E> extends AbstractSet<E> {
         private final E element;
@@ -29,6 +29,10 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
+import org.bitbucket.rel4j.MemoryStats.Category;
+import org.bitbucket.rel4j.RelationMetrics.Operation;
+import org.bitbucket.rel4j.Sets.Bucket;
+
 
 /**
  * Provides an implementation of a standard mutable binary relation,
@@ -48,7 +52,11 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     /** The Map storages. */
     private final Map<A, B> keyValue;
-    private final Map<B, Set<A>> valueKey;
+    private final Map<B, Bucket<A>> valueKey;
+
+    /** The unmodifiable views of the domain and range. */
+    private final Set<A> keySet;
+    private final Set<B> valueSet;
 
     /** The number of key-value entries. */
     private transient int size;
@@ -67,7 +75,9 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
      */
     public SimpleBiMap() {
         keyValue = new HashMap<A, B>();
-        valueKey = new HashMap<B, Set<A>>();
+        valueKey = new HashMap<B, Bucket<A>>();
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
     }
 
 
@@ -77,7 +87,9 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
     public SimpleBiMap(final int initialCapacity) {
         assert initialCapacity > 0;
         keyValue = new HashMap<A, B>(initialCapacity);
-        valueKey = new HashMap<B, Set<A>>(initialCapacity);
+        valueKey = new HashMap<B, Bucket<A>>(initialCapacity);
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
     }
 
 
@@ -87,7 +99,9 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
     public SimpleBiMap(final Domain<A> dom, final Domain<B> ran) {
         super(dom, ran);
         keyValue = new HashMap<A, B>();
-        valueKey = new HashMap<B, Set<A>>();
+        valueKey = new HashMap<B, Bucket<A>>();
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
     }
 
 
@@ -98,7 +112,24 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
             final Domain<A> dom, final Domain<B> ran) {
         super(dom, ran);
         keyValue = new HashMap<A, B>(initialCapacity);
-        valueKey = new HashMap<B, Set<A>>(initialCapacity);
+        valueKey = new HashMap<B, Bucket<A>>(initialCapacity);
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
+    }
+
+
+    /**
+     *  Parameter constructor of class SimpleBiMap.
+     *  
+     *  @param metrics The sink this relation reports its operations to.
+     */
+    public SimpleBiMap(final Domain<A> dom, final Domain<B> ran,
+            final RelationMetrics metrics) {
+        super(dom, ran, metrics);
+        keyValue = new HashMap<A, B>();
+        valueKey = new HashMap<B, Bucket<A>>();
+        keySet   = Collections.unmodifiableSet(keyValue.keySet());
+        valueSet = Collections.unmodifiableSet(valueKey.keySet());
     }
 
 
@@ -115,18 +146,21 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public Set<A> keys() {
-        return Collections.unmodifiableSet(keyValue.keySet());
+        return keySet;
     }
 
 
     @Override
     public Set<A> keysOf(final Object b) {
-        return Collections.unmodifiableSet(Sets.id(valueKey.get(b)));
+        recordOperation(Operation.KEYS_OF);
+        final Set<A> as = valueKey.get(b);
+        return as == null ? Collections.<A>emptySet() : as;
     }
 
 
     @Override
     public A keyOf(final Object b) {
+        recordOperation(Operation.KEYS_OF);
         final Set<A> as = valueKey.get(b);
         if (as == null || as.size() > 1) { return null; }
         return as.iterator().next();
@@ -134,48 +168,35 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
 
     @Override
-    public Set<A> keysFor(Iterable<?> bs) {
-        if (bs == null) { bs = Collections.emptySet(); }
-        final Set<A> set = Sets.<A>empty();
-        for (final Object b: bs) {
-            final Set<A> keys = valueKey.get(b);
-            if (keys == null) { continue; }
-            set.addAll(keys);
-        }
-        return Collections.unmodifiableSet(set);
+    public Set<A> keysFor(final Iterable<?> bs) {
+        return UnionSet.ofKeys(this, bs);
     }
 
 
 
     @Override
     public Set<B> values() {
-        return Collections.unmodifiableSet(valueKey.keySet());
+        return valueSet;
     }
 
 
     @Override
     public Set<B> valuesOf(final Object a) {
+        recordOperation(Operation.VALUES_OF);
         return Sets.cappedSingleton(keyValue.get(a));
     }
 
 
     @Override
     public B valueOf(final Object a) {
+        recordOperation(Operation.VALUES_OF);
         return keyValue.get(a);
     }
 
 
     @Override
-    public Set<B> valuesFor(Iterable<?> as) {
-        if (as == null) { as = Collections.emptySet(); }
-        final Set<B> set = Sets.<B>empty();
-        for (final Object a: as) {
-            B value = keyValue.get(a);
-            if (value != null) {
-                set.add(value);
-            }
-        }
-        return Collections.unmodifiableSet(set);
+    public Set<B> valuesFor(final Iterable<?> as) {
+        return UnionSet.ofValues(this, as);
     }
 
 
@@ -185,6 +206,29 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
     }
 
 
+    /**
+     * Returns an estimate of the memory used by this relation,
+     * excluding its keys and values.
+     */
+    @Override
+    public MemoryStats memoryFootprint() {
+        final int cap = MemoryStats.MAP_CAPACITY;
+        long sets = 0L;
+        for (final Bucket<A> as: valueKey.values()) {
+            sets += MemoryStats.hashSet(as.size(), Sets.BUCKET_CAPACITY);
+        }
+        return new MemoryStats.Builder()
+            .add(Category.RELATION, shallowSize(4, 8)
+                    + 4 * MemoryStats.view())
+            .add(Category.MAPS, MemoryStats.hashMap(keyValue.size(), cap)
+                    + MemoryStats.hashMap(valueKey.size(), cap))
+            .add(Category.ENTRIES, (keyValue.size() + valueKey.size())
+                    * MemoryStats.hashEntry())
+            .add(Category.SETS, sets)
+            .build();
+    }
+
+
 
     /* ************************************************************************\
      *  Predicates
@@ -209,21 +253,24 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public boolean contains(final Object a, final Object b) {
-        if (a == null || b == null) { return false; }
+        recordOperation(Operation.CONTAINS);
+        if (a == null || b == null || !mightContain(a, b)) { return false; }
         return b.equals(keyValue.get(a));
     }
 
 
     @Override
     public boolean containsKey(final Object a) {
-        if (a == null) { return false; }
+        recordOperation(Operation.CONTAINS);
+        if (a == null || !mightContainKey(a)) { return false; }
         return keyValue.get(a) != null;
     }
 
 
     @Override
     public boolean containsValue(final Object b) {
-        if (b == null) { return false; }
+        recordOperation(Operation.CONTAINS);
+        if (b == null || !mightContainValue(b)) { return false; }
         return valueKey.get(b) != null;
     }
 
@@ -290,11 +337,15 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public boolean remove(final Object a, final Object b) {
+        checkMutable();
+        recordOperation(Operation.REMOVE);
         if (a == null || b == null) { return false; }
         final B prev = keyValue.get(a);
         if (prev != null && prev.equals(b)) {
             --size;
+            pairRemoved(a, b);
             keyValue.remove(a);
+            keyRemoved(a);
             removeValueKey(b, a);
             return true;
         }
@@ -311,7 +362,7 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public Set<B> removeKeys(Iterable<?> as) {
-        if (as == null) { as = Collections.emptySet(); }
+        as = Sets.elements(as);
         final Set<B> set = Sets.<B>empty();
         for (final Object a: as) {
             final B b = doRemoveKey(a);
@@ -330,7 +381,7 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public Set<A> removeValues(Iterable<?> bs) {
-        if (bs == null) { bs = Collections.emptySet(); }
+        bs = Sets.elements(bs);
         final Set<A> set = Sets.<A>empty();
         for (final Object b: bs) {
             final Set<A> as = doRemoveValue(b);
@@ -342,42 +393,83 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     @Override
     public void clear() {
+        checkMutable();
+        recordOperation(Operation.CLEAR);
         size            = 0;
         nonInjective    = 0;
+        pairsCleared();
         keyValue.clear();
         valueKey.clear();
     }
 
 
 
+    /**************************************************************************\
+     *  Package Methods
+    \**************************************************************************/
+
+    /**
+     * Loads the pair {@code (a, b)}, where the key {@code a} must not be
+     * present yet. Used by {@code RelationCodec}, it skips the lookups of
+     * {@code put(Object, Object)} and updates the counters directly.
+     */
+    void loadPair(final A a, final B b) {
+        keyValue.put(a, b);
+        ++size;
+        keyAdded(a);
+        pairAdded(a, b);
+        Bucket<A> as = valueKey.get(b);
+        if (as == null) {
+            valueKey.put(b, as = Sets.<A>bucket());
+            valueAdded(b);
+        } else { ++nonInjective; }
+        as.insert(a);
+    }
+
+
+
     /**************************************************************************\
      *  Private Methods
     \**************************************************************************/
 
     /** */
     private boolean doPut(final A a, final B b) {
+        checkMutable();
+        recordOperation(Operation.PUT);
         final B prev = keyValue.put(a, b);
         if (prev == null) {
             ++size;
+            keyAdded(a);
         } else if (prev.equals(b)) {
             return false;
         } else {
+            pairRemoved(a, prev);
             removeValueKey(prev, a);
+            recordEviction(1);
         }
-        Set<A> as = valueKey.get(b);
-        if (as == null) { valueKey.put(b, as = Sets.<A>empty()); }
-        as.add(a);
+        pairAdded(a, b);
+        Bucket<A> as = valueKey.get(b);
+        if (as == null) {
+            valueKey.put(b, as = Sets.<A>bucket());
+            valueAdded(b);
+        }
+        as.insert(a);
         if (as.size() > 1) { ++nonInjective; }
+        recordDegree(1, as.size());
         return true;
     }
 
 
     /** */
     private B doRemoveKey(final Object a) {
+        checkMutable();
+        recordOperation(Operation.REMOVE);
         if (a == null) { return null; }
         final B b = keyValue.remove(a);
         if (b != null) {
             --size;
+            pairRemoved(a, b);
+            keyRemoved(a);
             removeValueKey(b, a);
         }
         return b;
@@ -386,13 +478,18 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     /** */
     private Set<A> doRemoveValue(final Object b) {
+        checkMutable();
+        recordOperation(Operation.REMOVE);
         if (b == null) { return null; }
-        final Set<A> as = valueKey.remove(b);
+        final Bucket<A> as = valueKey.remove(b);
         if (as != null) {
+            valueRemoved(b);
             size -= as.size();
             nonInjective -= as.size() - 1;
             for (final A a: as) {
+                pairRemoved(a, b);
                 keyValue.remove(a);
+                keyRemoved(a);
             }
         }
         return as;
@@ -401,10 +498,12 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
 
     /** */
     private void removeValueKey(final Object b, final Object a) {
-        final Set<A> as = valueKey.get(b);
-        as.remove(a);
-        if (as.isEmpty()) { valueKey.remove(b); }
-        else { --nonInjective; }
+        final Bucket<A> as = valueKey.get(b);
+        as.delete(a);
+        if (as.isEmpty()) {
+            valueKey.remove(b);
+            valueRemoved(b);
+        } else { --nonInjective; }
     }
 
 
@@ -441,8 +540,12 @@ public final class SimpleBiMap<A, B> extends AbstractMutableRelation<A, B> {
         /** */
         @Override
         public void remove() {
+            checkMutable();
+            recordOperation(Operation.REMOVE);
             iterator.remove();
             --size;
+            pairRemoved(current.getKey(), current.getValue());
+            keyRemoved(current.getKey());
             removeValueKey(current.getValue(), current.getKey());
         }
     }
@@ -0,0 +1,311 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+
+/**
+ * A breadth-first traversal of a relation between elements of the same
+ * type, from a set of seeds. The seeds are returned first, at depth
+ * {@code 0}, followed by the elements one step away from them, and so on,
+ * each element once, up to an optional maximum depth.
+ * 
+ * Steps follow the pairs of the relation forwards (from a key to its
+ * values), backwards (from a value to its keys) or both ways.
+ * The traversal keeps one frontier per level, and a single visited set
+ * for the whole traversal: a bit set over the indices of the domain type,
+ * when that type is indexed, and a hash set otherwise. Each level is
+ * expanded through {@code valuesOf} and {@code keysOf}, so no sets are
+ * allocated per element.
+ * 
+ * A parallel traversal expands large frontiers with a parallel stream.
+ * It requires that the relation is not modified during the traversal,
+ * and that its lookups are safe to call from several threads, as they
+ * are for the relations of this package when no thread writes to them.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ * @see Relations#breadthFirst(Relation, Iterable, Direction)
+ * @see Relations#reachableWithin(Relation, Iterable, int)
+ */
+
+public final class Traversal<A> implements Iterator<A> {
+
+    /**************************************************************************\
+     *  Fields
+    \**************************************************************************/
+
+    /** The smallest frontier that is expanded in parallel. */
+    static final int PARALLEL_THRESHOLD = 1024;
+
+
+    /** The directions in which the pairs of a relation are followed. */
+    public enum Direction {
+        /** From each key to its values. */
+        FORWARD,
+        /** From each value to its keys. */
+        BACKWARD,
+        /** Both ways. */
+        BOTH
+    }
+
+
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The traversed relation. */
+    private final Relation<A, A> relation;
+
+    /** The direction of each step. */
+    private final Direction direction;
+
+    /** The maximum depth, or {@code -1} if unbounded. */
+    private final int maxDepth;
+
+    /** Whether large frontiers are expanded in parallel. */
+    private final boolean parallel;
+
+    /** The elements already reached. */
+    private final Visited visited;
+
+    /** The current level, and the next one while expanding. */
+    private List<A> frontier;
+    private List<A> next = new ArrayList<A>();
+
+    /** The position in the current level. */
+    private int index;
+
+    /** The depth of the current level. */
+    private int depth;
+
+    /** The depth of the element last returned by {@code next()}. */
+    private int returnedDepth;
+
+
+
+    /**************************************************************************\
+     *  Constructors and Factories
+    \**************************************************************************/
+
+    /**
+     *  Parameter constructor of class Traversal.
+     */
+    Traversal(final Relation<A, A> r, final Iterable<? extends A> seeds,
+            final Direction direction, final int maxDepth,
+            final boolean parallel) {
+        this.relation  = r;
+        this.direction = direction;
+        this.maxDepth  = maxDepth;
+        this.parallel  = parallel;
+        this.visited   = new Visited(indexedType(r, direction));
+        this.frontier  = new ArrayList<A>();
+        for (final A a: seeds) {
+            if (a != null && visited.add(a)) { frontier.add(a); }
+        }
+    }
+
+
+
+    /**************************************************************************\
+     *  Public Methods
+    \**************************************************************************/
+
+    /**
+     * Determines whether there are elements left to reach,
+     * expanding the next level if the current one is exhausted.
+     */
+    @Override
+    public boolean hasNext() {
+        while (index == frontier.size()) {
+            if (frontier.isEmpty() || depth == maxDepth) { return false; }
+            expand();
+        }
+        return true;
+    }
+
+
+    /** */
+    @Override
+    public A next() {
+        if (!hasNext()) { throw new NoSuchElementException(); }
+        returnedDepth = depth;
+        return frontier.get(index++);
+    }
+
+
+    /** */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+
+    /**
+     * Returns the number of steps from the seeds to the element last
+     * returned by {@code next()}, or {@code 0} before the first call.
+     * Calls to {@code hasNext()} do not change it, even when they expand
+     * the next level.
+     */
+    public int depth() {
+        return returnedDepth;
+    }
+
+
+
+    /**************************************************************************\
+     *  Package-private Methods
+    \**************************************************************************/
+
+    /** Adds every remaining element to a set, level by level. */
+    Set<A> drain(final Set<A> result) {
+        while (hasNext()) {
+            result.addAll(frontier.subList(index, frontier.size()));
+            index = frontier.size();
+        }
+        return result;
+    }
+
+
+
+    /**************************************************************************\
+     *  Private Methods
+    \**************************************************************************/
+
+    /**
+     * Replaces the current level by the elements one step away from it
+     * that were not reached before. In parallel, the steps are collected
+     * concurrently, and filtered against the visited set afterwards.
+     */
+    private void expand() {
+        next.clear();
+        if (parallel && frontier.size() >= PARALLEL_THRESHOLD) {
+            final List<A> reached = frontier.parallelStream()
+                    .flatMap(a -> neighbours(a).stream())
+                    .filter(b -> !visited.contains(b))
+                    .collect(Collectors.toList());
+            for (final A b: reached) {
+                if (visited.add(b)) { next.add(b); }
+            }
+        } else {
+            for (final A a: frontier) {
+                for (final A b: neighbours(a)) {
+                    if (visited.add(b)) { next.add(b); }
+                }
+            }
+        }
+        final List<A> level = frontier;
+        frontier = next;
+        next = level;
+        index = 0;
+        ++depth;
+    }
+
+
+    /** Returns the elements one step away from {@code a}. */
+    private Collection<A> neighbours(final A a) {
+        switch (direction) {
+        case FORWARD:
+            return Sets.id(relation.valuesOf(a));
+        case BACKWARD:
+            return Sets.id(relation.keysOf(a));
+        default:
+            final Set<A> bs = Sets.id(relation.valuesOf(a));
+            final Set<A> as = Sets.id(relation.keysOf(a));
+            if (as.isEmpty()) { return bs; }
+            if (bs.isEmpty()) { return as; }
+            final List<A> both = new ArrayList<A>(bs.size() + as.size());
+            both.addAll(bs);
+            both.addAll(as);
+            return both;
+        }
+    }
+
+
+    /**
+     * Returns the indexed type of the elements reached in the given
+     * direction, or {@code null} if they are not all of one indexed type.
+     */
+    private static Domain<?> indexedType(final Relation<?, ?> r,
+            final Direction direction) {
+        final Domain<?> dom = r.getDomainType();
+        final Domain<?> ran = r.getRangeType();
+        switch (direction) {
+        case FORWARD:
+            return ran.isIndexed() ? ran : null;
+        case BACKWARD:
+            return dom.isIndexed() ? dom : null;
+        default:
+            return dom.isIndexed() && dom.equals(ran) ? dom : null;
+        }
+    }
+
+
+
+    /**************************************************************************\
+     *  Nested Classes
+    \**************************************************************************/
+
+    /**
+     * A set of reached elements: a bit set over the indices of an indexed
+     * type, and a hash set for the elements outside of it.
+     */
+    private static final class Visited {
+        private final Domain<?> type;
+        private final BitSet bits;
+        private final Set<Object> others = new HashSet<Object>();
+
+        /** */
+        Visited(final Domain<?> type) {
+            this.type = type;
+            this.bits = type == null ? null
+                    : new BitSet(type.cardinality().value());
+        }
+
+        /** */
+        boolean add(final Object o) {
+            final int i = type == null ? -1 : type.indexOf(o);
+            if (i < 0) { return others.add(o); }
+            if (bits.get(i)) { return false; }
+            bits.set(i);
+            return true;
+        }
+
+        /** */
+        boolean contains(final Object o) {
+            final int i = type == null ? -1 : type.indexOf(o);
+            return i < 0 ? others.contains(o) : bits.get(i);
+        }
+    }
+}
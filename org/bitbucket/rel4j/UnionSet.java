@@ -0,0 +1,259 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.bitbucket.rel4j;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * UnionSet
+ * 
+ * A lazy, unmodifiable union of the values (resp. keys) of a relation,
+ * for some given keys (resp. values). It is the result type of
+ * {@code valuesFor} and {@code keysFor}.
+ * 
+ * Membership is answered by probing the relation's reverse index:
+ * {@code b} is in {@code valuesFor(as)} if, and only if, some key of
+ * {@code b} is in {@code as}. Iteration walks the given keys and removes
+ * duplicates on the fly; it needs no duplicate tracking at all when the
+ * given keys form a set and the relation is injective (resp. simple),
+ * since the values of distinct keys are then disjoint.
+ * The size is a sum of image sizes in that case; otherwise, it is
+ * counted through a temporary set, which is not retained.
+ * 
+ * The union is a live view: it always reflects the current pairs of the
+ * relation. Its iterators copy each image before walking it, so the
+ * relation may be modified while the union is being iterated; the
+ * elements removed or added by such modifications may or may not be
+ * returned.
+ * 
+ * When the given keys (resp. values) are a {@code Collection}, they are
+ * read lazily, on every query. Any other iterable may only be traversable
+ * once, so its elements are copied into a set when the union is created.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+final class UnionSet<E> extends AbstractSet<E> {
+
+    /*************************************************************************\
+     *  Attributes
+    \*************************************************************************/
+
+    /** The underlying relation. */
+    private final Relation<?, ?> relation;
+
+    /** The elements whose images are united. */
+    private final Iterable<?> sources;
+
+    /** {@code true} for an union of values, {@code false} for keys. */
+    private final boolean forward;
+
+
+
+    /*************************************************************************\
+     *  Constructors and Factories
+    \*************************************************************************/
+
+    /** */
+    private UnionSet(final Relation<?, ?> r, final Iterable<?> sources,
+            final boolean forward) {
+        assert r != null && sources != null;
+        this.relation = r;
+        this.sources = sources;
+        this.forward = forward;
+    }
+
+
+    /**
+     * Returns the union of the values of the given keys.
+     * A {@code null} iterable yields an empty set.
+     */
+    static <E> Set<E> ofValues(final Relation<?, E> r, final Iterable<?> as) {
+        if (as == null) { return Collections.<E>emptySet(); }
+        return new UnionSet<E>(r, snapshot(as), true);
+    }
+
+
+    /**
+     * Returns the union of the keys of the given values.
+     * A {@code null} iterable yields an empty set.
+     */
+    static <E> Set<E> ofKeys(final Relation<E, ?> r, final Iterable<?> bs) {
+        if (bs == null) { return Collections.<E>emptySet(); }
+        return new UnionSet<E>(r, snapshot(bs), false);
+    }
+
+
+
+    /*************************************************************************\
+     *  Getters
+    \*************************************************************************/
+
+    /** */
+    @Override
+    public int size() {
+        if (isDisjoint()) {
+            int size = 0;
+            for (final Object s: sources) {
+                size += image(s).size();
+            }
+            return size;
+        }
+        final Set<E> set = Sets.<E>empty();
+        for (final Object s: sources) {
+            set.addAll(image(s));
+        }
+        return set.size();
+    }
+
+
+    /** */
+    @Override
+    public Iterator<E> iterator() {
+        return new UnionIterator(isDisjoint() ? null : Sets.<E>empty());
+    }
+
+
+
+    /*************************************************************************\
+     *  Predicates
+    \*************************************************************************/
+
+    /** */
+    @Override
+    public boolean isEmpty() {
+        for (final Object s: sources) {
+            if (!image(s).isEmpty()) { return false; }
+        }
+        return true;
+    }
+
+
+    /** */
+    @Override
+    public boolean contains(final Object o) {
+        if (o == null) { return false; }
+        final Set<?> reverse = forward
+            ? relation.keysOf(o) : relation.valuesOf(o);
+        if (reverse.isEmpty()) { return false; }
+        if (sources instanceof Set
+                && ((Set<?>) sources).size() > reverse.size()) {
+            for (final Object s: reverse) {
+                if (((Set<?>) sources).contains(s)) { return true; }
+            }
+            return false;
+        }
+        for (final Object s: sources) {
+            if (reverse.contains(s)) { return true; }
+        }
+        return false;
+    }
+
+
+
+    /*************************************************************************\
+     *  Private Methods
+    \*************************************************************************/
+
+    /**
+     * Returns the given collection as it is, or a copy of the elements
+     * of any other iterable.
+     */
+    private static Iterable<?> snapshot(final Iterable<?> sources) {
+        if (sources instanceof Collection) { return sources; }
+        final Set<Object> set = new HashSet<Object>();
+        for (final Object o: sources) { set.add(o); }
+        return set;
+    }
+
+
+    /** */
+    @SuppressWarnings("unchecked")
+    private Set<E> image(final Object s) {
+        return (Set<E>) (forward ? relation.valuesOf(s) : relation.keysOf(s));
+    }
+
+
+    /** Whether the images of the sources are pairwise disjoint. */
+    private boolean isDisjoint() {
+        return sources instanceof Set
+            && (forward ? relation.isInjective() : relation.isSimple());
+    }
+
+
+
+    /*************************************************************************\
+     *  Nested Classes
+    \*************************************************************************/
+
+    /** */
+    private final class UnionIterator implements Iterator<E> {
+        private final Iterator<?> outer = sources.iterator();
+        private final Set<E> seen;
+        private Iterator<E> inner = Collections.<E>emptySet().iterator();
+        private E next;
+
+        /** */
+        UnionIterator(final Set<E> seen) {
+            this.seen = seen;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                while (!inner.hasNext()) {
+                    if (!outer.hasNext()) { return false; }
+                    inner = new ArrayList<E>(image(outer.next()))
+                        .iterator();
+                }
+                final E e = inner.next();
+                if (seen == null || seen.add(e)) { next = e; }
+            }
+            return true;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            final E e = next;
+            next = null;
+            return e;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bitbucket.rel4j.MutableRelation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the insertion and removal of every generated pair.
+ * Scores are per relation, that is, per {@code size} operations.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MutationBenchmark {
+
+    /** A relation to remove pairs from, rebuilt before each call. */
+    @State(Scope.Thread)
+    public static class Full {
+        public MutableRelation<Integer, Integer> relation;
+
+        /** */
+        @Setup(Level.Invocation)
+        public void setUp(final Workload w) {
+            relation = w.build();
+        }
+    }
+
+
+    /** Puts every pair into an empty relation. */
+    @Benchmark
+    public MutableRelation<Integer, Integer> put(final Workload w) {
+        final MutableRelation<Integer, Integer> r = w.empty();
+        final Integer[] keys = w.keys;
+        final Integer[] values = w.values;
+        for (int i = 0; i < keys.length; ++i) {
+            r.put(keys[i], values[i]);
+        }
+        return r;
+    }
+
+
+    /** Removes every pair from a full relation. */
+    @Benchmark
+    public MutableRelation<Integer, Integer> remove(final Workload w,
+            final Full full) {
+        final MutableRelation<Integer, Integer> r = full.relation;
+        final Integer[] keys = w.keys;
+        final Integer[] values = w.values;
+        for (int i = 0; i < keys.length; ++i) {
+            r.remove(keys[i], values[i]);
+        }
+        return r;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bitbucket.rel4j.Relation;
+import org.bitbucket.rel4j.Relations;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the operators of {@code Relations}, and the equality
+ * and hashing of whole relations.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OperatorBenchmark {
+
+    /** Composes the relation with itself. */
+    @Benchmark
+    public Relation<Integer, Integer> compose(final Workload w) {
+        return Relations.compose(w.relation, w.relation);
+    }
+
+
+    /** Composes the relation with itself, preserving simplicity. */
+    @Benchmark
+    public Relation<Integer, Integer> composeOptimized(final Workload w) {
+        return Relations.compose(w.relation, w.relation, true);
+    }
+
+
+    /** Composes the relation with itself, by a sort-merge join. */
+    @Benchmark
+    public Relation<Integer, Integer> composeSorted(final Workload w) {
+        return Relations.composeSorted(w.relation, w.relation);
+    }
+
+
+    /** Divides the relation by itself. */
+    @Benchmark
+    public Relation<Integer, Integer> divide(final Workload w) {
+        return Relations.divide(w.relation, w.relation);
+    }
+
+
+    /** Wraps the relation in an immutable view. */
+    @Benchmark
+    public Relation<Integer, Integer> immutable(final Workload w) {
+        return Relations.immutable(w.relation);
+    }
+
+
+    /** Compares two equal, distinct relations. */
+    @Benchmark
+    public boolean equals(final Workload w) {
+        return w.relation.equals(w.copy);
+    }
+
+
+    /** Compares a relation to an immutable view of an equal one. */
+    @Benchmark
+    public boolean equalsView(final Workload w) {
+        return w.relation.equals(Relations.immutable(w.copy));
+    }
+
+
+    /** Hashes the relation. */
+    @Benchmark
+    public int hashCode(final Workload w) {
+        return w.relation.hashCode();
+    }
+}
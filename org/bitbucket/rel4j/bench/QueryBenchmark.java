@@ -0,0 +1,138 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.bench;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bitbucket.rel4j.Pair;
+import org.bitbucket.rel4j.Relation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the lookups of a relation, for every generated pair.
+ * Scores are per pass, that is, per {@code size} lookups (or one
+ * iteration over the whole relation).
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    /** Tests every generated pair, present or evicted. */
+    @Benchmark
+    public int contains(final Workload w) {
+        final Relation<Integer, Integer> r = w.relation;
+        int n = 0;
+        for (int i = 0; i < w.size; ++i) {
+            if (r.contains(w.keys[i], w.values[i])) { ++n; }
+        }
+        return n;
+    }
+
+
+    /** Tests pairs whose key is absent. */
+    @Benchmark
+    public int containsMiss(final Workload w) {
+        final Relation<Integer, Integer> r = w.relation;
+        int n = 0;
+        for (int i = 0; i < w.size; ++i) {
+            if (r.contains(w.misses[i], w.values[i])) { ++n; }
+        }
+        return n;
+    }
+
+
+    /** Looks up the values of every generated key. */
+    @Benchmark
+    public int valuesOf(final Workload w) {
+        final Relation<Integer, Integer> r = w.relation;
+        int n = 0;
+        for (int i = 0; i < w.size; ++i) {
+            n += r.valuesOf(w.keys[i]).size();
+        }
+        return n;
+    }
+
+
+    /** Looks up the values of absent keys. */
+    @Benchmark
+    public int valuesOfMiss(final Workload w) {
+        final Relation<Integer, Integer> r = w.relation;
+        int n = 0;
+        for (int i = 0; i < w.size; ++i) {
+            n += r.valuesOf(w.misses[i]).size();
+        }
+        return n;
+    }
+
+
+    /** Iterates the keys for sliding windows of 8 generated values. */
+    @Benchmark
+    public void keysFor(final Workload w, final Blackhole bh) {
+        final Relation<Integer, Integer> r = w.relation;
+        final List<Integer> values = Arrays.asList(w.values);
+        for (int i = 0; i + 8 <= w.size; i += 8) {
+            for (final Integer a: r.keysFor(values.subList(i, i + 8))) {
+                bh.consume(a);
+            }
+        }
+    }
+
+
+    /** Iterates over every pair. */
+    @Benchmark
+    public void iteration(final Workload w, final Blackhole bh) {
+        for (final Pair<Integer, Integer> p: w.relation) {
+            bh.consume(p);
+        }
+    }
+
+
+    /** Iterates over every key and its values. */
+    @Benchmark
+    public void keyIteration(final Workload w, final Blackhole bh) {
+        final Relation<Integer, Integer> r = w.relation;
+        for (final Integer a: r.keys()) {
+            for (final Integer b: r.valuesOf(a)) {
+                bh.consume(b);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the relation benchmarks with the GC profiler, which reports the
+ * allocation rate normalized per operation ({@code gc.alloc.rate.norm})
+ * next to the throughput of each benchmark.
+ * The usual JMH command line options are accepted, for instance
+ * {@code -p implementation=BiMap} or a benchmark name pattern.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+public final class RelationBenchmarks {
+
+    /** */
+    private RelationBenchmarks() {}
+
+
+    /**
+     * Runs the benchmarks of this package.
+     */
+    public static void main(final String[] args)
+            throws RunnerException, CommandLineOptionException {
+        final CommandLineOptions cmd = new CommandLineOptions(args);
+        final OptionsBuilder options = new OptionsBuilder();
+        options.parent(cmd).addProfiler(GCProfiler.class);
+        if (cmd.getIncludes().isEmpty()) {
+            options.include(RelationBenchmarks.class.getPackage().getName());
+        }
+        new Runner(options.build()).run();
+    }
+}
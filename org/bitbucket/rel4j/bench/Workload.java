@@ -0,0 +1,190 @@
+/*
+ *  Copyright (c) 2013 Andre Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.bench;
+
+import java.util.Random;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.MutableRelation;
+import org.bitbucket.rel4j.OneToOneBiMap;
+import org.bitbucket.rel4j.SimpleBiMap;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The shared state of the relation benchmarks: a sequence of pairs drawn
+ * from a distribution, and relations of a given implementation built
+ * from them.
+ * 
+ * The distributions are:
+ * <ul>
+ * <li>{@code uniform}: keys and values drawn uniformly from
+ * {@code size / 4} elements, for an average fan-out of 4;</li>
+ * <li>{@code powerLaw}: keys drawn from a Zipf-like distribution over
+ * {@code size / 4} elements, so that a few keys have most of the values,
+ * and values drawn uniformly;</li>
+ * <li>{@code oneToOne}: the pairs of a random permutation
+ * of {@code size} elements.</li>
+ * </ul>
+ * Keys and values share the same elements, so that every relation
+ * can be composed with itself.
+ * Simple and one-to-one implementations evict pairs, so they may hold
+ * fewer than {@code size} pairs.
+ * 
+ * @author Andre Santos
+ * @since 0.2
+ * @version 0.2
+ */
+
+@State(Scope.Benchmark)
+public class Workload {
+
+    /**************************************************************************\
+     *  Parameters
+    \**************************************************************************/
+
+    /** The number of generated pairs. */
+    @Param({"1000", "10000"})
+    public int size;
+
+    /** The distribution of the pairs. */
+    @Param({"uniform", "powerLaw", "oneToOne"})
+    public String distribution;
+
+    /** The relation implementation. */
+    @Param({"BiMap", "SimpleBiMap", "OneToOneBiMap"})
+    public String implementation;
+
+
+
+    /**************************************************************************\
+     *  Attributes
+    \**************************************************************************/
+
+    /** The exponent of the power-law distribution. */
+    private static final double ALPHA = 1.2;
+
+    /** The generated pairs, boxed in advance. */
+    public Integer[] keys;
+    public Integer[] values;
+
+    /** Elements that are neither keys nor values. */
+    public Integer[] misses;
+
+    /** A relation built from the pairs. */
+    public MutableRelation<Integer, Integer> relation;
+
+    /** Another relation, equal to {@code relation}. */
+    public MutableRelation<Integer, Integer> copy;
+
+
+
+    /**************************************************************************\
+     *  Setup
+    \**************************************************************************/
+
+    /** */
+    @Setup
+    public void setUp() {
+        final Random random = new Random(size * 31L + distribution.hashCode());
+        final int space = Math.max(1, size / 4);
+        keys = new Integer[size];
+        values = new Integer[size];
+        misses = new Integer[size];
+        if ("oneToOne".equals(distribution)) {
+            final int[] perm = permutation(size, random);
+            for (int i = 0; i < size; ++i) {
+                keys[i] = i;
+                values[i] = perm[i];
+            }
+        } else {
+            final boolean skewed = "powerLaw".equals(distribution);
+            for (int i = 0; i < size; ++i) {
+                keys[i] = skewed ? zipf(space, random) : random.nextInt(space);
+                values[i] = random.nextInt(space);
+            }
+        }
+        for (int i = 0; i < size; ++i) {
+            misses[i] = -1 - i;
+        }
+        relation = build();
+        copy = build();
+    }
+
+
+
+    /**************************************************************************\
+     *  Methods
+    \**************************************************************************/
+
+    /**
+     * Returns a new, empty relation of the benchmarked implementation.
+     */
+    public MutableRelation<Integer, Integer> empty() {
+        if ("SimpleBiMap".equals(implementation)) {
+            return new SimpleBiMap<Integer, Integer>(size);
+        } else if ("OneToOneBiMap".equals(implementation)) {
+            return new OneToOneBiMap<Integer, Integer>(size);
+        }
+        return new BiMap<Integer, Integer>(size);
+    }
+
+
+    /**
+     * Returns a new relation of the benchmarked implementation,
+     * with every generated pair.
+     */
+    public MutableRelation<Integer, Integer> build() {
+        final MutableRelation<Integer, Integer> r = empty();
+        for (int i = 0; i < size; ++i) {
+            r.put(keys[i], values[i]);
+        }
+        return r;
+    }
+
+
+    /** Returns a random permutation of {@code [0, n)}. */
+    private static int[] permutation(final int n, final Random random) {
+        final int[] perm = new int[n];
+        for (int i = 0; i < n; ++i) {
+            final int j = random.nextInt(i + 1);
+            perm[i] = perm[j];
+            perm[j] = i;
+        }
+        return perm;
+    }
+
+
+    /**
+     * Draws an element of {@code [0, n)} whose probability decays as a
+     * power of its rank, by inverting a Pareto distribution.
+     */
+    private static int zipf(final int n, final Random random) {
+        final double u = random.nextDouble();
+        final int x = (int) Math.pow(1.0 - u, -1.0 / (ALPHA - 1.0)) - 1;
+        return x < 0 || x >= n ? random.nextInt(n) : x;
+    }
+}
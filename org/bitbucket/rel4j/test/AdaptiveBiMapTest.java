@@ -0,0 +1,184 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.bitbucket.rel4j.AdaptiveBiMap;
+import org.bitbucket.rel4j.AdaptiveBiMap.Representation;
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.Domain;
+import org.bitbucket.rel4j.Pair;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class AdaptiveBiMapTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class AdaptiveBiMapTest {
+
+    /** One-to-one until a key gets a second value */
+    @Test
+    public void promoteToInjective() {
+        AdaptiveBiMap<Integer, Integer> r =
+                new AdaptiveBiMap<Integer, Integer>();
+        for (int i = 0; i < 10; ++i) {
+            r.put(i, i + 100);
+        }
+        assertEquals(Representation.ONE_TO_ONE, r.representation());
+        assertTrue(r.put(0, 200));
+        assertEquals(Representation.INJECTIVE, r.representation());
+        assertEquals(11, r.size());
+        assertFalse(r.isSimple());
+        assertTrue(r.isInjective());
+        assertTrue(r.contains(0, 100) && r.contains(0, 200));
+    }
+
+    /** No pair is ever evicted, and the hash code follows the pairs */
+    @Test
+    public void promoteToGeneral() {
+        AdaptiveBiMap<Integer, Integer> r =
+                new AdaptiveBiMap<Integer, Integer>();
+        BiMap<Integer, Integer> expected = new BiMap<Integer, Integer>();
+        for (int i = 0; i < 20; ++i) {
+            r.put(i % 5, i % 7);
+            expected.put(i % 5, i % 7);
+        }
+        assertEquals(Representation.GENERAL, r.representation());
+        assertEquals(expected, r);
+        assertEquals(expected.hashCode(), r.hashCode());
+        assertFalse(r.put(0, 0));
+    }
+
+    /** A value with a second key makes it simple */
+    @Test
+    public void promoteToSimple() {
+        AdaptiveBiMap<String, Integer> r =
+                new AdaptiveBiMap<String, Integer>();
+        r.put("a", 1);
+        r.put("b", 1);
+        assertEquals(Representation.SIMPLE, r.representation());
+        assertEquals(2, r.keysOf(1).size());
+    }
+
+    /** Demotion, when enabled */
+    @Test
+    public void demote() {
+        AdaptiveBiMap<Integer, Integer> fixed =
+                new AdaptiveBiMap<Integer, Integer>();
+        AdaptiveBiMap<Integer, Integer> r =
+                new AdaptiveBiMap<Integer, Integer>(true);
+        r.put(0, 0);
+        r.put(0, 1);
+        r.put(1, 0);
+        fixed.put(0, 0);
+        fixed.put(0, 1);
+        fixed.put(1, 0);
+        assertEquals(Representation.GENERAL, r.representation());
+        r.remove(1, 0);
+        fixed.remove(1, 0);
+        assertEquals(Representation.INJECTIVE, r.representation());
+        assertEquals(Representation.GENERAL, fixed.representation());
+        r.removeValue(1);
+        assertEquals(Representation.ONE_TO_ONE, r.representation());
+        assertEquals(fixed.size() - 1, r.size());
+        assertEquals(Integer.valueOf(0), r.valueOf(0));
+    }
+
+    /** Iterator removals and coverage of indexed domains */
+    @Test
+    public void iteratorAndDomains() {
+        Domain<Integer> d = Domain.range(0, 3);
+        AdaptiveBiMap<Integer, Integer> r =
+                new AdaptiveBiMap<Integer, Integer>(d, d);
+        r.put(0, 1);
+        r.put(1, 2);
+        r.put(2, 2);
+        assertTrue(r.isEntire());
+        assertFalse(r.isSurjective());
+        Iterator<Pair<Integer, Integer>> it = r.iterator();
+        while (it.hasNext()) {
+            if (it.next().first() == 2) { it.remove(); }
+        }
+        assertFalse(r.isEntire());
+        BiMap<Integer, Integer> expected = new BiMap<Integer, Integer>();
+        expected.put(0, 1);
+        expected.put(1, 2);
+        assertEquals(expected.hashCode(), r.hashCode());
+        r.clear();
+        assertEquals(0, r.hashCode());
+        assertTrue(r.isEmpty());
+    }
+
+    /** Views taken before a migration follow the relation */
+    @Test
+    public void viewsSurviveMigrations() {
+        AdaptiveBiMap<Integer, Integer> r =
+                new AdaptiveBiMap<Integer, Integer>();
+        r.put(1, 10);
+        Set<Integer> keys = r.keys();
+        Set<Integer> values = r.values();
+        Set<Integer> ofOne = r.valuesOf(1);
+        Set<Integer> ofTwelve = r.keysOf(12);
+        r.put(1, 11);
+        r.put(2, 12);
+        assertEquals(Representation.INJECTIVE, r.representation());
+        assertEquals(new HashSet<Integer>(Arrays.asList(1, 2)), keys);
+        assertEquals(new HashSet<Integer>(Arrays.asList(10, 11, 12)),
+                values);
+        assertEquals(new HashSet<Integer>(Arrays.asList(10, 11)), ofOne);
+        assertEquals(Collections.singleton(2), ofTwelve);
+        assertTrue(keys.contains(2));
+    }
+
+    /** Unions taken before a migration follow the relation */
+    @Test
+    public void valuesForSurvivesMigrations() {
+        AdaptiveBiMap<Integer, Integer> r =
+                new AdaptiveBiMap<Integer, Integer>(true);
+        r.put(1, 10);
+        Set<Integer> ofOne = r.valuesFor(Collections.singleton(1));
+        Set<Integer> ofTen = r.keysFor(Collections.singleton(10));
+        assertEquals(Representation.ONE_TO_ONE, r.representation());
+        r.put(1, 11);
+        r.put(2, 10);
+        assertEquals(Representation.GENERAL, r.representation());
+        assertTrue(ofOne.contains(11));
+        assertEquals(new HashSet<Integer>(Arrays.asList(10, 11)), ofOne);
+        assertEquals(new HashSet<Integer>(Arrays.asList(1, 2)), ofTen);
+        r.remove(1, 11);
+        r.remove(2, 10);
+        assertEquals(Representation.ONE_TO_ONE, r.representation());
+        assertFalse(ofOne.contains(11));
+        assertEquals(Collections.singleton(10), ofOne);
+        assertEquals(Collections.singleton(1), ofTen);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.bitbucket.rel4j.AbstractMutableRelation;
+import org.bitbucket.rel4j.AdaptiveBiMap;
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.OneToOneBiMap;
+import org.bitbucket.rel4j.Pair;
+import org.bitbucket.rel4j.SimpleBiMap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class BloomFilterTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class BloomFilterTest {
+
+    /** Returns one relation of each filtered implementation. */
+    private static List<AbstractMutableRelation<Integer, Integer>>
+            relations() {
+        return Arrays.<AbstractMutableRelation<Integer, Integer>>asList(
+                new BiMap<Integer, Integer>(),
+                new SimpleBiMap<Integer, Integer>(),
+                new OneToOneBiMap<Integer, Integer>(),
+                new AdaptiveBiMap<Integer, Integer>());
+    }
+
+    /** Asserts that a filtered relation answers like an unfiltered copy. */
+    private static void assertAgree(
+            final AbstractMutableRelation<Integer, Integer> r) {
+        final BiMap<Integer, Integer> model = new BiMap<Integer, Integer>();
+        for (final Pair<Integer, Integer> p: r) {
+            model.put(p.first(), p.second());
+        }
+        for (int a = -5; a < 120; ++a) {
+            assertEquals(model.containsKey(a), r.containsKey(a));
+            assertEquals(model.containsValue(a), r.containsValue(a));
+            for (int b = -5; b < 60; b += 3) {
+                assertEquals(model.contains(a, b), r.contains(a, b));
+            }
+        }
+    }
+
+    /** Filters never hide pairs, through puts, removals and rebuilds */
+    @Test
+    public void noFalseNegatives() {
+        final Random random = new Random(48);
+        for (final AbstractMutableRelation<Integer, Integer> r: relations()) {
+            assertFalse(r.hasFilter());
+            r.put(1, 2);
+            r.enableFilter(0);
+            assertTrue(r.hasFilter());
+            assertTrue(r.contains(1, 2));
+            for (int i = 0; i < 1500; ++i) {
+                r.put(random.nextInt(100), random.nextInt(50));
+            }
+            assertAgree(r);
+            for (int i = 0; i < 1500; ++i) {
+                r.remove(random.nextInt(100), random.nextInt(50));
+            }
+            assertAgree(r);
+            r.rebuildFilter();
+            assertAgree(r);
+            r.begin();
+            r.clear();
+            assertFalse(r.contains(1, 2));
+            r.rollback();
+            assertAgree(r);
+            r.disableFilter();
+            assertFalse(r.hasFilter());
+            assertAgree(r);
+        }
+    }
+
+    /** Filters reject null arguments, and rebuilding needs a filter */
+    @Test
+    public void edges() {
+        final BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        r.enableFilter();
+        assertFalse(r.contains(null, 1));
+        assertFalse(r.containsKey(null));
+        assertFalse(r.containsValue(null));
+        r.disableFilter();
+        try { r.rebuildFilter(); fail(); }
+        catch (IllegalStateException e) {}
+        try { r.enableFilter(-1); fail(); }
+        catch (IllegalArgumentException e) {}
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.ColumnarRelation;
+import org.bitbucket.rel4j.Pair;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class ColumnarRelationTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class ColumnarRelationTest {
+
+    /** Returns a random relation. */
+    private static BiMap<Integer, Integer> random(final long seed) {
+        final Random random = new Random(seed);
+        final BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        for (int i = 0; i < 2000; ++i) {
+            r.put(random.nextInt(300), random.nextInt(100));
+        }
+        return r;
+    }
+
+    /** A columnar copy answers every query like its source */
+    @Test
+    public void queries() {
+        final BiMap<Integer, Integer> model = random(46);
+        final ColumnarRelation<Integer, Integer> r =
+                ColumnarRelation.of(model);
+        assertSame(r, ColumnarRelation.of(r));
+        assertEquals(model, r);
+        assertEquals(r, model);
+        assertEquals(model.hashCode(), r.hashCode());
+        assertEquals(model.size(), r.size());
+        assertEquals(model.keys(), r.keys());
+        assertEquals(model.values(), r.values());
+        assertEquals(model.isSimple(), r.isSimple());
+        assertEquals(model.isInjective(), r.isInjective());
+        for (int a = -1; a <= 300; ++a) {
+            assertEquals(model.valuesOf(a), r.valuesOf(a));
+            assertEquals(model.containsKey(a), r.containsKey(a));
+            assertEquals(model.valueOf(a), r.valueOf(a));
+            for (int b = -1; b <= 100; b += 7) {
+                assertEquals(model.contains(a, b), r.contains(a, b));
+            }
+        }
+        for (int b = -1; b <= 100; ++b) {
+            assertEquals(model.keysOf(b), r.keysOf(b));
+            assertEquals(model.containsValue(b), r.containsValue(b));
+            assertEquals(model.keyOf(b), r.keyOf(b));
+        }
+        final Set<Integer> seen = new HashSet<Integer>();
+        Integer last = null;
+        int n = 0;
+        for (final Pair<Integer, Integer> p: r) {
+            assertTrue(model.contains(p.first(), p.second()));
+            if (!p.first().equals(last)) {
+                assertTrue(seen.add(p.first()));
+                last = p.first();
+            }
+            ++n;
+        }
+        assertEquals(model.size(), n);
+    }
+
+    /** Counts and filters agree with a pair by pair scan */
+    @Test
+    public void scans() {
+        final BiMap<Integer, Integer> model = random(47);
+        final ColumnarRelation<Integer, Integer> r =
+                ColumnarRelation.of(model);
+        final Predicate<Integer> p = new Predicate<Integer>() {
+            @Override
+            public boolean test(final Integer a) { return a % 3 == 0; }
+        };
+        final Predicate<Integer> q = new Predicate<Integer>() {
+            @Override
+            public boolean test(final Integer b) { return b < 40; }
+        };
+        final BiMap<Integer, Integer> expected =
+                new BiMap<Integer, Integer>();
+        for (final Pair<Integer, Integer> pair: model) {
+            if (p.test(pair.first()) && q.test(pair.second())) {
+                expected.put(pair.first(), pair.second());
+            }
+        }
+        assertEquals(expected.size(), r.count(p, q));
+        final ColumnarRelation<Integer, Integer> filtered = r.filter(p, q);
+        assertEquals(expected, filtered);
+        assertEquals(expected.keys(), filtered.keys());
+        assertEquals(expected.values(), filtered.values());
+        assertEquals(expected.hashCode(), filtered.hashCode());
+        for (final Integer b: expected.values()) {
+            assertEquals(expected.keysOf(b), filtered.keysOf(b));
+        }
+        final Predicate<Integer> none = new Predicate<Integer>() {
+            @Override
+            public boolean test(final Integer e) { return false; }
+        };
+        assertEquals(0L, r.count(p, none));
+        assertTrue(r.filter(none, q).isEmpty());
+        assertTrue(r.filter(none, q).keys().isEmpty());
+    }
+}
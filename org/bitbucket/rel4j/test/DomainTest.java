@@ -0,0 +1,131 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.bitbucket.rel4j.test;
+
+import java.util.Arrays;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.Cardinal;
+import org.bitbucket.rel4j.Domain;
+import org.bitbucket.rel4j.OneToOneBiMap;
+import org.bitbucket.rel4j.SimpleBiMap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class DomainTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class DomainTest {
+    private enum Color { RED, GREEN, BLUE }
+
+    private final Integer zero = Integer.valueOf(0);
+    private final Integer one = Integer.valueOf(1);
+    private final Integer two = Integer.valueOf(2);
+
+
+    /** */
+    @Test
+    public void rangeIndices() {
+        Domain<Integer> d = Domain.range(10, 20);
+        assertTrue(d.isIndexed());
+        assertEquals(Cardinal.of(10), d.cardinality());
+        assertEquals(0, d.indexOf(Integer.valueOf(10)));
+        assertEquals(-1, d.indexOf(Integer.valueOf(20)));
+        assertEquals(Integer.valueOf(15), d.elementAt(5));
+        assertEquals(d, Domain.range(10, 20));
+    }
+
+    /** */
+    @Test
+    public void explicitAndEnumIndices() {
+        Domain<String> d = Domain.of(Arrays.asList("x", "y", "x", "z"));
+        assertEquals(Cardinal.of(3), d.cardinality());
+        assertEquals(2, d.indexOf("z"));
+        assertEquals("y", d.elementAt(1));
+        Domain<Color> c = Domain.of(Color.class);
+        assertEquals(Cardinal.of(3), c.cardinality());
+        assertEquals(Color.BLUE, c.elementAt(c.indexOf(Color.BLUE)));
+        assertFalse(new Domain<Object>().isIndexed());
+        assertFalse(new Domain<Object>().cardinality().isFinite());
+    }
+
+    /** */
+    @Test
+    public void entireBiMap() {
+        BiMap<Integer, Color> r = new BiMap<Integer, Color>(
+                Domain.range(0, 2), Domain.of(Color.class));
+        r.put(zero, Color.RED);
+        r.put(zero, Color.GREEN);
+        r.put(two, Color.BLUE);
+        assertFalse(r.isEntire());
+        assertTrue(r.isSurjective());
+        r.put(one, Color.RED);
+        assertTrue(r.isEntire());
+        r.removeValue(Color.RED);
+        assertFalse(r.isEntire());
+        assertFalse(r.isSurjective());
+        r.clear();
+        r.putAll(Arrays.asList(zero, one), Arrays.asList(Color.values()));
+        assertTrue(r.isEntire());
+        assertTrue(r.isSurjective());
+    }
+
+    /** */
+    @Test
+    public void entireSimpleBiMap() {
+        SimpleBiMap<Integer, Integer> r = new SimpleBiMap<Integer, Integer>(
+                Domain.range(0, 2), Domain.range(0, 2));
+        r.put(zero, one);
+        r.put(one, one);
+        assertTrue(r.isEntire());
+        assertFalse(r.isSurjective());
+        r.put(one, zero);
+        assertTrue(r.isSurjective());
+        r.removeKey(zero);
+        assertFalse(r.isEntire());
+        assertFalse(r.isSurjective());
+    }
+
+    /** */
+    @Test
+    public void entireOneToOneBiMap() {
+        OneToOneBiMap<Integer, Integer> r =
+                new OneToOneBiMap<Integer, Integer>(
+                        Domain.range(0, 2), Domain.range(0, 2));
+        r.put(zero, one);
+        r.put(one, zero);
+        assertTrue(r.isEntire());
+        assertTrue(r.isSurjective());
+        r.put(zero, zero);
+        assertFalse(r.isEntire());
+        assertFalse(r.isSurjective());
+        r.put(one, one);
+        assertTrue(r.isEntire());
+        assertTrue(r.isSurjective());
+    }
+}
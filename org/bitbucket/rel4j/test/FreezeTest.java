@@ -0,0 +1,168 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.bitbucket.rel4j.AbstractMutableRelation;
+import org.bitbucket.rel4j.AdaptiveBiMap;
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.Domain;
+import org.bitbucket.rel4j.IndexedBiMap;
+import org.bitbucket.rel4j.IntPairRelation;
+import org.bitbucket.rel4j.MemoryStats;
+import org.bitbucket.rel4j.MutableRelation;
+import org.bitbucket.rel4j.OneToOneBiMap;
+import org.bitbucket.rel4j.Pair;
+import org.bitbucket.rel4j.Relation;
+import org.bitbucket.rel4j.Relations;
+import org.bitbucket.rel4j.SimpleBiMap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class FreezeTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class FreezeTest {
+
+    /** Fills the relation with the pairs (i, i) and (i, i + 1). */
+    private static void fill(final MutableRelation<Integer, Integer> r) {
+        for (int i = 0; i < 8; ++i) {
+            r.put(i, i);
+            r.put(i, i + 1);
+        }
+    }
+
+    /** Asserts that every mutation path of a frozen relation throws. */
+    private static void assertSealed(
+            final AbstractMutableRelation<Integer, Integer> r) {
+        final int size = r.size();
+        final int hash = r.hashCode();
+        r.freeze();
+        assertTrue(r.isFrozen());
+        try { r.put(100, 100); fail(); }
+        catch (UnsupportedOperationException e) {}
+        try { r.putAllKeys(Arrays.asList(0, 1), 5); fail(); }
+        catch (UnsupportedOperationException e) {}
+        try { r.remove(0, 0); fail(); }
+        catch (UnsupportedOperationException e) {}
+        try { r.removeKey(1); fail(); }
+        catch (UnsupportedOperationException e) {}
+        try { r.removeValues(Arrays.asList(1, 2)); fail(); }
+        catch (UnsupportedOperationException e) {}
+        try { r.clear(); fail(); }
+        catch (UnsupportedOperationException e) {}
+        final Iterator<Pair<Integer, Integer>> it = r.iterator();
+        final Pair<Integer, Integer> first = it.next();
+        try { it.remove(); fail(); }
+        catch (UnsupportedOperationException e) {}
+        assertEquals(size, r.size());
+        assertEquals(hash, r.hashCode());
+        assertTrue(r.contains(first.first(), first.second()));
+    }
+
+    /** Every implementation rejects mutations once frozen */
+    @Test
+    public void sealed() {
+        final Domain<Integer> d = Domain.range(0, 16);
+        final BiMap<Integer, Integer> b = new BiMap<Integer, Integer>();
+        final SimpleBiMap<Integer, Integer> s =
+                new SimpleBiMap<Integer, Integer>();
+        final OneToOneBiMap<Integer, Integer> o =
+                new OneToOneBiMap<Integer, Integer>();
+        final IndexedBiMap<Integer, Integer> x =
+                new IndexedBiMap<Integer, Integer>(d, d);
+        final IntPairRelation p = new IntPairRelation();
+        final AdaptiveBiMap<Integer, Integer> a =
+                new AdaptiveBiMap<Integer, Integer>();
+        fill(b);
+        fill(s);
+        fill(o);
+        fill(x);
+        fill(p);
+        fill(a);
+        assertSealed(b);
+        assertSealed(s);
+        assertSealed(o);
+        assertSealed(x);
+        assertSealed(p);
+        assertSealed(a);
+        try { p.put(100, 100); fail(); }
+        catch (UnsupportedOperationException e) {}
+    }
+
+    /** The transfer wraps the relation itself, and freezes it */
+    @Test
+    public void transfer() {
+        final BiMap<Integer, Integer> b = new BiMap<Integer, Integer>();
+        fill(b);
+        final BiMap<Integer, Integer> expected = new BiMap<Integer, Integer>();
+        fill(expected);
+        final Relation<Integer, Integer> r = Relations.immutableTransfer(b);
+        assertTrue(b.isFrozen());
+        assertEquals(expected, r);
+        assertEquals(expected.hashCode(), r.hashCode());
+        assertEquals(MemoryStats.of(b).get(MemoryStats.Category.ENTRIES),
+                MemoryStats.of(r).get(MemoryStats.Category.ENTRIES));
+        try { b.put(100, 100); fail(); }
+        catch (UnsupportedOperationException e) {}
+        assertEquals(expected, Relations.immutable(b));
+    }
+
+    /** Compaction trims spare capacity without changing the pairs */
+    @Test
+    public void compact() {
+        final Domain<Integer> d = Domain.range(0, 64);
+        final IndexedBiMap<Integer, Integer> x =
+                new IndexedBiMap<Integer, Integer>(d, d);
+        final IntPairRelation p = new IntPairRelation();
+        for (int i = 0; i < 1000; ++i) {
+            p.put(i, i);
+        }
+        for (int i = 0; i < 990; ++i) {
+            p.remove(i, i);
+        }
+        for (int i = 0; i < 64; ++i) {
+            x.put(0, i);
+        }
+        x.removeValues(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+        final long before = x.memoryFootprint().total()
+                + p.memoryFootprint().total();
+        final int hash = x.hashCode();
+        Relations.immutableTransfer(x, true);
+        Relations.immutableTransfer(p, true);
+        assertTrue(x.memoryFootprint().total()
+                + p.memoryFootprint().total() < before);
+        assertEquals(hash, x.hashCode());
+        assertEquals(54, x.size());
+        assertEquals(10, p.size());
+        assertTrue(p.contains(995, 995));
+        assertTrue(x.contains(0, 63));
+        assertFalse(x.contains(0, 5));
+    }
+}
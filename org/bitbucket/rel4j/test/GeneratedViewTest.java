@@ -0,0 +1,160 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.bitbucket.rel4j.test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.Relation;
+import org.bitbucket.rel4j.Relations;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class GeneratedViewTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class GeneratedViewTest {
+    private final Set<Integer> small;
+    private final Set<Integer> large;
+    private final BiMap<Integer, Integer> r;
+
+    /** Default constructor for test class GeneratedViewTest */
+    public GeneratedViewTest() {
+        small = new HashSet<Integer>(Arrays.asList(0, 1, 2));
+        large = new HashSet<Integer>();
+        for (int i = 0; i < 100000; ++i) { large.add(Integer.valueOf(i)); }
+        r = new BiMap<Integer, Integer>();
+        r.put(0, 1);
+        r.put(0, 5);
+        r.put(1, 2);
+        r.put(7, 2);
+    }
+
+
+    /** */
+    @Test
+    public void largeTop() {
+        Relation<Integer, Integer> top = Relations.topView(large);
+        assertEquals(Integer.MAX_VALUE, top.size());
+        assertTrue(top.contains(99999, 0));
+        assertFalse(top.contains(100000, 0));
+        assertEquals(large, top.valuesOf(5));
+        assertFalse(top.isSimple());
+    }
+
+    /** */
+    @Test
+    public void topEqualsEager() {
+        assertEquals(Relations.top(small), Relations.topView(small));
+        assertEquals(Relations.top(small).hashCode(),
+                Relations.topView(small).hashCode());
+    }
+
+    /** */
+    @Test
+    public void identityEqualsEager() {
+        Relation<Integer, Integer> id = Relations.identityView(small);
+        assertEquals(Relations.identity(small), id);
+        assertTrue(id.isSimple() && id.isInjective());
+        assertEquals(Integer.valueOf(2), id.valueOf(2));
+        assertTrue(id.keysOf(3).isEmpty());
+    }
+
+    /** */
+    @Test
+    public void composeWithIdentity() {
+        BiMap<Integer, Integer> left = new BiMap<Integer, Integer>();
+        left.put(0, 1);
+        left.put(0, 5);
+        left.put(1, 2);
+        assertEquals(left, Relations.compose(
+                Relations.identityView(small), r));
+        assertEquals(Relations.compose(Relations.identity(small), r),
+                Relations.compose(Relations.identityView(small), r));
+        BiMap<Integer, Integer> right = new BiMap<Integer, Integer>();
+        right.put(0, 1);
+        right.put(1, 2);
+        right.put(7, 2);
+        assertEquals(right, Relations.compose(
+                r, Relations.identityView(small)));
+        assertEquals(r, Relations.compose(r, Relations.identityView(large)));
+    }
+
+    /** */
+    @Test
+    public void composeWithTop() {
+        assertEquals(Relations.compose(r, Relations.top(small)),
+                Relations.compose(r, Relations.topView(small)));
+        assertEquals(Relations.compose(Relations.top(small), r),
+                Relations.compose(Relations.topView(small), r));
+    }
+
+    /** */
+    @Test
+    public void functionAndPredicate() {
+        Relation<Integer, Integer> twice = Relations.functionView(small,
+                new Function<Integer, Integer>() {
+                    public Integer apply(Integer a) { return 2 * a; }
+                });
+        assertEquals(3, twice.size());
+        assertTrue(twice.contains(2, 4));
+        assertEquals(Integer.valueOf(1), twice.keyOf(2));
+        assertTrue(twice.isInjective());
+        Relation<Integer, Integer> less = Relations.predicateView(small,
+                small, new BiPredicate<Integer, Integer>() {
+                    public boolean test(Integer a, Integer b) { return a < b; }
+                });
+        assertEquals(3, less.size());
+        assertEquals(new HashSet<Integer>(Arrays.asList(1, 2)),
+                less.valuesOf(0));
+        assertEquals(2, less.keys().size());
+        assertEquals(less, Relations.converseView(
+                Relations.converseView(less)));
+        assertTrue(Relations.converseView(less).contains(2, 0));
+        assertTrue(twice.containsValue(4));
+        assertFalse(twice.containsValue(5));
+        assertFalse(Relations.converseView(twice).containsKey(99));
+    }
+
+    /** */
+    @Test
+    public void immutableCopiesTheSets() {
+        final Set<Integer> s = new HashSet<Integer>(Arrays.asList(1, 2, 3));
+        final Relation<Integer, Integer> top = Relations.topView(s);
+        final Relation<Integer, Integer> copy = Relations.immutable(top);
+        assertEquals(top, copy);
+        s.add(4);
+        assertEquals(16, top.size());
+        assertEquals(9, copy.size());
+        assertFalse(copy.containsKey(4));
+    }
+}
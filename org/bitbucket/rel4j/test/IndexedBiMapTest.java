@@ -0,0 +1,189 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.bitbucket.rel4j.test;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.Domain;
+import org.bitbucket.rel4j.IndexedBiMap;
+import org.bitbucket.rel4j.Pair;
+import org.bitbucket.rel4j.Relations;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The test class IndexedBiMapTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class IndexedBiMapTest {
+    private final Integer zero = Integer.valueOf(0);
+    private final Integer one = Integer.valueOf(1);
+    private final Integer two = Integer.valueOf(2);
+
+    private final Domain<Integer> domain = Domain.range(0, 3);
+
+    private IndexedBiMap<Integer, Integer> r;
+    private BiMap<Integer, Integer> expected;
+
+
+    /**
+     * Sets up the test fixture.
+     *
+     * Called before every test case method.
+     */
+    @Before
+    public void setUp() {
+        r = new IndexedBiMap<Integer, Integer>(domain, domain);
+        expected = new BiMap<Integer, Integer>();
+        for (Integer a: new Integer[]{ zero, one }) {
+            for (Integer b: new Integer[]{ one, two }) {
+                r.put(a, b);
+                expected.put(a, b);
+            }
+        }
+    }
+
+
+    /** */
+    @Test
+    public void gettersMatchBiMap() {
+        assertEquals(expected, r);
+        assertEquals(expected.hashCode(), r.hashCode());
+        assertEquals(4, r.size());
+        assertEquals(expected.keys(), r.keys());
+        assertEquals(expected.values(), r.values());
+        assertEquals(expected.valuesOf(zero), r.valuesOf(zero));
+        assertEquals(expected.keysOf(two), r.keysOf(two));
+        assertTrue(r.valuesOf(two).isEmpty());
+        assertFalse(r.isSimple());
+        assertFalse(r.isInjective());
+    }
+
+    /** */
+    @Test
+    public void putDuplicateAndRemove() {
+        assertFalse(r.put(zero, one));
+        assertTrue(r.remove(zero, one));
+        assertFalse(r.remove(zero, one));
+        assertTrue(r.remove(one, one));
+        assertFalse(r.containsValue(one));
+        assertTrue(r.isSimple());
+        assertFalse(r.isInjective());
+        assertEquals(2, r.removeValue(two).size());
+        assertTrue(r.isEmpty());
+        assertEquals(0, r.hashCode());
+    }
+
+    /** */
+    @Test
+    public void removeKeyAndEntire() {
+        r.put(two, zero);
+        assertTrue(r.isEntire());
+        assertTrue(r.isSurjective());
+        assertEquals(expected.valuesOf(one), r.removeKey(one));
+        assertFalse(r.isEntire());
+        assertTrue(r.isSurjective());
+        assertEquals(3, r.size());
+    }
+
+    /** */
+    @Test
+    public void iteratorRemove() {
+        Iterator<Pair<Integer, Integer>> it = r.iterator();
+        int count = 0;
+        while (it.hasNext()) {
+            Pair<Integer, Integer> p = it.next();
+            if (p.second().equals(one)) { it.remove(); }
+            ++count;
+        }
+        assertEquals(4, count);
+        expected.removeValue(one);
+        assertEquals(expected, r);
+    }
+
+    /** */
+    @Test(expected = IllegalArgumentException.class)
+    public void putOutsideDomain() {
+        r.put(Integer.valueOf(3), zero);
+    }
+
+    /** */
+    @Test
+    public void composeOverIndexedDomains() {
+        assertTrue(Relations.compose(r, r) instanceof BiMap);
+        assertEquals(Relations.compose(expected, expected),
+                Relations.compose(r, r));
+        final IndexedBiMap<Integer, Integer> dense =
+                Relations.indexed(Relations.compose(r, r));
+        assertEquals(Relations.compose(expected, expected), dense);
+    }
+
+    /** */
+    @Test(expected = IllegalArgumentException.class)
+    public void indexedOutsideDomain() {
+        Relations.indexed(expected);
+    }
+
+    /** Dense rows stay consistent through random puts and removals */
+    @Test
+    public void denseRows() {
+        final Domain<Integer> dense = Domain.range(0, 64);
+        final IndexedBiMap<Integer, Integer> d =
+                new IndexedBiMap<Integer, Integer>(dense, dense);
+        final BiMap<Integer, Integer> e = new BiMap<Integer, Integer>();
+        final Random random = new Random(7);
+        for (int k = 0; k < 5000; ++k) {
+            final int a = random.nextInt(4);
+            final int b = random.nextInt(64);
+            if (random.nextInt(3) == 0) {
+                assertEquals(e.remove(a, b), d.remove(a, b));
+            } else {
+                assertEquals(e.put(a, b), d.put(a, b));
+            }
+            assertEquals(e.contains(b % 4, a), d.contains(b % 4, a));
+        }
+        assertEquals(e, d);
+        for (int a = 0; a < 4; ++a) {
+            assertEquals(e.valuesOf(a), d.valuesOf(a));
+        }
+        for (int b = 0; b < 64; ++b) {
+            assertEquals(e.keysOf(b), d.keysOf(b));
+        }
+        final Iterator<Pair<Integer, Integer>> it = d.iterator();
+        while (it.hasNext()) {
+            final Pair<Integer, Integer> p = it.next();
+            if (p.second() % 2 == 0) {
+                it.remove();
+                e.remove(p.first(), p.second());
+            }
+        }
+        assertEquals(e, d);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Set;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.IntPair;
+import org.bitbucket.rel4j.IntPairRelation;
+import org.bitbucket.rel4j.LongPairSet;
+import org.bitbucket.rel4j.Pair;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class IntPairRelationTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class IntPairRelationTest {
+
+    /** Random insertions and removals against a HashSet */
+    @Test
+    public void longPairSet() {
+        Random random = new Random(42);
+        LongPairSet set = new LongPairSet(4);
+        Set<Long> expected = new HashSet<Long>();
+        for (int i = 0; i < 20000; ++i) {
+            long p = IntPair.pack(random.nextInt(64) - 32,
+                    random.nextInt(64));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(p), set.remove(p));
+            } else {
+                assertEquals(expected.add(p), set.add(p));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (Long p: expected) { assertTrue(set.contains(p)); }
+    }
+
+    /** Removing through the iterator visits every pair exactly once */
+    @Test
+    public void longPairSetIteratorRemove() {
+        LongPairSet set = new LongPairSet(8);
+        Set<Long> expected = new HashSet<Long>();
+        for (int a = 0; a < 50; ++a) {
+            for (int b = 0; b < 20; ++b) {
+                set.add(a, b);
+                expected.add(IntPair.pack(a, b));
+            }
+        }
+        Set<Long> seen = new HashSet<Long>();
+        PrimitiveIterator.OfLong it = set.iterator();
+        while (it.hasNext()) {
+            long p = it.nextLong();
+            assertTrue(seen.add(p));
+            if (IntPair.second(p) % 2 == 0) { it.remove(); }
+        }
+        assertEquals(expected, seen);
+        assertEquals(500, set.size());
+        assertFalse(set.contains(0, 0));
+        assertTrue(set.contains(0, 1));
+    }
+
+    /** Same pairs, same relation as a BiMap */
+    @Test
+    public void equalsBiMap() {
+        IntPairRelation r1 = new IntPairRelation();
+        BiMap<Integer, Integer> r2 = new BiMap<Integer, Integer>();
+        for (int a = 0; a < 10; ++a) {
+            for (int b = a; b < 10; b += 3) {
+                assertTrue(r1.put(a, b));
+                r2.put(a, b);
+            }
+        }
+        assertFalse(r1.put(0, 0));
+        assertEquals(r2, r1);
+        assertEquals(r1, r2);
+        assertEquals(r2.hashCode(), r1.hashCode());
+        assertEquals(r2.valuesOf(1), r1.valuesOf(1));
+        assertEquals(r2.keysOf(9), r1.keysOf(9));
+        assertFalse(r1.isSimple());
+        assertTrue(r1.contains(0, 3));
+        assertTrue(r1.contains(Integer.valueOf(0), Integer.valueOf(3)));
+        assertFalse(r1.contains("0", Integer.valueOf(3)));
+    }
+
+    /** Removals keep keys, values and hash code in step */
+    @Test
+    public void removals() {
+        IntPairRelation r = new IntPairRelation();
+        r.put(1, 2);
+        r.put(1, 3);
+        r.put(4, 3);
+        assertEquals(2, r.removeValue(3).size());
+        assertEquals(1, r.size());
+        assertFalse(r.containsKey(4));
+        assertFalse(r.containsValue(3));
+        assertEquals(Integer.valueOf(2), r.valueOf(1));
+        assertTrue(r.isSimple() && r.isInjective());
+        Iterator<Pair<Integer, Integer>> it = r.iterator();
+        it.next();
+        it.remove();
+        assertTrue(r.isEmpty());
+        assertTrue(r.keys().isEmpty());
+        assertEquals(0, r.hashCode());
+    }
+
+    /** Rows follow random insertions and removals */
+    @Test
+    public void rowsFollowEdits() {
+        IntPairRelation r1 = new IntPairRelation();
+        BiMap<Integer, Integer> r2 = new BiMap<Integer, Integer>();
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; ++i) {
+            int a = random.nextInt(20);
+            int b = random.nextInt(20);
+            if (random.nextInt(3) == 0) {
+                assertEquals(r2.remove(a, b), r1.remove(a, b));
+            } else {
+                assertEquals(r2.put(a, b), r1.put(a, b));
+            }
+        }
+        assertEquals(r2, r1);
+        for (int x = 0; x < 20; ++x) {
+            assertEquals(r2.valuesOf(x), r1.valuesOf(x));
+            assertEquals(r2.keysOf(x), r1.keysOf(x));
+            assertEquals(r2.valuesOf(x).size(), r1.valuesOf(x).size());
+            assertEquals(r2.valueOf(x), r1.valueOf(x));
+            assertEquals(r2.keyOf(x), r1.keyOf(x));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.Domain;
+import org.bitbucket.rel4j.IndexedBiMap;
+import org.bitbucket.rel4j.MemoryStats;
+import org.bitbucket.rel4j.MemoryStats.Category;
+import org.bitbucket.rel4j.MutableRelation;
+import org.bitbucket.rel4j.OneToOneBiMap;
+import org.bitbucket.rel4j.Relation;
+import org.bitbucket.rel4j.Relations;
+import org.bitbucket.rel4j.SimpleBiMap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class MemoryStatsTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class MemoryStatsTest {
+
+    /** The compact representations are smaller for 1:1 data */
+    @Test
+    public void representations() {
+        BiMap<Integer, Integer> b = new BiMap<Integer, Integer>();
+        SimpleBiMap<Integer, Integer> s = new SimpleBiMap<Integer, Integer>();
+        OneToOneBiMap<Integer, Integer> o =
+                new OneToOneBiMap<Integer, Integer>();
+        fill(b, 1000);
+        fill(s, 1000);
+        fill(o, 1000);
+        MemoryStats mb = b.memoryFootprint();
+        MemoryStats ms = s.memoryFootprint();
+        MemoryStats mo = o.memoryFootprint();
+        assertTrue(mo.total() < ms.total());
+        assertTrue(ms.total() < mb.total());
+        assertEquals(0, mo.get(Category.SETS));
+        assertTrue(mb.get(Category.SETS) > mb.get(Category.ENTRIES));
+        assertEquals(mb.total(), MemoryStats.of(b).total());
+    }
+
+    /** Estimates grow with the relation */
+    @Test
+    public void growth() {
+        BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        long empty = r.memoryFootprint().total();
+        assertEquals(0, r.memoryFootprint().get(Category.ENTRIES));
+        assertEquals(0, r.memoryFootprint().get(Category.SETS));
+        fill(r, 10);
+        long small = r.memoryFootprint().total();
+        fill(r, 100);
+        assertTrue(empty < small);
+        assertTrue(small < r.memoryFootprint().total());
+    }
+
+    /** Dense relations are measured by their arrays */
+    @Test
+    public void indexed() {
+        Domain<Integer> d = Domain.range(0, 100);
+        IndexedBiMap<Integer, Integer> r =
+                new IndexedBiMap<Integer, Integer>(d, d);
+        long empty = r.memoryFootprint().get(Category.ARRAYS);
+        assertTrue(empty > 0);
+        fill(r, 100);
+        assertTrue(r.memoryFootprint().get(Category.ARRAYS) > empty);
+        assertEquals(0, r.memoryFootprint().get(Category.MAPS));
+    }
+
+    /** Sums and reports over several relations */
+    @Test
+    public void aggregate() {
+        BiMap<Integer, Integer> big = new BiMap<Integer, Integer>();
+        OneToOneBiMap<Integer, Integer> small =
+                new OneToOneBiMap<Integer, Integer>();
+        fill(big, 100);
+        fill(small, 10);
+        Relation<Integer, Integer> view = Relations.immutable(small);
+        MemoryStats sum = MemoryStats.sum(
+                Arrays.<Relation<Integer, Integer>>asList(big, small, view));
+        assertEquals(3, sum.relations());
+        assertTrue(sum.total() > big.memoryFootprint().total()
+                + 2 * small.memoryFootprint().total());
+        Map<String, Relation<Integer, Integer>> named =
+                new LinkedHashMap<String, Relation<Integer, Integer>>();
+        named.put("small", small);
+        named.put("big", big);
+        String report = MemoryStats.report(named);
+        assertTrue(report.startsWith("big: "));
+        assertTrue(report.contains("\nsmall: "));
+        assertTrue(report.contains("\ntotal: "));
+    }
+
+
+    private static void fill(final MutableRelation<Integer, Integer> r,
+            final int n) {
+        for (int i = 0; i < n; ++i) {
+            r.put(i, (i * 7) % n);
+        }
+    }
+}
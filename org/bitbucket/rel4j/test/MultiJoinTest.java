@@ -0,0 +1,128 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.util.List;
+import java.util.Random;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.MultiJoin;
+import org.bitbucket.rel4j.Relation;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class MultiJoinTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class MultiJoinTest {
+
+    /** Returns a random relation over {@code [0, n)}. */
+    private static BiMap<Integer, Integer> random(final Random random,
+            final int n, final int pairs) {
+        final BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        for (int i = 0; i < pairs; ++i) {
+            r.put(random.nextInt(n), random.nextInt(n));
+        }
+        return r;
+    }
+
+    /** Triangles agree with a nested loop */
+    @Test
+    public void triangles() {
+        final Random random = new Random(45);
+        final Relation<Integer, Integer> r1 = random(random, 30, 200);
+        final Relation<Integer, Integer> r2 = random(random, 30, 200);
+        final Relation<Integer, Integer> r3 = random(random, 30, 200);
+        long expected = 0L;
+        for (int a = 0; a < 30; ++a) {
+            for (int b = 0; b < 30; ++b) {
+                for (int c = 0; c < 30; ++c) {
+                    if (r1.contains(a, b) && r2.contains(b, c)
+                            && r3.contains(a, c)) {
+                        ++expected;
+                    }
+                }
+            }
+        }
+        final List<Object[]> found = new MultiJoin(3)
+                .atom(r1, 0, 1)
+                .atom(r2, 1, 2)
+                .atom(r3, 0, 2)
+                .collect();
+        assertEquals(expected, found.size());
+        for (final Object[] t: found) {
+            assertTrue(r1.contains(t[0], t[1]));
+            assertTrue(r2.contains(t[1], t[2]));
+            assertTrue(r3.contains(t[0], t[2]));
+        }
+    }
+
+    /** Four-cycles in a single relation, and self-loops */
+    @Test
+    public void cyclesAndLoops() {
+        final Random random = new Random(46);
+        final BiMap<Integer, Integer> r = random(random, 15, 60);
+        r.put(3, 3);
+        long expected = 0L;
+        for (int a = 0; a < 15; ++a) {
+            for (int b = 0; b < 15; ++b) {
+                for (int c = 0; c < 15; ++c) {
+                    for (int d = 0; d < 15; ++d) {
+                        if (r.contains(a, b) && r.contains(b, c)
+                                && r.contains(c, d) && r.contains(d, a)) {
+                            ++expected;
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(expected, new MultiJoin(4)
+                .atom(r, 0, 1)
+                .atom(r, 1, 2)
+                .atom(r, 2, 3)
+                .atom(r, 3, 0)
+                .count());
+        long loops = 0L;
+        for (int a = 0; a < 15; ++a) {
+            if (r.contains(a, a)) { ++loops; }
+        }
+        assertEquals(loops, new MultiJoin(1).atom(r, 0, 0).count());
+    }
+
+    /** Malformed queries are rejected */
+    @Test
+    public void malformed() {
+        final BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        try { new MultiJoin(0); fail(); }
+        catch (IllegalArgumentException e) {}
+        try { new MultiJoin(2).atom(r, 0, 2); fail(); }
+        catch (IllegalArgumentException e) {}
+        try { new MultiJoin(3).atom(r, 0, 1).count(); fail(); }
+        catch (IllegalArgumentException e) {}
+        assertEquals(0L, new MultiJoin(2).atom(r, 0, 1).count());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.bitbucket.rel4j.IntPair;
+import org.bitbucket.rel4j.Pair;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class PairHashTest.
+ * Compares the number of distinct hash codes (and of distinct buckets
+ * of a 1024-slot table) of the pair hash against the plain XOR of the
+ * component hashes, over a reflexive and a square sample of pairs.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class PairHashTest {
+    private static final int N = 64;
+    private static final int BUCKETS = 1024;
+
+
+    /** Every (x, x) no longer hashes to zero */
+    @Test
+    public void reflexivePairs() {
+        Set<Integer> mixed = new HashSet<Integer>();
+        Set<Integer> xor = new HashSet<Integer>();
+        for (int x = 0; x < N * N; ++x) {
+            Integer i = Integer.valueOf(x);
+            mixed.add(new Pair<Integer, Integer>(i, i).hashCode());
+            xor.add(i.hashCode() ^ i.hashCode());
+        }
+        assertEquals(1, xor.size());
+        assertEquals(N * N, mixed.size());
+    }
+
+    /** (x, y) and (y, x) no longer collide, and buckets spread evenly */
+    @Test
+    public void squarePairs() {
+        Set<Integer> mixed = new HashSet<Integer>();
+        Set<Integer> xor = new HashSet<Integer>();
+        int[] mixedBuckets = new int[BUCKETS];
+        int[] xorBuckets = new int[BUCKETS];
+        for (int x = 0; x < N; ++x) {
+            for (int y = 0; y < N; ++y) {
+                int h = new Pair<Integer, Integer>(x, y).hashCode();
+                mixed.add(h);
+                ++mixedBuckets[h & (BUCKETS - 1)];
+                xor.add(x ^ y);
+                ++xorBuckets[(x ^ y) & (BUCKETS - 1)];
+            }
+        }
+        assertEquals(N, xor.size());
+        assertTrue(mixed.size() > N * N * 99 / 100);
+        // N * N pairs over BUCKETS slots average 4 per slot
+        assertEquals(N, max(xorBuckets));
+        assertTrue(max(mixedBuckets) < 16);
+        assertTrue(used(mixedBuckets) > BUCKETS * 9 / 10);
+        assertEquals(N, used(xorBuckets));
+    }
+
+    /** IntPair agrees with Pair, packed or not */
+    @Test
+    public void intPair() {
+        IntPair p = new IntPair(-3, 7);
+        assertEquals(new Pair<Integer, Integer>(-3, 7).hashCode(),
+                p.hashCode());
+        assertEquals(p.hashCode(), IntPair.hash(p.pack()));
+        assertEquals(p, IntPair.unpack(p.pack()));
+        assertEquals(-3, IntPair.first(p.pack()));
+        assertEquals(7, IntPair.second(p.pack()));
+        assertFalse(p.equals(new IntPair(7, -3)));
+    }
+
+
+    private static int max(final int[] buckets) {
+        int m = 0;
+        for (int n: buckets) { m = Math.max(m, n); }
+        return m;
+    }
+
+    private static int used(final int[] buckets) {
+        int m = 0;
+        for (int n: buckets) { if (n > 0) { ++m; } }
+        return m;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.Pair;
+import org.bitbucket.rel4j.PersistentRelation;
+import org.bitbucket.rel4j.Relation;
+import org.bitbucket.rel4j.Relations;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class PersistentRelationTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class PersistentRelationTest {
+
+    /** Random updates agree with a BiMap, and old versions never change */
+    @Test
+    public void versions() {
+        final Random random = new Random(40);
+        final BiMap<Integer, Integer> model = new BiMap<Integer, Integer>();
+        final List<PersistentRelation<Integer, Integer>> versions =
+                new ArrayList<PersistentRelation<Integer, Integer>>();
+        final List<Relation<Integer, Integer>> expected =
+                new ArrayList<Relation<Integer, Integer>>();
+        PersistentRelation<Integer, Integer> r = PersistentRelation.empty();
+        for (int i = 0; i < 5000; ++i) {
+            final int a = random.nextInt(200);
+            final int b = random.nextInt(50);
+            if (random.nextInt(3) == 0) {
+                r = r.without(a, b);
+                model.remove(a, b);
+            } else {
+                r = r.with(a, b);
+                model.put(a, b);
+            }
+            if (i % 500 == 0) {
+                versions.add(r);
+                expected.add(Relations.immutable(model));
+            }
+        }
+        assertEquals(model, r);
+        assertEquals(r, model);
+        assertEquals(model.hashCode(), r.hashCode());
+        assertEquals(model.keys(), r.keys());
+        assertEquals(model.values(), r.values());
+        assertEquals(model.isSimple(), r.isSimple());
+        int n = 0;
+        for (final Pair<Integer, Integer> p: r) {
+            assertTrue(model.contains(p.first(), p.second()));
+            ++n;
+        }
+        assertEquals(model.size(), n);
+        for (int i = 0; i < versions.size(); ++i) {
+            assertEquals(expected.get(i), versions.get(i));
+            assertEquals(expected.get(i).hashCode(),
+                    versions.get(i).hashCode());
+        }
+    }
+
+    /** Updates that change nothing return the same version */
+    @Test
+    public void noChange() {
+        final PersistentRelation<String, Integer> r =
+                PersistentRelation.<String, Integer>empty().with("a", 1);
+        assertSame(r, r.with("a", 1));
+        assertSame(r, r.without("a", 2));
+        assertSame(r, r.without("b", 1));
+        assertTrue(r.without("a", 1).isEmpty());
+        assertEquals(0, r.without("a", 1).hashCode());
+        assertEquals(1, r.size());
+    }
+
+    /** Keys with equal hash codes are kept apart */
+    @Test
+    public void collisions() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        PersistentRelation<String, String> r = PersistentRelation.empty();
+        r = r.with("Aa", "x").with("BB", "x").with("AaAa", "y")
+                .with("BBBB", "y").with("AaBB", "y");
+        assertEquals(5, r.size());
+        assertEquals(new HashSet<String>(Arrays.asList("Aa", "BB")),
+                r.keysOf("x"));
+        assertEquals(3, r.keysOf("y").size());
+        r = r.without("BB", "x").without("AaBB", "y");
+        assertEquals(3, r.size());
+        assertTrue(r.contains("Aa", "x"));
+        assertFalse(r.containsKey("BB"));
+        assertEquals("Aa", r.keyOf("x"));
+    }
+
+    /** The relation works with the operators, and cannot be modified */
+    @Test
+    public void operators() {
+        PersistentRelation<Integer, Integer> r = PersistentRelation.empty();
+        for (int i = 0; i < 10; ++i) {
+            r = r.with(i, i + 1);
+        }
+        final BiMap<Integer, Integer> b = new BiMap<Integer, Integer>();
+        for (int i = 0; i < 10; ++i) {
+            b.put(i, i + 1);
+        }
+        assertEquals(Relations.compose(b, b), Relations.compose(r, r));
+        assertEquals(Relations.converse(b), Relations.converse(r));
+        assertSame(r, Relations.immutable(r));
+        assertEquals(r, PersistentRelation.of(b));
+        final Iterator<Pair<Integer, Integer>> it = r.iterator();
+        it.next();
+        try { it.remove(); fail(); }
+        catch (UnsupportedOperationException e) {}
+        try { r.valuesOf(0).add(5); fail(); }
+        catch (UnsupportedOperationException e) {}
+        final Relation<Integer, Integer> empty = PersistentRelation.empty();
+        assertTrue(empty.valuesOf(0).isEmpty());
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.PersistentRelation;
+import org.bitbucket.rel4j.ReachabilityIndex;
+import org.bitbucket.rel4j.Relation;
+import org.bitbucket.rel4j.Relations;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class ReachabilityIndexTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class ReachabilityIndexTest {
+
+    /** Returns the elements reachable from {@code a}, by breadth first. */
+    private static Set<Integer> closure(final Relation<Integer, Integer> r,
+            final Integer a) {
+        final Set<Integer> seen = new HashSet<Integer>();
+        final Deque<Integer> queue = new ArrayDeque<Integer>();
+        seen.add(a);
+        queue.add(a);
+        while (!queue.isEmpty()) {
+            for (final Integer b: r.valuesOf(queue.poll())) {
+                if (seen.add(b)) { queue.add(b); }
+            }
+        }
+        return seen;
+    }
+
+    /** Asserts that the index agrees with a search from every element. */
+    private static void assertIndex(final ReachabilityIndex<Integer> index,
+            final Relation<Integer, Integer> r, final int n) {
+        for (int a = 0; a < n; ++a) {
+            final Set<Integer> reached = closure(r, a);
+            for (int c = 0; c < n; ++c) {
+                assertEquals(a + " -> " + c, reached.contains(c),
+                        index.reachable(a, c));
+            }
+        }
+    }
+
+    /** Random graphs, sparse and dense, with and without cycles */
+    @Test
+    public void randomGraphs() {
+        final Random random = new Random(49);
+        for (int round = 0; round < 12; ++round) {
+            final int n = 40 + random.nextInt(80);
+            final int m = n / 2 + random.nextInt(3 * n);
+            final boolean acyclic = round % 2 == 0;
+            final BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+            for (int i = 0; i < m; ++i) {
+                final int a = random.nextInt(n), b = random.nextInt(n);
+                if (!acyclic || a < b) { r.put(a, b); }
+            }
+            assertIndex(Relations.reachability(r), r, n);
+        }
+    }
+
+    /** Cycles collapse into a single component */
+    @Test
+    public void components() {
+        final BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        r.put(0, 1);
+        r.put(1, 2);
+        r.put(2, 0);
+        r.put(2, 3);
+        r.put(4, 4);
+        final ReachabilityIndex<Integer> index = Relations.reachability(r);
+        assertEquals(3, index.components());
+        assertTrue(index.reachable(1, 0));
+        assertTrue(index.reachable(0, 3));
+        assertFalse(index.reachable(3, 0));
+        assertTrue(index.reachable(4, 4));
+        assertTrue(index.reachable(7, 7));
+        assertFalse(index.reachable(4, 7));
+        assertFalse(index.reachable(null, 0));
+    }
+
+    /** Mutable relations are tracked, others are refreshed on request */
+    @Test
+    public void changes() {
+        final BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        r.put(0, 1);
+        final ReachabilityIndex<Integer> index = Relations.reachability(r);
+        assertFalse(index.reachable(0, 2));
+        r.put(1, 2);
+        assertTrue(index.reachable(0, 2));
+        r.remove(0, 1);
+        assertFalse(index.reachable(0, 2));
+        assertFalse(index.refresh());
+
+        final BiMap<Integer, Integer> base = new BiMap<Integer, Integer>();
+        base.put(0, 1);
+        final Relation<Integer, Integer> view =
+                Relations.restrictDomainView(base,
+                        new HashSet<Integer>(Arrays.asList(0, 1, 2)));
+        final ReachabilityIndex<Integer> untracked =
+                Relations.reachability(view);
+        base.put(1, 2);
+        assertTrue(untracked.refresh());
+        assertIndex(untracked, base, 3);
+
+        final ReachabilityIndex<Integer> persistent = Relations.reachability(
+                PersistentRelation.<Integer, Integer>empty().with(5, 6));
+        assertTrue(persistent.reachable(5, 6));
+        assertFalse(persistent.refresh());
+    }
+
+    /** Replacing a pair with one of equal hash still rebuilds the index */
+    @Test
+    public void equalHashReplacement() {
+        final BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        r.put(0, 1);
+        r.put(1, 2);
+        final ReachabilityIndex<Integer> index = Relations.reachability(r);
+        assertTrue(index.reachable(0, 2));
+        final int hash = r.hashCode();
+        // (1, 2) and (0, 2 + 0x9E3779B9) have the same pair hash
+        r.remove(1, 2);
+        r.put(0, 2 + 0x9E3779B9);
+        assertEquals(2, r.size());
+        assertEquals(hash, r.hashCode());
+        assertFalse(index.reachable(0, 2));
+        assertTrue(index.reachable(0, 2 + 0x9E3779B9));
+        assertFalse(index.refresh());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.OneToOneBiMap;
+import org.bitbucket.rel4j.Relation;
+import org.bitbucket.rel4j.SimpleBiMap;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The test class ReadAllocationTest.
+ * Measures the bytes allocated by the current thread across many
+ * lookups; the read API should allocate nothing per call.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class ReadAllocationTest {
+    private static final int CALLS = 100000;
+    /** Slack for the measurement itself, far below one byte per call. */
+    private static final long SLACK = 4096L;
+
+    private final Integer zero = Integer.valueOf(0);
+    private final Integer one = Integer.valueOf(1);
+    private final Integer two = Integer.valueOf(2);
+    private final Integer miss = Integer.valueOf(-1);
+
+    private com.sun.management.ThreadMXBean bean;
+
+
+    @Before
+    public void setUp() {
+        final java.lang.management.ThreadMXBean b =
+                ManagementFactory.getThreadMXBean();
+        assumeTrue(b instanceof com.sun.management.ThreadMXBean);
+        bean = (com.sun.management.ThreadMXBean) b;
+        assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+
+    /** Domain, range and multi-valued lookups on BiMap */
+    @Test
+    public void biMap() {
+        BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        r.put(zero, one);
+        r.put(zero, two);
+        r.put(one, two);
+        assertTrue(allocated(r, true) < SLACK);
+    }
+
+    /**
+     * Multi-valued keysOf and misses on SimpleBiMap.
+     * Its valuesOf hits return a capped singleton, left out here.
+     */
+    @Test
+    public void simpleBiMap() {
+        SimpleBiMap<Integer, Integer> r = new SimpleBiMap<Integer, Integer>();
+        r.put(zero, two);
+        r.put(one, two);
+        assertTrue(allocated(r, false) < SLACK);
+    }
+
+    /** Views are cached, and misses share the empty set */
+    @Test
+    public void sharedViews() {
+        OneToOneBiMap<Integer, Integer> r =
+                new OneToOneBiMap<Integer, Integer>();
+        r.put(zero, one);
+        assertSame(r.keys(), r.keys());
+        assertSame(r.values(), r.values());
+        assertSame(r.valuesOf(miss), r.keysOf(miss));
+        assertTrue(r.valuesOf(miss).isEmpty());
+    }
+
+
+    /** Bytes allocated by repeated domain and range lookups. */
+    private long allocated(final Relation<Integer, Integer> r,
+            final boolean hits) {
+        lookups(r, hits);   // warm up
+        final long id = Thread.currentThread().getId();
+        final long before = bean.getThreadAllocatedBytes(id);
+        final int n = lookups(r, hits);
+        final long after = bean.getThreadAllocatedBytes(id);
+        assertTrue(n > 0);
+        return after - before;
+    }
+
+    private int lookups(final Relation<Integer, Integer> r,
+            final boolean hits) {
+        int n = 0;
+        for (int i = 0; i < CALLS; ++i) {
+            final Set<Integer> ks = r.keys();
+            final Set<Integer> vs = r.values();
+            n += ks.size() + vs.size();
+            n += r.keysOf(two).size() + r.keysOf(miss).size();
+            n += r.valuesOf(miss).size();
+            if (hits && r.valuesOf(zero).contains(two)) { ++n; }
+        }
+        return n;
+    }
+}
@@ -24,11 +24,16 @@
 package org.bitbucket.rel4j.test;
 
 import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.SimpleBiMap;
 
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -124,4 +129,93 @@ public class RelationBuilderGetterTest {
     public void valuesForNull() {
         assertTrue(builder.valuesOf(null).isEmpty());
     }
+
+
+
+    /** */
+    @Test
+    public void valuesForDuplicateKeys() {
+        List<Integer> keys = Arrays.asList(zero, one, zero);
+        Set<Integer> values = builder.valuesFor(keys);
+        assertEquals(2, values.size());
+        assertTrue(values.contains(one));
+        assertFalse(values.contains(Integer.valueOf(2)));
+        int count = 0;
+        for (Integer i: values) { ++count; }
+        assertEquals(2, count);
+    }
+
+    /** */
+    @Test
+    public void keysForMissingValues() {
+        Set<Integer> keys = builder.keysFor(
+                Collections.singleton(Integer.valueOf(2)));
+        assertTrue(keys.isEmpty());
+        assertEquals(0, keys.size());
+        assertFalse(keys.contains(zero));
+    }
+
+    /** */
+    @Test
+    public void valuesForNullIterable() {
+        assertTrue(builder.valuesFor(null).isEmpty());
+    }
+
+    /** */
+    @Test(expected = UnsupportedOperationException.class)
+    public void valuesForUnmodifiable() {
+        builder.valuesFor(set).clear();
+    }
+
+    /** */
+    @Test
+    public void valuesForSingleUseIterable() {
+        final Iterator<Integer> keys = Arrays.asList(zero).iterator();
+        final Set<Integer> values = builder.valuesFor(new Iterable<Integer>() {
+            private boolean used;
+            public Iterator<Integer> iterator() {
+                assertFalse(used);
+                used = true;
+                return keys;
+            }
+        });
+        assertEquals(2, values.size());
+        assertEquals(set, values);
+        assertTrue(values.contains(one));
+    }
+
+    /** Removing the keys of a union does not invalidate the union */
+    @Test
+    public void removeKeysOfKeysFor() {
+        final Set<Integer> bs = Collections.singleton(zero);
+        assertEquals(set, builder.removeKeys(builder.keysFor(bs)));
+        assertTrue(builder.isEmpty());
+
+        final SimpleBiMap<Integer, Integer> r =
+                new SimpleBiMap<Integer, Integer>();
+        r.put(zero, one);
+        r.put(one, one);
+        r.put(Integer.valueOf(2), zero);
+        for (Integer a: r.keysFor(Collections.singleton(one))) {
+            r.removeKey(a);
+        }
+        assertEquals(1, r.size());
+        assertEquals(Collections.singleton(Integer.valueOf(2)),
+                r.removeValues(r.valuesFor(r.keys())));
+        assertTrue(r.isEmpty());
+    }
+
+    /** A union always reflects the relation, even after its size is read */
+    @Test
+    public void keysForIsLive() {
+        final Set<Integer> keys = builder.keysFor(set);
+        assertEquals(2, keys.size());
+        final Integer two = Integer.valueOf(2);
+        builder.put(two, one);
+        assertTrue(keys.contains(two));
+        assertEquals(3, keys.size());
+        builder.removeKey(zero);
+        assertFalse(keys.contains(zero));
+        assertEquals(2, keys.size());
+    }
 }
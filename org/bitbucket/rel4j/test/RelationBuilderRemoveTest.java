@@ -23,6 +23,8 @@
 
 package org.bitbucket.rel4j.test;
 
+import java.util.Set;
+
 import org.bitbucket.rel4j.BiMap;
 
 import static org.junit.Assert.*;
@@ -173,6 +175,15 @@ public class RelationBuilderRemoveTest {
         assertTrue(builder.isInjective());
     }
 
+    /** The removed values are returned in a mutable set */
+    @Test
+    public void removeKeyResultIsMutable() {
+        final Set<Integer> values = builder.removeKey(one);
+        values.add(zero);
+        assertTrue(values.contains(zero));
+        builder.removeValue(zero).add(one);
+    }
+
 
 
     /** Does not affect size */
@@ -0,0 +1,215 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.MutableRelation;
+import org.bitbucket.rel4j.OneToOneBiMap;
+import org.bitbucket.rel4j.Relation;
+import org.bitbucket.rel4j.RelationCodec;
+import org.bitbucket.rel4j.SimpleBiMap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class RelationCodecTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class RelationCodecTest {
+    private final RelationCodec<Integer, Integer> ints =
+            new RelationCodec<Integer, Integer>(
+                    RelationCodec.INTEGERS, RelationCodec.INTEGERS);
+
+
+    /** Non-deterministic relations come back as an equal BiMap */
+    @Test
+    public void biMap() throws IOException {
+        BiMap<String, Long> r = new BiMap<String, Long>();
+        r.put("a", 1L);
+        r.put("a", -2L);
+        r.put("é", Long.MAX_VALUE);
+        r.put("b", 1L);
+        RelationCodec<String, Long> codec = new RelationCodec<String, Long>(
+                RelationCodec.STRINGS, RelationCodec.LONGS);
+        MutableRelation<String, Long> copy = codec.read(in(write(codec, r)));
+        assertTrue(copy instanceof BiMap);
+        assertEquals(r, copy);
+        assertEquals(r.hashCode(), copy.hashCode());
+        assertFalse(copy.isSimple());
+        assertFalse(copy.isInjective());
+        copy.remove("a", 1L);
+        copy.remove("a", -2L);
+        assertFalse(copy.containsKey("a"));
+        assertTrue(copy.isSimple() && copy.isInjective());
+    }
+
+    /** Simple and one-to-one relations keep their implementation */
+    @Test
+    public void simpleAndOneToOne() throws IOException {
+        SimpleBiMap<Integer, Integer> s = new SimpleBiMap<Integer, Integer>();
+        OneToOneBiMap<Integer, Integer> o =
+                new OneToOneBiMap<Integer, Integer>();
+        for (int i = -50; i < 50; ++i) {
+            s.put(i, i % 7);
+            o.put(i, -i);
+        }
+        Relation<Integer, Integer> s2 = ints.read(in(write(ints, s)));
+        Relation<Integer, Integer> o2 = ints.read(in(write(ints, o)));
+        assertTrue(s2 instanceof SimpleBiMap);
+        assertTrue(o2 instanceof OneToOneBiMap);
+        assertEquals(s, s2);
+        assertEquals(o, o2);
+        assertFalse(s2.isInjective());
+    }
+
+    /** Through NIO channels */
+    @Test
+    public void channels() throws IOException {
+        BiMap<Integer, Integer> r = grid(20);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ints.write(r, Channels.newChannel(bytes));
+        Relation<Integer, Integer> copy = ints.read(Channels.newChannel(
+                new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(r, copy);
+    }
+
+    /** A fraction of Java serialization of the underlying maps */
+    @Test
+    public void payload() throws IOException {
+        BiMap<Integer, Integer> r = grid(100);
+        Map<Integer, Set<Integer>> kv = new HashMap<Integer, Set<Integer>>();
+        Map<Integer, Set<Integer>> vk = new HashMap<Integer, Set<Integer>>();
+        for (Integer a: r.keys()) {
+            kv.put(a, new HashSet<Integer>(r.valuesOf(a)));
+        }
+        for (Integer b: r.values()) {
+            vk.put(b, new HashSet<Integer>(r.keysOf(b)));
+        }
+        ByteArrayOutputStream java = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(java);
+        oos.writeObject(kv);
+        oos.writeObject(vk);
+        oos.close();
+        int compact = write(ints, r).length;
+        assertTrue(compact * 10 < java.size());
+    }
+
+    /** Corrupted streams are rejected */
+    @Test(expected = IOException.class)
+    public void malformed() throws IOException {
+        byte[] bytes = write(ints, grid(5));
+        bytes[bytes.length - 1] = 0x7F;
+        ints.read(in(bytes));
+    }
+
+    /** A negative string length is rejected as malformed */
+    @Test(expected = IOException.class)
+    public void negativeStringLength() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(1);
+        out.writeByte(3);
+        for (int i = 0; i < 3; ++i) { RelationCodec.writeVarInt(out, 1); }
+        RelationCodec.writeVarInt(out, -1);
+        new RelationCodec<String, String>(RelationCodec.STRINGS,
+                RelationCodec.STRINGS).read(in(bytes.toByteArray()));
+    }
+
+    /** Huge counts in a short stream fail on input, not on allocation */
+    @Test
+    public void hugeCounts() throws IOException {
+        RelationCodec<String, String> strings =
+                new RelationCodec<String, String>(
+                        RelationCodec.STRINGS, RelationCodec.STRINGS);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(1);
+        out.writeByte(0);
+        for (int i = 0; i < 3; ++i) {
+            RelationCodec.writeVarInt(out, Integer.MAX_VALUE);
+        }
+        RelationCodec.writeVarInt(out, Integer.MAX_VALUE);
+        out.writeByte('a');
+        try {
+            strings.read(in(bytes.toByteArray()));
+            fail();
+        } catch (IOException e) {}
+        byte[] header = bytes.toByteArray();
+        try {
+            ints.read(in(Arrays.copyOf(header, header.length - 6)));
+            fail();
+        } catch (IOException e) {}
+    }
+
+    /** Dictionaries and strings larger than the read chunks */
+    @Test
+    public void largeElements() throws IOException {
+        BiMap<String, Integer> r = new BiMap<String, Integer>();
+        char[] chars = new char[10000];
+        Arrays.fill(chars, 'x');
+        r.put(new String(chars), 0);
+        for (int i = 0; i < 10000; ++i) { r.put("k" + i, i % 7); }
+        RelationCodec<String, Integer> codec =
+                new RelationCodec<String, Integer>(
+                        RelationCodec.STRINGS, RelationCodec.INTEGERS);
+        assertEquals(r, codec.read(in(write(codec, r))));
+    }
+
+
+    private static BiMap<Integer, Integer> grid(final int n) {
+        BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        for (int a = 0; a < n; ++a) {
+            for (int b = 0; b < n; b += 1 + a % 3) {
+                r.put(a, b);
+            }
+        }
+        return r;
+    }
+
+    private static <A, B> byte[] write(final RelationCodec<A, B> codec,
+            final Relation<A, B> r) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(r, new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream in(final byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+}
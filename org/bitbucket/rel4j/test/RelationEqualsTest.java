@@ -0,0 +1,103 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.bitbucket.rel4j.test;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.Relations;
+import org.bitbucket.rel4j.SimpleBiMap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class RelationEqualsTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class RelationEqualsTest {
+    private final Integer zero = Integer.valueOf(0);
+    private final Integer one = Integer.valueOf(1);
+    private final Integer two = Integer.valueOf(2);
+
+    private final BiMap<Integer, Integer> r1;
+    private final BiMap<Integer, Integer> r2;
+
+    /** Default constructor for test class RelationEqualsTest */
+    public RelationEqualsTest() {
+        r1 = new BiMap<Integer, Integer>();
+        r1.put(zero, one);
+        r1.put(zero, two);
+        r1.put(one, two);
+        r2 = new BiMap<Integer, Integer>();
+        r2.put(one, two);
+        r2.put(zero, two);
+        r2.put(zero, one);
+    }
+
+
+    /** */
+    @Test
+    public void equalRelations() {
+        assertEquals(r1, r2);
+        assertEquals(r2, r1);
+        assertTrue(r1.in(r2));
+        assertFalse(r1.strictlyIn(r2));
+    }
+
+    /** Same size, keys and values, different pairs */
+    @Test
+    public void sameFingerprintDifferentPairs() {
+        BiMap<Integer, Integer> r3 = new BiMap<Integer, Integer>();
+        r3.put(zero, one);
+        r3.put(zero, two);
+        r3.put(one, one);
+        assertFalse(r1.equals(r3));
+        assertFalse(r3.equals(r1));
+        assertFalse(r1.in(r3));
+    }
+
+    /** Across implementations and views */
+    @Test
+    public void equalAcrossImplementations() {
+        SimpleBiMap<Integer, Integer> r3 = new SimpleBiMap<Integer, Integer>();
+        r3.put(zero, one);
+        r3.put(one, two);
+        BiMap<Integer, Integer> r4 = new BiMap<Integer, Integer>();
+        r4.put(one, zero);
+        r4.put(two, one);
+        assertEquals(r3, Relations.converseView(r4));
+        assertEquals(Relations.converseView(r4), r3);
+        assertTrue(r3.strictlyIn(r1));
+        assertFalse(r1.in(r3));
+    }
+
+    /** Differently sized relations */
+    @Test
+    public void differentSizes() {
+        r2.remove(zero, one);
+        assertFalse(r1.equals(r2));
+        assertTrue(r2.strictlyIn(r1));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.bitbucket.rel4j.test;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.OneToOneBiMap;
+import org.bitbucket.rel4j.Relation;
+import org.bitbucket.rel4j.Relations;
+import org.bitbucket.rel4j.SimpleBiMap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class RelationHashCodeTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class RelationHashCodeTest {
+    private final Integer zero = Integer.valueOf(0);
+    private final Integer one = Integer.valueOf(1);
+    private final Integer two = Integer.valueOf(2);
+
+
+    /** Equal relations built in different orders */
+    @Test
+    public void orderIndependent() {
+        BiMap<Integer, Integer> r1 = new BiMap<Integer, Integer>();
+        BiMap<Integer, Integer> r2 = new BiMap<Integer, Integer>();
+        for (int i = 0; i < 100; ++i) {
+            r1.put(Integer.valueOf(i), Integer.valueOf(i % 7));
+            r2.put(Integer.valueOf(99 - i), Integer.valueOf((99 - i) % 7));
+        }
+        assertEquals(r1, r2);
+        assertEquals(r1.hashCode(), r2.hashCode());
+    }
+
+    /** Same pairs in different implementations */
+    @Test
+    public void implementationIndependent() {
+        BiMap<Integer, Integer> r1 = new BiMap<Integer, Integer>();
+        SimpleBiMap<Integer, Integer> r2 = new SimpleBiMap<Integer, Integer>();
+        OneToOneBiMap<Integer, Integer> r3 =
+                new OneToOneBiMap<Integer, Integer>();
+        r1.put(zero, one);
+        r1.put(one, two);
+        r2.put(one, two);
+        r2.put(zero, one);
+        r3.put(zero, one);
+        r3.put(one, two);
+        assertEquals(r1.hashCode(), r2.hashCode());
+        assertEquals(r1.hashCode(), r3.hashCode());
+        assertEquals(r1.hashCode(), Relations.immutable(r1).hashCode());
+    }
+
+    /** Maintained through removals and evictions */
+    @Test
+    public void maintainedOnRemoval() {
+        BiMap<Integer, Integer> r1 = new BiMap<Integer, Integer>();
+        r1.put(zero, two);
+        final int hash = r1.hashCode();
+        r1.put(zero, one);
+        r1.put(one, one);
+        r1.removeValue(one);
+        assertEquals(hash, r1.hashCode());
+        SimpleBiMap<Integer, Integer> r2 = new SimpleBiMap<Integer, Integer>();
+        r2.put(zero, one);
+        r2.put(zero, two);
+        assertEquals(hash, r2.hashCode());
+        OneToOneBiMap<Integer, Integer> r3 =
+                new OneToOneBiMap<Integer, Integer>();
+        r3.put(one, two);
+        r3.put(zero, two);
+        assertEquals(hash, r3.hashCode());
+        r3.clear();
+        assertEquals(0, r3.hashCode());
+    }
+
+    /** The converse view is hashed as its own set of pairs */
+    @Test
+    public void converseView() {
+        BiMap<Integer, Integer> r1 = new BiMap<Integer, Integer>();
+        BiMap<Integer, Integer> r2 = new BiMap<Integer, Integer>();
+        r1.put(zero, one);
+        r2.put(one, zero);
+        assertEquals(r2.hashCode(), Relations.converseView(r1).hashCode());
+        assertTrue(r1.hashCode() != r2.hashCode());
+    }
+
+    /** All empty relations share the same hash */
+    @Test
+    public void emptyRelations() {
+        Relation<Integer, Integer> r1 = new BiMap<Integer, Integer>();
+        assertEquals(Relations.BOTTOM.hashCode(), r1.hashCode());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.CountingMetrics;
+import org.bitbucket.rel4j.Domain;
+import org.bitbucket.rel4j.OneToOneBiMap;
+import org.bitbucket.rel4j.RelationMetrics.Operation;
+import org.bitbucket.rel4j.SimpleBiMap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class RelationMetricsTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class RelationMetricsTest {
+    private final Domain<Integer> ints = new Domain<Integer>();
+
+
+    /** Operations and fan-outs of a BiMap */
+    @Test
+    public void biMap() {
+        CountingMetrics m = new CountingMetrics();
+        BiMap<Integer, Integer> r = new BiMap<Integer, Integer>(ints, ints, m);
+        for (int b = 0; b < 5; ++b) {
+            r.put(0, b);
+        }
+        r.put(0, 0);
+        r.put(1, 0);
+        r.contains(0, 1);
+        r.containsKey(2);
+        r.valuesOf(0);
+        r.keysOf(0);
+        r.removeKey(1);
+        r.clear();
+        assertEquals(7, m.count(Operation.PUT));
+        assertEquals(2, m.count(Operation.CONTAINS));
+        assertEquals(1, m.count(Operation.VALUES_OF));
+        assertEquals(1, m.count(Operation.KEYS_OF));
+        assertEquals(1, m.count(Operation.REMOVE));
+        assertEquals(1, m.count(Operation.CLEAR));
+        long[] out = m.fanOutHistogram();
+        // degrees 1, 2, 3, 4, 5 for key 0, and 1 for key 1
+        assertEquals(2, out[1]);
+        assertEquals(2, out[2]);
+        assertEquals(2, out[3]);
+        assertEquals(1, m.fanInHistogram()[2]);
+        assertEquals(0, m.evictions());
+    }
+
+    /** Pairs replaced by simple and one-to-one insertions */
+    @Test
+    public void evictions() {
+        CountingMetrics m = new CountingMetrics();
+        SimpleBiMap<Integer, Integer> s =
+                new SimpleBiMap<Integer, Integer>(ints, ints, m);
+        s.put(0, 0);
+        s.put(0, 1);
+        s.put(0, 1);
+        assertEquals(1, m.evictions());
+        OneToOneBiMap<Integer, Integer> o =
+                new OneToOneBiMap<Integer, Integer>(ints, ints, m);
+        o.put(0, 0);
+        o.put(1, 1);
+        o.put(0, 1);
+        assertEquals(3, m.evictions());
+        assertEquals(1, o.size());
+        assertEquals(6, m.count(Operation.PUT));
+    }
+
+    /** Buckets are powers of two */
+    @Test
+    public void buckets() {
+        assertEquals(0, CountingMetrics.bucket(0));
+        assertEquals(1, CountingMetrics.bucket(1));
+        assertEquals(2, CountingMetrics.bucket(3));
+        assertEquals(3, CountingMetrics.bucket(4));
+        assertEquals(CountingMetrics.BUCKETS - 1,
+                CountingMetrics.bucket(Integer.MAX_VALUE));
+    }
+}
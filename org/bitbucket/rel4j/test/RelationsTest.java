@@ -23,6 +23,9 @@
 
 package org.bitbucket.rel4j.test;
 
+import java.util.Comparator;
+import java.util.Random;
+
 import org.bitbucket.rel4j.BiMap;
 import org.bitbucket.rel4j.Relation;
 import org.bitbucket.rel4j.Relations;
@@ -68,6 +71,45 @@ public class RelationsTest {
     }
 
 
+    /** */
+    @Test
+    public void testComposeStreamed() {
+        final BiMap<Character, String> r3 = new BiMap<>();
+        final long pairs = Relations.compose(r1, r2,
+                (a, c) -> assertTrue(r3.put(a, c)));
+        assertEquals(4L, pairs);
+        assertEquals(Relations.compose(r1, r2), r3);
+        final BiMap<Integer, Integer> big = new BiMap<>();
+        for (int i = 0; i < 2000; ++i) {
+            big.put(0, i);
+            big.put(i, i);
+            big.put(i, i + 1);
+        }
+        final BiMap<Integer, Integer> r4 = new BiMap<>();
+        Relations.compose(big, big, (a, c) -> assertTrue(r4.put(a, c)));
+        assertEquals(Relations.compose(big, big), r4);
+        assertEquals(0L, Relations.compose(null, r2, (a, c) -> fail()));
+    }
+
+
+    /** */
+    @Test
+    public void testComposeSorted() {
+        assertEquals(Relations.compose(r1, r2),
+                Relations.composeSorted(r1, r2));
+        final Random random = new Random(43);
+        final BiMap<Integer, Integer> r3 = new BiMap<>();
+        for (int i = 0; i < 3000; ++i) {
+            r3.put(random.nextInt(500), random.nextInt(500));
+        }
+        assertEquals(Relations.compose(r3, r3),
+                Relations.composeSorted(r3, r3));
+        assertEquals(Relations.compose(r3, r3), Relations.composeSorted(
+                r3, r3, Comparator.reverseOrder()));
+        assertTrue(Relations.composeSorted(null, r3).isEmpty());
+    }
+
+
     /** */
     @Test
     public void testKernel() {
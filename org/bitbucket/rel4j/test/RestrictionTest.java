@@ -0,0 +1,135 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.Pair;
+import org.bitbucket.rel4j.Relation;
+import org.bitbucket.rel4j.Relations;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class RestrictionTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class RestrictionTest {
+
+    /** Returns the pairs of r whose key (or value) is in the set. */
+    private static BiMap<Integer, Integer> expected(
+            final Relation<Integer, Integer> r, final Set<Integer> set,
+            final boolean keys, final boolean keep) {
+        final BiMap<Integer, Integer> e = new BiMap<Integer, Integer>();
+        for (final Pair<Integer, Integer> p: r) {
+            final Integer x = keys ? p.first() : p.second();
+            if (set.contains(x) == keep) { e.put(p.first(), p.second()); }
+        }
+        return e;
+    }
+
+    /** Asserts that the relation is equal to the expected one. */
+    private static void assertRelation(final BiMap<Integer, Integer> e,
+            final Relation<Integer, Integer> r) {
+        assertEquals(e, r);
+        assertEquals(e.hashCode(), r.hashCode());
+        assertEquals(e.size(), r.size());
+        assertEquals(e.keys(), r.keys());
+        assertEquals(e.values(), r.values());
+        assertEquals(e.isSimple(), r.isSimple());
+        assertEquals(e.isInjective(), r.isInjective());
+        for (int i = -1; i < 60; ++i) {
+            assertEquals(e.containsKey(i), r.containsKey(i));
+            assertEquals(e.containsValue(i), r.containsValue(i));
+            assertEquals(e.valuesOf(i), r.valuesOf(i));
+            assertEquals(e.keysOf(i), r.keysOf(i));
+            assertEquals(e.contains(i, i), r.contains(i, i));
+        }
+    }
+
+    /** Views and copies agree with a filter, for small and large sets */
+    @Test
+    public void restrictions() {
+        final Random random = new Random(44);
+        final BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        for (int i = 0; i < 400; ++i) {
+            r.put(random.nextInt(50), random.nextInt(50));
+        }
+        final Set<Integer> small = new HashSet<Integer>();
+        final Set<Integer> large = new HashSet<Integer>();
+        for (int i = 0; i < 5; ++i) { small.add(random.nextInt(50)); }
+        for (int i = -100; i < 100; i += 2) { large.add(i); }
+        for (final Set<Integer> s: Arrays.asList(small, large)) {
+            assertRelation(expected(r, s, true, true),
+                    Relations.restrictDomain(r, s));
+            assertRelation(expected(r, s, true, true),
+                    Relations.restrictDomainView(r, s));
+            assertRelation(expected(r, s, false, true),
+                    Relations.restrictRange(r, s));
+            assertRelation(expected(r, s, false, true),
+                    Relations.restrictRangeView(r, s));
+            assertRelation(expected(r, s, true, false),
+                    Relations.subtractDomain(r, s));
+            assertRelation(expected(r, s, true, false),
+                    Relations.subtractDomainView(r, s));
+            assertRelation(expected(r, s, false, false),
+                    Relations.subtractRange(r, s));
+            assertRelation(expected(r, s, false, false),
+                    Relations.subtractRangeView(r, s));
+        }
+    }
+
+    /** Views follow the relation and the set */
+    @Test
+    public void liveViews() {
+        final BiMap<String, Integer> r = new BiMap<String, Integer>();
+        r.put("a", 1);
+        r.put("a", 2);
+        r.put("b", 2);
+        final Set<String> as = new HashSet<String>();
+        as.add("b");
+        final Relation<String, Integer> view =
+                Relations.restrictDomainView(r, as);
+        assertEquals(1, view.size());
+        assertTrue(view.isSimple());
+        assertTrue(view.isInjective());
+        assertFalse(r.isSimple());
+        as.add("a");
+        assertEquals(3, view.size());
+        assertFalse(view.isSimple());
+        r.put("c", 3);
+        assertFalse(view.containsKey("c"));
+        assertTrue(Relations.subtractDomainView(r, as).contains("c", 3));
+        assertTrue(Relations.restrictDomain(r, null).isEmpty());
+        assertEquals(r, Relations.subtractRangeView(r, null));
+        try { view.valuesOf("a").add(7); fail(); }
+        catch (UnsupportedOperationException e) {}
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.ColumnarRelation;
+import org.bitbucket.rel4j.Sets;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class SetsTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class SetsTest {
+
+    /** Returns a sorted array of distinct random integers. */
+    private static int[] sorted(final Random random, final int n,
+            final int bound) {
+        final Set<Integer> set = new TreeSet<Integer>();
+        for (int i = 0; i < n; ++i) { set.add(random.nextInt(bound)); }
+        final int[] array = new int[set.size()];
+        int i = 0;
+        for (final int e: set) { array[i++] = e; }
+        return array;
+    }
+
+    /** Returns the elements of an array, as a sorted set. */
+    private static Set<Integer> set(final int[] array) {
+        final Set<Integer> set = new TreeSet<Integer>();
+        for (final int e: array) { set.add(e); }
+        return set;
+    }
+
+    /** Returns the elements of a set, as an array. */
+    private static int[] array(final Set<Integer> set) {
+        final int[] array = new int[set.size()];
+        int i = 0;
+        for (final int e: set) { array[i++] = e; }
+        return array;
+    }
+
+    /** The kernels agree with sorted sets, merging or galloping */
+    @Test
+    public void kernels() {
+        final Random random = new Random(47);
+        final int[][] sizes = {
+            {0, 0}, {0, 50}, {50, 0}, {100, 100}, {5, 1000}, {1000, 5},
+            {1, 5000}, {300, 300}
+        };
+        for (final int[] size: sizes) {
+            final int[] a = sorted(random, size[0], 2000);
+            final int[] b = sorted(random, size[1], 2000);
+            final Set<Integer> both = set(a);
+            both.retainAll(set(b));
+            final Set<Integer> either = set(a);
+            either.addAll(set(b));
+            final Set<Integer> only = set(a);
+            only.removeAll(set(b));
+            assertArrayEquals(array(both), Sets.intersection(a, b));
+            assertArrayEquals(array(both), Sets.intersection(b, a));
+            assertArrayEquals(array(either), Sets.union(a, b));
+            assertArrayEquals(array(only), Sets.difference(a, b));
+        }
+        final int[] a = {1, 3, 5};
+        assertArrayEquals(a, Sets.intersection(a, a));
+        assertArrayEquals(new int[0], Sets.difference(a, a));
+        assertTrue(Arrays.equals(a, Sets.union(a, new int[0])));
+    }
+
+    /** Sets of a columnar relation are combined like hash sets */
+    @Test
+    public void compactSets() {
+        final Random random = new Random(48);
+        final BiMap<Integer, Integer> model = new BiMap<Integer, Integer>();
+        for (int i = 0; i < 3000; ++i) {
+            model.put(random.nextInt(100), random.nextInt(400));
+        }
+        final ColumnarRelation<Integer, Integer> r =
+                ColumnarRelation.of(model);
+        for (int a = 0; a < 100; a += 3) {
+            final Set<Integer> s1 = r.valuesOf(a);
+            final Set<Integer> s2 = r.valuesOf(a + 1);
+            final Set<Integer> h1 = new HashSet<Integer>(s1);
+            final Set<Integer> h2 = new HashSet<Integer>(s2);
+            assertEquals(Sets.intersection(h1, h2),
+                    Sets.intersection(s1, s2));
+            assertEquals(Sets.union(h1, h2), Sets.union(s1, s2));
+            assertEquals(Sets.difference(h1, h2), Sets.difference(s1, s2));
+            assertEquals(Sets.intersection(h1, h2),
+                    Sets.intersection(h1, s2));
+        }
+        for (int b = 0; b < 400; b += 37) {
+            assertEquals(
+                    Sets.intersection(model.keysOf(b), model.keysOf(b + 1)),
+                    Sets.intersection(r.keysOf(b), r.keysOf(b + 1)));
+        }
+        final Set<Integer> result =
+                Sets.intersection(r.valuesOf(0), r.valuesOf(0));
+        result.add(-1);
+        assertFalse(r.valuesOf(0).contains(-1));
+    }
+}
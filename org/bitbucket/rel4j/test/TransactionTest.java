@@ -0,0 +1,160 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.bitbucket.rel4j.AdaptiveBiMap;
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.Domain;
+import org.bitbucket.rel4j.IndexedBiMap;
+import org.bitbucket.rel4j.IntPairRelation;
+import org.bitbucket.rel4j.MutableRelation;
+import org.bitbucket.rel4j.OneToOneBiMap;
+import org.bitbucket.rel4j.Pair;
+import org.bitbucket.rel4j.Relation;
+import org.bitbucket.rel4j.Relations;
+import org.bitbucket.rel4j.SimpleBiMap;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class TransactionTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class TransactionTest {
+
+    private static final Domain<Integer> DOMAIN = Domain.range(0, 20);
+
+    /** Applies a random batch of mutations, of every kind. */
+    private static void mutate(final MutableRelation<Integer, Integer> r,
+            final Random random) {
+        for (int i = 0; i < 200; ++i) {
+            final int a = random.nextInt(20);
+            final int b = random.nextInt(20);
+            switch (random.nextInt(8)) {
+            case 0: r.remove(a, b); break;
+            case 1: r.removeKey(a); break;
+            case 2: r.removeValues(Arrays.asList(b, a)); break;
+            case 3: r.putAllKeys(Arrays.asList(a, b), b); break;
+            case 4:
+                final Iterator<Pair<Integer, Integer>> it = r.iterator();
+                if (it.hasNext()) { it.next(); it.remove(); }
+                break;
+            default: r.put(a, b);
+            }
+        }
+    }
+
+    /** Asserts that a rollback restores the relation exactly. */
+    private static void assertRollback(
+            final MutableRelation<Integer, Integer> r) {
+        final Random random = new Random(41);
+        mutate(r, random);
+        final Relation<Integer, Integer> before = Relations.immutable(r);
+        final boolean entire = r.isEntire();
+        final boolean simple = r.isSimple();
+        final boolean injective = r.isInjective();
+        r.begin();
+        mutate(r, random);
+        r.clear();
+        mutate(r, random);
+        r.rollback();
+        assertEquals(before, r);
+        assertEquals(before.hashCode(), r.hashCode());
+        assertEquals(before.size(), r.size());
+        assertEquals(before.keys(), r.keys());
+        assertEquals(before.values(), r.values());
+        assertEquals(entire, r.isEntire());
+        assertEquals(simple, r.isSimple());
+        assertEquals(injective, r.isInjective());
+        r.begin();
+        r.clear();
+        r.commit();
+        assertTrue(r.isEmpty());
+    }
+
+    /** Every implementation rolls back, implicit evictions included */
+    @Test
+    public void rollback() {
+        assertRollback(new BiMap<Integer, Integer>(DOMAIN, DOMAIN));
+        assertRollback(new SimpleBiMap<Integer, Integer>(DOMAIN, DOMAIN));
+        assertRollback(new OneToOneBiMap<Integer, Integer>(DOMAIN, DOMAIN));
+        assertRollback(new IndexedBiMap<Integer, Integer>(DOMAIN, DOMAIN));
+        assertRollback(new IntPairRelation(DOMAIN, DOMAIN));
+        assertRollback(new AdaptiveBiMap<Integer, Integer>(true));
+        assertRollback(Relations.converse(
+                new SimpleBiMap<Integer, Integer>()));
+    }
+
+    /** A failed batch is undone as a whole */
+    @Test
+    public void failedBatch() {
+        final IndexedBiMap<Integer, Integer> r =
+                new IndexedBiMap<Integer, Integer>(DOMAIN, DOMAIN);
+        r.put(1, 1);
+        r.begin();
+        try {
+            r.putAll(Arrays.asList(2, 3, 99), Arrays.asList(1, 2));
+            fail();
+        } catch (IllegalArgumentException e) {
+            r.rollback();
+        }
+        assertEquals(1, r.size());
+        assertTrue(r.contains(1, 1));
+        final OneToOneBiMap<String, String> o =
+                new OneToOneBiMap<String, String>();
+        o.put("a", "x");
+        o.put("b", "y");
+        o.begin();
+        o.put("a", "y");
+        assertEquals(1, o.size());
+        o.rollback();
+        assertEquals(2, o.size());
+        assertEquals("x", o.valueOf("a"));
+        assertEquals("y", o.valueOf("b"));
+    }
+
+    /** Transactions do not nest, and must be active to end */
+    @Test
+    public void states() {
+        final BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        try { r.commit(); fail(); }
+        catch (IllegalStateException e) {}
+        try { r.rollback(); fail(); }
+        catch (IllegalStateException e) {}
+        r.begin();
+        try { r.begin(); fail(); }
+        catch (IllegalStateException e) {}
+        r.put(1, 2);
+        r.commit();
+        r.begin();
+        r.rollback();
+        assertTrue(r.contains(1, 2));
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ *  Copyright (c) 2013 André Santos
+ *
+ *  Permission is hereby granted, free of charge,
+ *  to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without
+ *  restriction, including without limitation the rights to use, copy,
+ *  modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included
+ *  in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ *  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+ *  CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ *  TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE
+ *  OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.bitbucket.rel4j.test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.bitbucket.rel4j.BiMap;
+import org.bitbucket.rel4j.Domain;
+import org.bitbucket.rel4j.IndexedBiMap;
+import org.bitbucket.rel4j.MutableRelation;
+import org.bitbucket.rel4j.Relation;
+import org.bitbucket.rel4j.Relations;
+import org.bitbucket.rel4j.Traversal;
+import org.bitbucket.rel4j.Traversal.Direction;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * The test class TraversalTest.
+ *
+ * @author  André Santos
+ * @version 2026-10-18
+ */
+public class TraversalTest {
+
+    /**
+     * Returns the distance of every element within {@code k} steps of the
+     * seeds, by relaxing every pair {@code k} times.
+     */
+    private static Map<Integer, Integer> distances(
+            final Relation<Integer, Integer> r, final List<Integer> seeds,
+            final int k, final Direction direction) {
+        final Map<Integer, Integer> d = new HashMap<Integer, Integer>();
+        for (final Integer s: seeds) { d.put(s, 0); }
+        for (int step = 1; step <= k; ++step) {
+            final Map<Integer, Integer> next =
+                    new HashMap<Integer, Integer>(d);
+            for (final Integer a: r.keys()) {
+                for (final Integer b: r.valuesOf(a)) {
+                    if (direction != Direction.BACKWARD
+                            && d.containsKey(a) && !next.containsKey(b)) {
+                        next.put(b, step);
+                    }
+                    if (direction != Direction.FORWARD
+                            && d.containsKey(b) && !next.containsKey(a)) {
+                        next.put(a, step);
+                    }
+                }
+            }
+            d.clear();
+            d.putAll(next);
+        }
+        return d;
+    }
+
+    /** Fills a relation with random pairs over {@code [0, n)}. */
+    private static void fill(final MutableRelation<Integer, Integer> r,
+            final Random random, final int n, final int pairs) {
+        for (int i = 0; i < pairs; ++i) {
+            r.put(random.nextInt(n), random.nextInt(n));
+        }
+    }
+
+    /** Traversals agree with relaxation, in every direction */
+    @Test
+    public void directions() {
+        final Random random = new Random(50);
+        final BiMap<Integer, Integer> hashed = new BiMap<Integer, Integer>();
+        final Domain<Integer> ids = Domain.range(0, 200);
+        final IndexedBiMap<Integer, Integer> indexed =
+                new IndexedBiMap<Integer, Integer>(ids, ids);
+        fill(hashed, random, 200, 300);
+        fill(indexed, random, 200, 300);
+        final List<Integer> seeds = Arrays.asList(3, 17, 17, 250);
+        for (final Relation<Integer, Integer> r:
+                Arrays.<Relation<Integer, Integer>>asList(hashed, indexed)) {
+            for (final Direction direction: Direction.values()) {
+                for (int k = 0; k <= 4; ++k) {
+                    final Map<Integer, Integer> d =
+                            distances(r, seeds, k, direction);
+                    assertEquals(d.keySet(), Relations.reachableWithin(
+                            r, seeds, k, direction, false));
+                    assertEquals(d.keySet(), Relations.reachableWithin(
+                            r, seeds, k, direction, true));
+                }
+                final Map<Integer, Integer> d =
+                        distances(r, seeds, 200, direction);
+                final Traversal<Integer> bfs =
+                        Relations.breadthFirst(r, seeds, direction);
+                int n = 0, depth = 0;
+                while (bfs.hasNext()) {
+                    final Integer a = bfs.next();
+                    assertTrue(bfs.depth() >= depth);
+                    depth = bfs.depth();
+                    assertEquals(d.get(a), Integer.valueOf(depth));
+                    ++n;
+                }
+                assertEquals(d.size(), n);
+            }
+        }
+        assertEquals(distances(hashed, seeds, 2, Direction.FORWARD).keySet(),
+                Relations.reachableWithin(hashed, seeds, 2));
+    }
+
+    /** Large frontiers are expanded in parallel to the same result */
+    @Test
+    public void parallel() {
+        final Random random = new Random(51);
+        final BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        for (int i = 1; i <= 5000; ++i) {
+            r.put(0, i);
+            r.put(i, 5000 + random.nextInt(20000));
+        }
+        final List<Integer> seeds = Collections.singletonList(0);
+        for (int k = 0; k <= 3; ++k) {
+            final Set<Integer> expected =
+                    distances(r, seeds, k, Direction.BOTH).keySet();
+            assertEquals(expected, Relations.reachableWithin(
+                    r, seeds, k, Direction.BOTH, true));
+        }
+    }
+
+    /** The depth is that of the element last returned by next() */
+    @Test
+    public void depthAfterHasNext() {
+        final BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        r.put(0, 1);
+        r.put(1, 2);
+        final Traversal<Integer> bfs = Relations.breadthFirst(
+                r, Collections.singletonList(0), Direction.FORWARD);
+        assertEquals(0, bfs.depth());
+        assertEquals(Integer.valueOf(0), bfs.next());
+        assertTrue(bfs.hasNext());
+        assertEquals(0, bfs.depth());
+        assertEquals(Integer.valueOf(1), bfs.next());
+        assertEquals(1, bfs.depth());
+        assertTrue(bfs.hasNext());
+        assertEquals(1, bfs.depth());
+        assertEquals(Integer.valueOf(2), bfs.next());
+        assertFalse(bfs.hasNext());
+        assertEquals(2, bfs.depth());
+    }
+
+    /** Bad arguments are rejected */
+    @Test
+    public void arguments() {
+        final BiMap<Integer, Integer> r = new BiMap<Integer, Integer>();
+        final List<Integer> seeds = Collections.singletonList(1);
+        try { Relations.reachableWithin(r, seeds, -1); fail(); }
+        catch (IllegalArgumentException e) {}
+        try { Relations.reachableWithin(r, null, 1); fail(); }
+        catch (NullPointerException e) {}
+        assertEquals(Collections.singleton(1),
+                Relations.reachableWithin(r, seeds, 3));
+        final Traversal<Integer> bfs =
+                Relations.breadthFirst(r, seeds, Direction.FORWARD);
+        assertEquals(Integer.valueOf(1), bfs.next());
+        assertFalse(bfs.hasNext());
+    }
+}